@@ -0,0 +1,228 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.cache;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtVariable;
+import org.ignitionone.parser.AdsTxtParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Parses every distinct ads.txt body once per crawl. Publishers on the same network or CMS often serve
+ * byte-identical files, the records parsed from the first copy are kept by the hash of the body and copied for
+ * every other domain serving it, with only the source domain set anew. The variables of the body are kept
+ * along with its records.
+ * </p>
+ * <p>
+ * Bodies are told apart by their 64 bit content hash alone. The cache holds at most maxEntries bodies and
+ * maxRecords records in total, the least recently served bodies are evicted first, so memory stays bounded
+ * however large the crawl. Two workers parsing the same new body at once both parse it.
+ * </p>
+ */
+public class ContentDedupCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ContentDedupCache.class);
+    public static final int DEFAULT_MAX_RECORDS = 1000000;
+
+    private final AdsTxtParser adsTxtParser;
+    private final int maxEntries;
+    private final long maxRecords;
+    // In access order for the eviction, guarded by itself
+    private final Map<Long, ParsedBody> parsedBodies = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedRecords;
+    private final AtomicLong bodies = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param adsTxtParser
+     * @param maxEntries   max number of distinct bodies kept, 0 disables deduplication
+     */
+    public ContentDedupCache(AdsTxtParser adsTxtParser, int maxEntries) {
+        this(adsTxtParser, maxEntries, DEFAULT_MAX_RECORDS);
+    }
+
+    /**
+     * @param adsTxtParser
+     * @param maxEntries   max number of distinct bodies kept, 0 disables deduplication
+     * @param maxRecords   max number of records kept of all bodies together
+     */
+    public ContentDedupCache(AdsTxtParser adsTxtParser, int maxEntries, long maxRecords) {
+        this.adsTxtParser = adsTxtParser;
+        this.maxEntries = maxEntries;
+        this.maxRecords = maxRecords;
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * <p> Appends the records of the body, parsed unless a body with the same hash was parsed before </p>
+     *
+     * @param sourceDomain  domain the body was fetched for
+     * @param content       body of the ads.txt file
+     * @param contentHash   hash of the body, see {@link org.ignitionone.util.ParserUtil#contentHash}
+     * @param adsTxtRecords
+     */
+    public void parse(String sourceDomain, String content, long contentHash, List<AdsTxtRecord> adsTxtRecords) {
+        parse(sourceDomain, content, contentHash, adsTxtRecords, new ArrayList<>());
+    }
+
+    /**
+     * <p> Appends the records and variables of the body, parsed unless a body with the same hash was parsed before </p>
+     *
+     * @param sourceDomain    domain the body was fetched for
+     * @param content         body of the ads.txt file
+     * @param contentHash     hash of the body, see {@link org.ignitionone.util.ParserUtil#contentHash}
+     * @param adsTxtRecords
+     * @param adsTxtVariables
+     */
+    public void parse(String sourceDomain, String content, long contentHash, List<AdsTxtRecord> adsTxtRecords,
+                      List<AdsTxtVariable> adsTxtVariables) {
+        bodies.incrementAndGet();
+        if (!isEnabled()) {
+            adsTxtParser.parse(sourceDomain, content, adsTxtRecords, adsTxtVariables);
+            return;
+        }
+
+        ParsedBody parsedBody;
+        synchronized (parsedBodies) {
+            parsedBody = parsedBodies.get(contentHash);
+        }
+        if (parsedBody != null) {
+            duplicates.incrementAndGet();
+            appendCopies(parsedBody.adsTxtRecords, sourceDomain, adsTxtRecords);
+            adsTxtVariables.addAll(parsedBody.adsTxtVariables);
+            return;
+        }
+
+        int firstRecord = adsTxtRecords.size();
+        int firstVariable = adsTxtVariables.size();
+        adsTxtParser.parse(sourceDomain, content, adsTxtRecords, adsTxtVariables);
+        if (adsTxtRecords.size() - firstRecord <= maxRecords) {
+            // Copies, the caller owns the parsed records
+            List<AdsTxtRecord> parsedRecords = new ArrayList<>(adsTxtRecords.size() - firstRecord);
+            appendCopies(adsTxtRecords.subList(firstRecord, adsTxtRecords.size()), null, parsedRecords);
+            put(contentHash, new ParsedBody(parsedRecords,
+                    new ArrayList<>(adsTxtVariables.subList(firstVariable, adsTxtVariables.size()))));
+        }
+    }
+
+    private void put(long contentHash, ParsedBody parsedBody) {
+        synchronized (parsedBodies) {
+            if (parsedBodies.containsKey(contentHash)) {
+                return;
+            }
+            parsedBodies.put(contentHash, parsedBody);
+            cachedRecords += parsedBody.adsTxtRecords.size();
+            Iterator<ParsedBody> leastRecentlyUsed = parsedBodies.values().iterator();
+            while (parsedBodies.size() > maxEntries || cachedRecords > maxRecords) {
+                cachedRecords -= leastRecentlyUsed.next().adsTxtRecords.size();
+                leastRecentlyUsed.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (parsedBodies) {
+            return parsedBodies.size();
+        }
+    }
+
+    /**
+     * @return number of records kept of all cached bodies together
+     */
+    public long getCachedRecords() {
+        synchronized (parsedBodies) {
+            return cachedRecords;
+        }
+    }
+
+    public long getBodies() {
+        return bodies.get();
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    /**
+     * @return share of the bodies which were not parsed because an identical body was parsed before
+     */
+    public double getDedupRatio() {
+        long total = bodies.get();
+        return total == 0 ? 0 : (double) duplicates.get() / total;
+    }
+
+    public void logStats() {
+        LOG.info("Content dedup: {} bodies, {} parsed, {} duplicates, dedup ratio {}%, {} evicted", new Object[]{
+                bodies.get(), bodies.get() - duplicates.get(), duplicates.get(),
+                String.format("%.1f", getDedupRatio() * 100), evictions.get()});
+    }
+
+    /**
+     * <p>
+     * Appends copies of the records for the source domain, sharing their field values. Records without a
+     * source domain (empty lines of separators) stay without one, a null source domain copies the records as
+     * they are.
+     * </p>
+     */
+    private static void appendCopies(List<AdsTxtRecord> parsedRecords, String sourceDomain,
+                                     List<AdsTxtRecord> adsTxtRecords) {
+        for (AdsTxtRecord parsedRecord : parsedRecords) {
+            AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+            adsTxtRecord.setInsertDate(parsedRecord.getInsertDate());
+            if (sourceDomain == null || parsedRecord.getSourceDomain() == null) {
+                adsTxtRecord.setSourceDomain(parsedRecord.getSourceDomain());
+            } else {
+                adsTxtRecord.setSourceDomain(sourceDomain);
+            }
+            adsTxtRecord.setAdServingDomain(parsedRecord.getAdServingDomain());
+            adsTxtRecord.setPublisherAccId(parsedRecord.getPublisherAccId());
+            adsTxtRecord.setAccType(parsedRecord.getAccType());
+            adsTxtRecord.setCertAuthId(parsedRecord.getCertAuthId());
+            adsTxtRecords.add(adsTxtRecord);
+        }
+    }
+
+    // Variables are immutable and shared, records are copied for every domain
+    private static class ParsedBody {
+        private final List<AdsTxtRecord> adsTxtRecords;
+        private final List<AdsTxtVariable> adsTxtVariables;
+
+        ParsedBody(List<AdsTxtRecord> adsTxtRecords, List<AdsTxtVariable> adsTxtVariables) {
+            this.adsTxtRecords = Collections.unmodifiableList(adsTxtRecords);
+            this.adsTxtVariables = Collections.unmodifiableList(adsTxtVariables);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Caches dns lookups across crawls. Positive entries keep the resolved address, negative entries remember
+ * hosts that do not exist (NXDOMAIN) so they are not looked up, let alone fetched, again until they expire.
+ * Failed lookups without an answer (SERVFAIL, timeouts) are only kept for the running crawl.
+ * </p>
+ * <p>
+ * The cache is persisted as a tab separated text file, expired entries are dropped on save:
+ * <br>
+ * host	address	expiresAtMillis
+ * <br>
+ * An empty address marks a negative entry.
+ * </p>
+ */
+public class DnsCache {
+    private static final Logger LOG = LoggerFactory.getLogger(DnsCache.class);
+    private static final String SEPARATOR = "\t";
+
+    private final String cacheFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param cacheFile file the cache is persisted to, an empty value keeps the cache in memory only
+     */
+    public DnsCache(String cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    public boolean isPersistent() {
+        return !cacheFile.isEmpty();
+    }
+
+    /**
+     * @param host
+     * @param now current time in millis
+     * @return the cached entry, or null if there is none or it expired
+     */
+    public Entry get(String host, long now) {
+        Entry entry = entries.get(host);
+        if (entry == null || entry.expiresAt <= now) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @param host
+     * @return the cached address, or null for unknown and unresolvable hosts; expiry is not checked
+     */
+    public String getAddress(String host) {
+        Entry entry = entries.get(host);
+        return entry == null ? null : entry.address;
+    }
+
+    public void putResolved(String host, String address, long expiresAt) {
+        entries.put(host, new Entry(address, expiresAt));
+    }
+
+    public void putUnresolvable(String host, long expiresAt) {
+        entries.put(host, new Entry(null, expiresAt));
+    }
+
+    /**
+     * <p> Caches a host whose lookup failed without an answer, the entry is not saved </p>
+     */
+    public void putFailed(String host, long expiresAt) {
+        entries.put(host, new Entry(null, expiresAt, false));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void load() {
+        File file = new File(cacheFile);
+        if (!isPersistent() || !file.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(SEPARATOR, -1);
+                String address = columns[1].isEmpty() ? null : columns[1];
+                entries.put(columns[0], new Entry(address, Long.parseLong(columns[2])));
+            }
+            LOG.info("Loaded {} entries from dns cache {}", entries.size(), cacheFile);
+        } catch (Exception e) {
+            LOG.error("Error reading dns cache, starting with an empty cache: ", e);
+            entries.clear();
+        }
+    }
+
+    public void save() {
+        if (!isPersistent()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        File file = new File(cacheFile);
+        File tempFile = new File(cacheFile + ".tmp");
+        int saved = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+                Entry entry = cached.getValue();
+                if (entry.expiresAt <= now || !entry.persistent) {
+                    continue;
+                }
+                writer.write(cached.getKey());
+                writer.write(SEPARATOR);
+                writer.write(entry.isResolved() ? entry.address : "");
+                writer.write(SEPARATOR);
+                writer.write(String.valueOf(entry.expiresAt));
+                writer.newLine();
+                saved++;
+            }
+        } catch (IOException e) {
+            LOG.error("Error writing dns cache: ", e);
+            return;
+        }
+
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            LOG.info("Saved {} entries to dns cache {}", saved, cacheFile);
+        } catch (IOException e) {
+            LOG.error("Error replacing dns cache: ", e);
+        }
+    }
+
+    public static class Entry {
+        private final String address;
+        private final long expiresAt;
+        private final boolean persistent;
+
+        Entry(String address, long expiresAt) {
+            this(address, expiresAt, true);
+        }
+
+        Entry(String address, long expiresAt, boolean persistent) {
+            this.address = address;
+            this.expiresAt = expiresAt;
+            this.persistent = persistent;
+        }
+
+        public boolean isResolved() {
+            return address != null;
+        }
+
+        /**
+         * @return true if the host is not resolved because its lookup failed without an answer
+         */
+        public boolean isFailed() {
+            return address == null && !persistent;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Remembers the url an ads.txt file was last found at for each domain, i.e. the scheme that worked and the
+ * final url after redirects, so the next crawl requests it directly instead of probing https and http and
+ * following the same redirects again.
+ * </p>
+ * <p>
+ * The cache is persisted as a tab separated text file:
+ * <br>
+ * domain	url
+ * </p>
+ */
+public class SchemeCache {
+    private static final Logger LOG = LoggerFactory.getLogger(SchemeCache.class);
+    private static final String SEPARATOR = "\t";
+
+    private final String cacheFile;
+    private final Map<String, String> urls = new ConcurrentHashMap<>();
+
+    /**
+     * @param cacheFile file the cache is persisted to, an empty value keeps the cache in memory only
+     */
+    public SchemeCache(String cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    public boolean isPersistent() {
+        return !cacheFile.isEmpty();
+    }
+
+    /**
+     * @param domain
+     * @return the url the ads.txt file of the domain was last found at, null if unknown
+     */
+    public String get(String domain) {
+        return urls.get(domain);
+    }
+
+    public void put(String domain, String url) {
+        urls.put(domain, url);
+    }
+
+    public void remove(String domain) {
+        urls.remove(domain);
+    }
+
+    public int size() {
+        return urls.size();
+    }
+
+    public void load() {
+        File file = new File(cacheFile);
+        if (!isPersistent() || !file.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(SEPARATOR, -1);
+                urls.put(columns[0], columns[1]);
+            }
+            LOG.info("Loaded {} entries from scheme cache {}", urls.size(), cacheFile);
+        } catch (Exception e) {
+            LOG.error("Error reading scheme cache, starting with an empty cache: ", e);
+            urls.clear();
+        }
+    }
+
+    public void save() {
+        if (!isPersistent()) {
+            return;
+        }
+
+        File file = new File(cacheFile);
+        File tempFile = new File(cacheFile + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> cached : urls.entrySet()) {
+                writer.write(cached.getKey());
+                writer.write(SEPARATOR);
+                writer.write(cached.getValue());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            LOG.error("Error writing scheme cache: ", e);
+            return;
+        }
+
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            LOG.info("Saved {} entries to scheme cache {}", urls.size(), cacheFile);
+        } catch (IOException e) {
+            LOG.error("Error replacing scheme cache: ", e);
+        }
+    }
+}
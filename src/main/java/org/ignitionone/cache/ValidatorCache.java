@@ -0,0 +1,291 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.cache;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.parser.CrawlDictionary;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Keeps the http validators (ETag/Last-Modified), a hash of the content and the parsed lines of the last
+ * ads.txt file seen for each domain. Validators are sent as conditional request headers on the next crawl,
+ * a 304 response (or a 200 with identical content) then reuses the cached lines instead of parsing again.
+ * </p>
+ * <p>
+ * The cache is persisted as a tab separated text file, one header line per domain followed by its lines:
+ * <br>
+ * domain	etag	lastModified	contentHash	lineCount	subdomains
+ * <br>
+ * adServingDomain	publisherAccId	accType	certAuthId
+ * <br>
+ * The SUBDOMAIN variables of the file are kept comma separated, so a 304 still expands the crawl to them. Files
+ * written without the subdomains column load with no subdomains. Loaded values are canonicalized through the
+ * {@link CrawlDictionary}, so reused records share them with the parsed ones.
+ * </p>
+ */
+public class ValidatorCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ValidatorCache.class);
+    private static final String SEPARATOR = "\t";
+
+    private final String cacheFile;
+    private final CrawlDictionary crawlDictionary;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong notModifiedHits = new AtomicLong();
+    private final AtomicLong unchangedContentHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param cacheFile file the cache is persisted to, an empty value keeps the cache in memory only
+     */
+    public ValidatorCache(String cacheFile) {
+        this(cacheFile, new CrawlDictionary());
+    }
+
+    /**
+     * @param cacheFile       file the cache is persisted to, an empty value keeps the cache in memory only
+     * @param crawlDictionary dictionary the values of the loaded lines are canonicalized with
+     */
+    public ValidatorCache(String cacheFile, CrawlDictionary crawlDictionary) {
+        this.cacheFile = cacheFile;
+        this.crawlDictionary = crawlDictionary;
+    }
+
+    public boolean isPersistent() {
+        return !cacheFile.isEmpty();
+    }
+
+    public Entry get(String domain) {
+        return entries.get(domain);
+    }
+
+    public void put(String domain, String etag, String lastModified, long contentHash, List<AdsTxtRecord> adsTxtRecords) {
+        put(domain, etag, lastModified, contentHash, adsTxtRecords, Collections.emptyList());
+    }
+
+    public void put(String domain, String etag, String lastModified, long contentHash, List<AdsTxtRecord> adsTxtRecords,
+                    List<String> subdomains) {
+        List<String[]> lines = new ArrayList<>(adsTxtRecords.size());
+        adsTxtRecords.forEach(adsTxtRecord -> lines.add(new String[]{
+                adsTxtRecord.getAdServingDomain(),
+                adsTxtRecord.getPublisherAccId(),
+                adsTxtRecord.getAccType(),
+                adsTxtRecord.getCertAuthId()}));
+        entries.put(domain, new Entry(etag, lastModified, contentHash, lines, subdomains));
+    }
+
+    public void remove(String domain) {
+        entries.remove(domain);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * <p> Appends the cached records of a domain which answered with 304 Not Modified </p>
+     *
+     * @return false if there is nothing cached for the domain
+     */
+    public boolean reuseNotModified(String domain, DateTime insertDate, List<AdsTxtRecord> adsTxtRecords) {
+        Entry entry = entries.get(domain);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return false;
+        }
+        notModifiedHits.incrementAndGet();
+        entry.appendRecords(domain, insertDate, adsTxtRecords);
+        return true;
+    }
+
+    /**
+     * <p>
+     * Appends the cached records of a domain if the content hash matches the cached one. The validators are
+     * refreshed so servers that changed their ETag for identical content are still revalidated next time.
+     * </p>
+     *
+     * @return false if the content changed or nothing is cached for the domain
+     */
+    public boolean reuseUnchanged(String domain, String etag, String lastModified, long contentHash,
+                                  DateTime insertDate, List<AdsTxtRecord> adsTxtRecords) {
+        Entry entry = entries.get(domain);
+        if (entry == null || entry.contentHash != contentHash) {
+            misses.incrementAndGet();
+            return false;
+        }
+        unchangedContentHits.incrementAndGet();
+        entries.put(domain, new Entry(etag, lastModified, contentHash, entry.lines, entry.subdomains));
+        entry.appendRecords(domain, insertDate, adsTxtRecords);
+        return true;
+    }
+
+    public void logStats() {
+        LOG.info("Validator cache: {} not modified, {} unchanged content, {} parsed, {} entries", new Object[]{
+                notModifiedHits.get(), unchangedContentHits.get(), misses.get(), entries.size()});
+    }
+
+    public void load() {
+        File file = new File(cacheFile);
+        if (!isPersistent() || !file.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] header = line.split(SEPARATOR, -1);
+                int lineCount = Integer.parseInt(header[4]);
+                List<String[]> lines = new ArrayList<>(lineCount);
+                for (int i = 0; i < lineCount; i++) {
+                    String[] columns = reader.readLine().split(SEPARATOR, -1);
+                    for (int column = 0; column < columns.length; column++) {
+                        columns[column] = crawlDictionary.canonicalize(columns[column]);
+                    }
+                    lines.add(columns);
+                }
+                List<String> subdomains = header.length > 5 && !header[5].isEmpty()
+                        ? Arrays.asList(header[5].split(",")) : Collections.emptyList();
+                entries.put(header[0], new Entry(emptyToNull(header[1]), emptyToNull(header[2]),
+                        Long.parseLong(header[3]), lines, subdomains));
+            }
+            LOG.info("Loaded {} entries from validator cache {}", entries.size(), cacheFile);
+        } catch (Exception e) {
+            LOG.error("Error reading validator cache, starting with an empty cache: ", e);
+            entries.clear();
+        }
+    }
+
+    public void save() {
+        if (!isPersistent()) {
+            return;
+        }
+
+        File file = new File(cacheFile);
+        File tempFile = new File(cacheFile + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+                Entry entry = cached.getValue();
+                writeLine(writer, cached.getKey(), entry.etag, entry.lastModified,
+                        String.valueOf(entry.contentHash), String.valueOf(entry.lines.size()),
+                        String.join(",", entry.subdomains));
+                for (String[] columns : entry.lines) {
+                    writeLine(writer, columns);
+                }
+            }
+        } catch (IOException e) {
+            LOG.error("Error writing validator cache: ", e);
+            return;
+        }
+
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            LOG.info("Saved {} entries to validator cache {}", entries.size(), cacheFile);
+        } catch (IOException e) {
+            LOG.error("Error replacing validator cache: ", e);
+        }
+    }
+
+    private void writeLine(BufferedWriter writer, String... columns) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(SEPARATOR);
+            }
+            writer.write(escape(columns[i]));
+        }
+        writer.newLine();
+    }
+
+    // Tabs and line breaks would corrupt the file format, they never occur in valid values anyway
+    private static String escape(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    public static class Entry {
+        private final String etag;
+        private final String lastModified;
+        private final long contentHash;
+        private final List<String[]> lines;
+        private final List<String> subdomains;
+
+        Entry(String etag, String lastModified, long contentHash, List<String[]> lines, List<String> subdomains) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+            this.lines = Collections.unmodifiableList(lines);
+            this.subdomains = Collections.unmodifiableList(new ArrayList<>(subdomains));
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public long getContentHash() {
+            return contentHash;
+        }
+
+        public List<String[]> getLines() {
+            return lines;
+        }
+
+        /**
+         * @return SUBDOMAIN variables of the file
+         */
+        public List<String> getSubdomains() {
+            return subdomains;
+        }
+
+        void appendRecords(String domain, DateTime insertDate, List<AdsTxtRecord> adsTxtRecords) {
+            for (String[] columns : lines) {
+                AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+                adsTxtRecord.setInsertDate(insertDate);
+                adsTxtRecord.setSourceDomain(domain);
+                adsTxtRecord.setAdServingDomain(columns[0]);
+                adsTxtRecord.setPublisherAccId(columns[1]);
+                adsTxtRecord.setAccType(columns[2]);
+                adsTxtRecord.setCertAuthId(columns[3]);
+                adsTxtRecords.add(adsTxtRecord);
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.datastore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * Minimal jdbc connection pool handing out at most maxSize connections at a time. Connections are opened
+ * through the DriverManager when first needed and closing one returns it to the pool, rolled back and in
+ * autocommit mode. Idle connections that are no longer valid are replaced. Callers wait up to
+ * {@link #ACQUIRE_TIMEOUT_SECONDS} seconds for a connection when all of them are in use.
+ * </p>
+ * <p>
+ * Thread safe.
+ * </p>
+ */
+public class ConnectionPool implements DataSource {
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionPool.class);
+    public static final int ACQUIRE_TIMEOUT_SECONDS = 60;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final Semaphore permits;
+    private final BlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+
+    public ConnectionPool(String url, String username, String password, int maxSize) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.permits = new Semaphore(this.maxSize, true);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        try {
+            if (!permits.tryAcquire(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new SQLException("No pooled connection free after " + ACQUIRE_TIMEOUT_SECONDS + " seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a pooled connection", e);
+        }
+
+        try {
+            Connection connection;
+            // Most recently used first, it is the least likely to have timed out
+            while ((connection = idle.pollFirst()) != null) {
+                if (isValid(connection)) {
+                    return pooled(connection);
+                }
+                closeQuietly(connection);
+            }
+            LOG.debug("Opening pooled connection to {}", url);
+            return pooled(DriverManager.getConnection(url, username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections all use the configured user");
+    }
+
+    private Connection pooled(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new PooledConnection(connection));
+    }
+
+    private void release(Connection connection) {
+        try {
+            if (!connection.isClosed()) {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                idle.addFirst(connection);
+                return;
+            }
+        } catch (SQLException e) {
+            LOG.debug("Discarding pooled connection: {}", e.getMessage());
+            closeQuietly(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException | AbstractMethodError e) {
+            // Drivers predating jdbc 4 cannot tell, their connections are used as they are
+            return true;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOG.debug("Error closing pooled connection: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return DriverManager.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        DriverManager.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        if (type.isInstance(this)) {
+            return type.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + type.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) {
+        return type.isInstance(this);
+    }
+
+    /**
+     * <p> Hands the calls to the pooled connection until it is closed, which returns it to the pool </p>
+     */
+    private class PooledConnection implements InvocationHandler {
+        private final Connection connection;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        release(connection);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed.get() || connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + connection;
+                case "unwrap":
+                    // Older drivers do not implement unwrap, the driver connection is returned here
+                    if (!closed.get() && ((Class<?>) args[0]).isInstance(connection)) {
+                        return connection;
+                    }
+                    return invokeConnection(method, args);
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(connection)) {
+                        return true;
+                    }
+                    return invokeConnection(method, args);
+                default:
+                    return invokeConnection(method, args);
+            }
+        }
+
+        private Object invokeConnection(Method method, Object[] args) throws Throwable {
+            if (closed.get()) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -23,9 +23,16 @@ package org.ignitionone.datastore;
 
 import org.ignitionone.datastore.core.DataStore;
 import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtRecordBatch;
+import org.ignitionone.model.AdsTxtRecordSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Set;
 
@@ -33,6 +40,8 @@ public class ConsoleDataStore implements DataStore {
 
     private static Logger LOG = LoggerFactory.getLogger(ConsoleDataStore.class);
 
+    private boolean failedWrites = false;
+
     public ConsoleDataStore() {
         LOG.debug("Initializing Console data store..");
     }
@@ -44,6 +53,38 @@ public class ConsoleDataStore implements DataStore {
 
     @Override
     public void insertAdsTxtRecords(List<AdsTxtRecord> adsTxtRecords) {
-        adsTxtRecords.forEach(adsTxtRecord -> System.out.println(adsTxtRecord));
+        AdsTxtRecordSerializer serializer = new AdsTxtRecordSerializer();
+        Writer writer = stdout();
+        try {
+            for (AdsTxtRecord adsTxtRecord : adsTxtRecords) {
+                serializer.write(writer, adsTxtRecord);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            LOG.error("Error writing records: ", e);
+            failedWrites = true;
+        }
+    }
+
+    @Override
+    public void insertAdsTxtRecordBatch(AdsTxtRecordBatch batch) {
+        Writer writer = stdout();
+        try {
+            new AdsTxtRecordSerializer().write(writer, batch);
+            writer.flush();
+        } catch (IOException e) {
+            LOG.error("Error writing batch: ", e);
+            failedWrites = true;
+        }
+    }
+
+    @Override
+    public boolean hasFailedWrites() {
+        return failedWrites;
+    }
+
+    // Flushed but never closed, System.out stays open
+    private static Writer stdout() {
+        return new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()), 1 << 16);
     }
 }
@@ -23,20 +23,29 @@ package org.ignitionone.datastore;
 
 import org.ignitionone.datastore.core.DataStore;
 import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtRecordBatch;
+import org.ignitionone.model.AdsTxtRecordSerializer;
+import org.ignitionone.model.CrawlTarget;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class FileDataStore implements DataStore {
     private static String READFILE;
     private static String WRITEFILE;
 
     private static Logger LOG = LoggerFactory.getLogger(FileDataStore.class);
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // The output file is truncated by the first write of a run, subsequent batches are appended
+    private boolean append = false;
+    private boolean failedWrites = false;
 
     public FileDataStore(Properties properties) {
         // Read config etc.
@@ -48,37 +57,91 @@ public class FileDataStore implements DataStore {
 
     @Override
     public void insertAdsTxtRecords(List<AdsTxtRecord> adsTxtRecords) {
-
-        try (FileWriter fileWriter = new FileWriter(WRITEFILE)) {
-            adsTxtRecords.forEach(adsTxtRecord ->
-                    writeLine(fileWriter, adsTxtRecord));
+        AdsTxtRecordSerializer serializer = new AdsTxtRecordSerializer();
+        try (Writer writer = new BufferedWriter(new FileWriter(WRITEFILE, append), BUFFER_SIZE)) {
+            for (AdsTxtRecord adsTxtRecord : adsTxtRecords) {
+                serializer.write(writer, adsTxtRecord);
+            }
+            append = true;
         } catch (IOException e) {
             LOG.error("Error writing line: ", e);
+            failedWrites = true;
         }
     }
 
+    @Override
+    public void insertAdsTxtRecordBatch(AdsTxtRecordBatch batch) {
+        try (Writer writer = new BufferedWriter(new FileWriter(WRITEFILE, append), BUFFER_SIZE)) {
+            new AdsTxtRecordSerializer().write(writer, batch);
+            append = true;
+        } catch (IOException e) {
+            LOG.error("Error writing batch: ", e);
+            failedWrites = true;
+        }
+    }
+
+    @Override
+    public void resume() {
+        // Keep the records the interrupted crawl wrote
+        append = true;
+    }
+
+    @Override
+    public boolean hasFailedWrites() {
+        return failedWrites;
+    }
+
     @Override
     public Set<String> getAdsTxtUrls() {
-        Set<String> urls = new HashSet<>();
+        try (Stream<CrawlTarget> crawlTargets = streamCrawlTargets()) {
+            return crawlTargets.map(CrawlTarget::getDomain).collect(Collectors.toSet());
+        }
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(READFILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                line = line.replaceAll("\n", "");
-                urls.add(line);
-            }
-        } catch (Exception e) {
-            LOG.error("Error reading file: ", e);
+    @Override
+    public List<CrawlTarget> getCrawlTargets() {
+        try (Stream<CrawlTarget> crawlTargets = streamCrawlTargets()) {
+            return crawlTargets.collect(Collectors.toList());
         }
-        return urls;
     }
 
-    private void writeLine(FileWriter fileWriter, AdsTxtRecord adsTxtRecord) {
+    /**
+     * <p>
+     * One url/domain per line, optionally followed by a comma or tab and its crawl priority
+     * (example.com,10). Lines without a priority get the default priority. Lines are read as the stream is
+     * consumed.
+     * </p>
+     */
+    @Override
+    public Stream<CrawlTarget> streamCrawlTargets() {
+        BufferedReader reader;
         try {
-            fileWriter.write(adsTxtRecord.toString());
+            reader = new BufferedReader(new FileReader(READFILE), BUFFER_SIZE);
         } catch (IOException e) {
-            LOG.error("Error wring line: ", e);
+            LOG.error("Error reading file: ", e);
+            return Stream.empty();
+        }
+        return reader.lines()
+                .map(line -> toCrawlTarget(line.trim()))
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        LOG.error("Error closing file: ", e);
+                    }
+                });
+    }
+
+    private static CrawlTarget toCrawlTarget(String line) {
+        int separator = Math.max(line.lastIndexOf(','), line.lastIndexOf('\t'));
+        if (separator > 0) {
+            try {
+                int priority = Integer.parseInt(line.substring(separator + 1).trim());
+                return new CrawlTarget(line.substring(0, separator).trim(), priority);
+            } catch (NumberFormatException e) {
+                LOG.debug("No crawl priority in line: {}", line);
+            }
         }
+        return new CrawlTarget(line);
     }
 }
@@ -23,26 +23,57 @@ package org.ignitionone.datastore;
 
 import org.ignitionone.datastore.core.DataStore;
 import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtRecordBatch;
+import org.ignitionone.model.CrawlTarget;
 import org.ignitionone.util.DateUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sql2o.Connection;
+import org.sql2o.Query;
 import org.sql2o.Sql2o;
+import org.sql2o.Sql2oException;
+import org.sql2o.quirks.QuirksDetector;
 
-import java.util.HashSet;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class JDBCDataStore implements DataStore {
     private static final Logger LOG = LoggerFactory.getLogger(JDBCDataStore.class);
+    private static final int WRITER_TIMEOUT_MINUTES = 10;
     private final Sql2o sql2o;
     private final String url;
     private final String username;
     private final String password;
     private final String sqlquery;
     private final String insertquery;
+    private final String removequery;
     private final boolean appendDateId;
+    private final int batchSize;
+    private final int batchesPerCommit;
+    private final int fetchSize;
+    private final int writers;
+    private final ExecutorService writerPool;
+    private final AtomicBoolean failedWrites = new AtomicBoolean();
 
     public JDBCDataStore(Properties config, String jdbcType) {
         String prefix = "jdbc." + jdbcType + ".";
@@ -52,34 +83,365 @@ public class JDBCDataStore implements DataStore {
         this.url = config.getProperty(prefix + "url", "");
         this.sqlquery = config.getProperty(prefix + "sqlquery", "");
         this.insertquery = config.getProperty(prefix + "insertquery", "");
+        this.removequery = config.getProperty(prefix + "removequery", "");
         this.appendDateId = Boolean.parseBoolean(config.getProperty(prefix + "appenddate", "false"));
+        this.batchSize = Math.max(1, Integer.parseInt(config.getProperty(prefix + "batchsize", "1000")));
+        this.batchesPerCommit = Math.max(1, Integer.parseInt(config.getProperty(prefix + "batchespercommit", "10")));
+        this.fetchSize = Integer.parseInt(config.getProperty(prefix + "fetchsize", "10000"));
 
-        sql2o = new Sql2o(url, username, password);
+        int poolSize = Math.max(1, Integer.parseInt(config.getProperty(prefix + "poolsize", "4")));
+
+        sql2o = new Sql2o(new ConnectionPool(url, username, password, poolSize), QuirksDetector.forURL(url));
+        // One writer per pooled connection
+        this.writers = poolSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writerPool = writers > 1 ? Executors.newFixedThreadPool(writers, runnable -> {
+            Thread thread = new Thread(runnable, "jdbc-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
         LOG.debug("Initialized {} JDBC store", jdbcType);
         LOG.debug("Connected to {} successfully!", url);
     }
 
     @Override
     public void insertAdsTxtRecords(List<AdsTxtRecord> adsTxtRecords) {
-        try (Connection connection = sql2o.open()) {
-            for (AdsTxtRecord adsTxtRecord : adsTxtRecords) {
-                connection.createQuery(insertquery).bind(adsTxtRecord).executeUpdate();
+        insertPartitioned(insertquery, adsTxtRecords.size(), row -> adsTxtRecords.get(row).getSourceDomain(),
+                recordBinder(adsTxtRecords));
+    }
+
+    /**
+     * <p> Runs jdbc.&lt;type&gt;.removequery for every removed record, they are not written if it is not set </p>
+     */
+    @Override
+    public void insertRemovedAdsTxtRecords(List<AdsTxtRecord> removedRecords) {
+        if (removequery.isEmpty()) {
+            LOG.debug("No remove query, skipping {} removed adsTxtRecords", removedRecords.size());
+            return;
+        }
+        insertPartitioned(removequery, removedRecords.size(), row -> removedRecords.get(row).getSourceDomain(),
+                recordBinder(removedRecords));
+    }
+
+    private static RowBinder recordBinder(List<AdsTxtRecord> adsTxtRecords) {
+        return (query, parameters, row) -> {
+            AdsTxtRecord adsTxtRecord = adsTxtRecords.get(row);
+            bindIfPresent(query, parameters, "insertDate", adsTxtRecord.getInsertDate());
+            bindIfPresent(query, parameters, "sourceDomain", adsTxtRecord.getSourceDomain());
+            bindIfPresent(query, parameters, "adServingDomain", adsTxtRecord.getAdServingDomain());
+            bindIfPresent(query, parameters, "publisherAccId", adsTxtRecord.getPublisherAccId());
+            bindIfPresent(query, parameters, "accType", adsTxtRecord.getAccType());
+            bindIfPresent(query, parameters, "certAuthId", adsTxtRecord.getCertAuthId());
+        };
+    }
+
+    /**
+     * <p> Binds the columns of every row to one prepared insert query instead of binding a record per row </p>
+     */
+    @Override
+    public void insertAdsTxtRecordBatch(AdsTxtRecordBatch batch) {
+        insertPartitioned(insertquery, batch.size(), batch::getSourceDomain, (query, parameters, row) -> {
+            bindIfPresent(query, parameters, "insertDate", batch.getInsertDate(row));
+            bindIfPresent(query, parameters, "sourceDomain", batch.getSourceDomain(row));
+            bindIfPresent(query, parameters, "adServingDomain", batch.getAdServingDomain(row));
+            bindIfPresent(query, parameters, "publisherAccId", batch.getPublisherAccId(row));
+            bindIfPresent(query, parameters, "accType", batch.getAccType(row));
+            bindIfPresent(query, parameters, "certAuthId", batch.getCertAuthId(row));
+        });
+    }
+
+    /**
+     * <p>
+     * Splits the rows by source domain into one partition per pooled connection and inserts the partitions
+     * concurrently, each through its own connection and transactions. All rows of a domain go to the same
+     * writer. Inserts of no more than one jdbc batch are written by the calling thread.
+     * </p>
+     */
+    private void insertPartitioned(String sql, int rows, IntFunction<String> sourceDomain, RowBinder binder) {
+        if (writers == 1 || rows <= batchSize) {
+            if (insertRows(sql, rows, binder) > 0) {
+                failedWrites.set(true);
+            }
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<Future<Integer>> futures = new ArrayList<>(writers);
+        for (int[] partition : partition(rows, sourceDomain)) {
+            if (partition.length > 0) {
+                futures.add(writerPool.submit(() -> insertRows(sql, partition.length,
+                        (query, parameters, row) -> binder.bind(query, parameters, partition[row]))));
+            }
+        }
+
+        int failed = 0;
+        for (Future<Integer> future : futures) {
+            try {
+                failed += future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOG.error("Interrupted waiting for the jdbc writers");
+                failedWrites.set(true);
+                return;
+            } catch (ExecutionException e) {
+                LOG.error("Data insertion failed! {}", e.getCause());
+                failedWrites.set(true);
+            }
+        }
+        if (failed > 0) {
+            failedWrites.set(true);
+        }
+        long millis = Math.max(1, System.currentTimeMillis() - start);
+        LOG.info("Inserted {} rows into the DB with {} writers in {} ms ({} rows/s), {} rows failed",
+                new Object[]{rows - failed, futures.size(), millis, (rows - failed) * 1000L / millis, failed});
+    }
+
+    @Override
+    public boolean hasFailedWrites() {
+        return failedWrites.get();
+    }
+
+    /**
+     * <p> Stops the writer threads once the inserts still running are done </p>
+     */
+    @Override
+    public void close() {
+        if (writerPool == null) {
+            return;
+        }
+        writerPool.shutdown();
+        try {
+            if (!writerPool.awaitTermination(WRITER_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                LOG.warn("Jdbc writers did not finish within {} minutes", WRITER_TIMEOUT_MINUTES);
+                writerPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted waiting for the jdbc writers to finish");
+            writerPool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the rows of every writer, by hash of their source domain
+     */
+    private int[][] partition(int rows, IntFunction<String> sourceDomain) {
+        int[] partitionOfRow = new int[rows];
+        int[] sizes = new int[writers];
+        for (int row = 0; row < rows; row++) {
+            String domain = sourceDomain.apply(row);
+            int partition = domain == null ? 0 : Math.floorMod(domain.hashCode(), writers);
+            partitionOfRow[row] = partition;
+            sizes[partition]++;
+        }
+
+        int[][] partitions = new int[writers][];
+        for (int partition = 0; partition < writers; partition++) {
+            partitions[partition] = new int[sizes[partition]];
+        }
+        int[] filled = new int[writers];
+        for (int row = 0; row < rows; row++) {
+            int partition = partitionOfRow[row];
+            partitions[partition][filled[partition]++] = row;
+        }
+        return partitions;
+    }
+
+    /**
+     * <p>
+     * Inserts the rows with one prepared statement, sent in jdbc batches of batchsize rows and committed every
+     * batchespercommit batches. When a batch or commit fails the uncommitted rows are rolled back and inserted
+     * again one by one, so only the rows the database rejects are lost and the insert goes on with the next batch.
+     * </p>
+     *
+     * @return the number of rows not inserted
+     */
+    private int insertRows(String sql, int rows, RowBinder binder) {
+        if (rows == 0) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        int failed = 0;
+        int committedRows = 0;
+        try (Connection connection = sql2o.beginTransaction()) {
+            // Failed batches are rolled back here, sql2o would roll back and close the connection
+            connection.setRollbackOnException(false);
+            Query query = connection.createQuery(sql);
+            try {
+                Set<String> parameters = query.getParamNameToIdxMap().keySet();
+                int batches = 0;
+                for (int row = 0; row < rows; row++) {
+                    binder.bind(query, parameters, row);
+                    query.addToBatch();
+                    boolean lastRow = row == rows - 1;
+                    if ((row + 1) % batchSize != 0 && !lastRow) {
+                        continue;
+                    }
+                    try {
+                        query.executeBatch();
+                        if (++batches % batchesPerCommit == 0 || lastRow) {
+                            connection.commit(false);
+                            committedRows = row + 1;
+                        }
+                    } catch (Sql2oException e) {
+                        LOG.warn("Batch insert of rows {} to {} failed, inserting them one by one: {}",
+                                new Object[]{committedRows, row, e.getMessage()});
+                        connection.rollback(false);
+                        query.close();
+                        failed += insertOneByOne(connection, sql, committedRows, row + 1, binder);
+                        committedRows = row + 1;
+                        query = connection.createQuery(sql);
+                    }
+                }
+            } finally {
+                query.close();
             }
         } catch (Exception e) {
             LOG.error("Data insertion failed! {}", e);
+            // Only the committed rows are kept
+            return rows - (committedRows - failed);
         }
-        LOG.debug("Total number of valid AdsTxtRecords inserted into the DB: {}", adsTxtRecords.size());
+        long millis = Math.max(1, System.currentTimeMillis() - start);
+        LOG.info("Inserted {} rows into the DB in {} ms ({} rows/s), {} rows failed",
+                new Object[]{rows - failed, millis, (rows - failed) * 1000L / millis, failed});
+        return failed;
+    }
+
+    /**
+     * @return the number of rows the database rejected
+     */
+    private int insertOneByOne(Connection connection, String sql, int fromRow, int toRow, RowBinder binder) {
+        int failed = 0;
+        try (Query query = connection.createQuery(sql)) {
+            Set<String> parameters = query.getParamNameToIdxMap().keySet();
+            for (int row = fromRow; row < toRow; row++) {
+                binder.bind(query, parameters, row);
+                try {
+                    query.executeUpdate();
+                    connection.commit(false);
+                } catch (Sql2oException e) {
+                    LOG.warn("Skipping row {}: {}", row, e.getMessage());
+                    connection.rollback(false);
+                    failed++;
+                }
+            }
+        }
+        return failed;
     }
 
     @Override
     public Set<String> getAdsTxtUrls() {
-        List<String> results;
-        try (Connection connection = sql2o.open()) {
-            results = connection.createQuery(buildQuery())
-                    .executeAndFetch(String.class);
+        Set<String> urls;
+        try (Stream<CrawlTarget> crawlTargets = streamCrawlTargets()) {
+            urls = crawlTargets.map(CrawlTarget::getDomain).collect(Collectors.toSet());
+        }
+        LOG.debug("Got {} rows from the database.", urls.size());
+        return urls;
+    }
+
+    /**
+     * <p>
+     * The crawl priority is read from the second column of the query if it has one
+     * (SELECT url, priority FROM adstxt_urls), the default priority is used otherwise.
+     * </p>
+     */
+    @Override
+    public List<CrawlTarget> getCrawlTargets() {
+        List<CrawlTarget> crawlTargets;
+        try (Stream<CrawlTarget> stream = streamCrawlTargets()) {
+            crawlTargets = stream.collect(Collectors.toList());
+        }
+        LOG.debug("Got {} rows from the database.", crawlTargets.size());
+        return crawlTargets;
+    }
+
+    /**
+     * <p>
+     * Reads the query through a cursor, fetching jdbc.&lt;type&gt;.fetchsize rows at a time. Drivers like
+     * PostgreSQL's only keep the cursor on the server outside autocommit mode, so the rows are read in a
+     * transaction that ends when the stream is closed.
+     * </p>
+     */
+    @Override
+    public Stream<CrawlTarget> streamCrawlTargets() {
+        Connection connection = sql2o.beginTransaction();
+        try {
+            PreparedStatement statement = connection.getJdbcConnection().prepareStatement(buildQuery(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            ResultSet resultSet = statement.executeQuery();
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new CrawlTargetIterator(resultSet),
+                    Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(() -> {
+                        try {
+                            statement.close();
+                        } catch (SQLException e) {
+                            LOG.warn("Error closing cursor: {}", e.getMessage());
+                        }
+                        connection.close();
+                    });
+        } catch (SQLException e) {
+            connection.close();
+            throw new Sql2oException("Error reading crawl targets: " + e.getMessage(), e);
+        }
+    }
+
+    protected Sql2o getSql2o() {
+        return sql2o;
+    }
+
+    private static class CrawlTargetIterator implements Iterator<CrawlTarget> {
+        private final ResultSet resultSet;
+        private final boolean weighted;
+        private CrawlTarget next;
+
+        CrawlTargetIterator(ResultSet resultSet) throws SQLException {
+            this.resultSet = resultSet;
+            this.weighted = resultSet.getMetaData().getColumnCount() > 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    if (resultSet.next()) {
+                        int priority = CrawlTarget.DEFAULT_PRIORITY;
+                        if (weighted) {
+                            priority = resultSet.getInt(2);
+                            // wasNull refers to the column read last
+                            if (resultSet.wasNull()) {
+                                priority = CrawlTarget.DEFAULT_PRIORITY;
+                            }
+                        }
+                        next = new CrawlTarget(resultSet.getString(1), priority);
+                    }
+                } catch (SQLException e) {
+                    throw new Sql2oException("Error reading crawl targets: " + e.getMessage(), e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public CrawlTarget next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            CrawlTarget crawlTarget = next;
+            next = null;
+            return crawlTarget;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowBinder {
+        void bind(Query query, Set<String> parameters, int row);
+    }
+
+    // The insert query is configurable and may not use every field
+    private static void bindIfPresent(Query query, Set<String> parameters, String name, Object value) {
+        if (parameters.contains(name)) {
+            query.addParameter(name, value);
         }
-        LOG.debug("Got {} rows from the database.", results.size());
-        return new HashSet<>(results);
     }
 
     private String buildQuery() {
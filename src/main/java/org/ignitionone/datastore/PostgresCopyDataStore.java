@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.datastore;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtRecordBatch;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.postgresql.core.BaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sql2o.Connection;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * <p>
+ * PostgreSQL store that writes records with COPY ... FROM STDIN instead of INSERT statements. Records are
+ * streamed through the driver's CopyManager in the COPY text format (see {@link PostgresCopySerializer}) as they
+ * are serialized, reads and connection settings are those of the jdbc.&lt;type&gt;. store it extends.
+ * </p>
+ * <p>
+ * With jdbc.&lt;type&gt;.copy.stagingtable set the records are copied into a temporary table of that name,
+ * dropped at commit, and moved to the table by jdbc.&lt;type&gt;.copy.mergequery in the same transaction, which
+ * is where duplicates can be skipped. COPY either loads every row or none, a failed COPY falls back to the
+ * batched inserts of {@link JDBCDataStore} which only lose the rows the database rejects.
+ * </p>
+ */
+public class PostgresCopyDataStore extends JDBCDataStore {
+    private static final Logger LOG = LoggerFactory.getLogger(PostgresCopyDataStore.class);
+    public static final String DEFAULT_COLUMNS =
+            "insert_date, source_domain, adserving_domain, publisher_acc_id, acc_type, cert_auth_id";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String table;
+    private final String stagingTable;
+    private final String copyQuery;
+    private final String mergeQuery;
+
+    public PostgresCopyDataStore(Properties config, String jdbcType) {
+        super(config, jdbcType);
+        String prefix = "jdbc." + jdbcType + ".copy.";
+
+        this.table = config.getProperty(prefix + "table", "adstxt_results");
+        String columns = config.getProperty(prefix + "columns", DEFAULT_COLUMNS);
+        this.stagingTable = config.getProperty(prefix + "stagingtable", "");
+        this.copyQuery = "COPY " + (stagingTable.isEmpty() ? table : stagingTable) + " (" + columns + ") FROM STDIN";
+        String defaultMergeQuery = "INSERT INTO " + table + " (" + columns + ") SELECT " + columns + " FROM "
+                + stagingTable;
+        this.mergeQuery = config.getProperty(prefix + "mergequery", "").isEmpty() ? defaultMergeQuery
+                : config.getProperty(prefix + "mergequery");
+        LOG.debug("Initialized {} COPY store: {}", jdbcType, copyQuery);
+    }
+
+    @Override
+    public void insertAdsTxtRecords(List<AdsTxtRecord> adsTxtRecords) {
+        boolean copied = copy(adsTxtRecords.size(), (serializer, writer) -> {
+            for (AdsTxtRecord adsTxtRecord : adsTxtRecords) {
+                serializer.write(writer, adsTxtRecord);
+            }
+        });
+        if (!copied) {
+            super.insertAdsTxtRecords(adsTxtRecords);
+        }
+    }
+
+    @Override
+    public void insertAdsTxtRecordBatch(AdsTxtRecordBatch batch) {
+        if (!copy(batch.size(), (serializer, writer) -> serializer.write(writer, batch))) {
+            super.insertAdsTxtRecordBatch(batch);
+        }
+    }
+
+    /**
+     * @return false if nothing was written because the COPY or the merge failed
+     */
+    private boolean copy(int rows, RowWriter rowWriter) {
+        if (rows == 0) {
+            return true;
+        }
+        long start = System.currentTimeMillis();
+        long copied;
+        try (Connection connection = getSql2o().beginTransaction()) {
+            if (!stagingTable.isEmpty()) {
+                connection.createQuery("CREATE TEMPORARY TABLE " + stagingTable + " (LIKE " + table
+                        + " INCLUDING DEFAULTS) ON COMMIT DROP").executeUpdate();
+            }
+
+            CopyIn copyIn = openCopy(connection.getJdbcConnection(), copyQuery);
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(new PGCopyOutputStream(copyIn),
+                        StandardCharsets.UTF_8), BUFFER_SIZE);
+                rowWriter.write(new PostgresCopySerializer(), writer);
+                writer.flush();
+                copied = copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+
+            if (!stagingTable.isEmpty()) {
+                int merged = connection.createQuery(mergeQuery).executeUpdate().getResult();
+                LOG.debug("Merged {} of {} staged rows into {}", new Object[]{merged, copied, table});
+            }
+            connection.commit(false);
+        } catch (Exception e) {
+            LOG.warn("COPY of {} rows failed, inserting them instead: {}", rows, e.getMessage());
+            return false;
+        }
+        long millis = Math.max(1, System.currentTimeMillis() - start);
+        LOG.info("Copied {} rows into the DB in {} ms ({} rows/s)",
+                new Object[]{copied, millis, copied * 1000 / millis});
+        return true;
+    }
+
+    /**
+     * <p>
+     * Starts the COPY on the driver's own connection. Drivers before 9.4 do not implement unwrap, pooled
+     * connections hand out the connection they wrap themselves.
+     * </p>
+     */
+    private CopyIn openCopy(java.sql.Connection jdbcConnection, String sql) throws SQLException {
+        BaseConnection baseConnection = jdbcConnection instanceof BaseConnection
+                ? (BaseConnection) jdbcConnection : jdbcConnection.unwrap(BaseConnection.class);
+        return new CopyManager(baseConnection).copyIn(sql);
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(PostgresCopySerializer serializer, Writer writer) throws IOException;
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.datastore;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtRecordBatch;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * <p>
+ * Writes records as rows of the PostgreSQL COPY text format, in the column order of
+ * {@link PostgresCopyDataStore#DEFAULT_COLUMNS}: values are tab separated, null values are written as \N and
+ * backslashes, tabs and line breaks within values are escaped with a backslash.
+ * </p>
+ * <p>
+ * The insert date is written in the default time zone with its offset, so timestamp columns get the same
+ * value as with the jdbc inserts and timestamptz columns the exact instant. Lines are built in a reused buffer
+ * and the insert date is formatted once for as long as the records share it.
+ * </p>
+ * <p>
+ * Not thread safe, every writer thread needs its own serializer.
+ * </p>
+ */
+public class PostgresCopySerializer {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss.SSSZZ");
+    private static final char SEPARATOR = '\t';
+    private static final String NULL = "\\N";
+
+    private final DateTimeFormatter dateFormatter = DATE_FORMATTER.withZone(DateTimeZone.getDefault());
+    private final StringBuilder buffer = new StringBuilder(128);
+    private char[] chars = new char[128];
+
+    // Insert date formatted last
+    private long lastMillis;
+    private String lastInsertDate;
+
+    public void write(Writer writer, AdsTxtRecord adsTxtRecord) throws IOException {
+        writeLine(writer, adsTxtRecord.getInsertDate(), adsTxtRecord.getSourceDomain(),
+                adsTxtRecord.getAdServingDomain(), adsTxtRecord.getPublisherAccId(), adsTxtRecord.getAccType(),
+                adsTxtRecord.getCertAuthId());
+    }
+
+    /**
+     * <p> Writes all rows of the batch </p>
+     */
+    public void write(Writer writer, AdsTxtRecordBatch batch) throws IOException {
+        for (int row = 0; row < batch.size(); row++) {
+            writeLine(writer, batch.getInsertDate(row), batch.getSourceDomain(row), batch.getAdServingDomain(row),
+                    batch.getPublisherAccId(row), batch.getAccType(row), batch.getCertAuthId(row));
+        }
+    }
+
+    public void writeLine(Writer writer, DateTime insertDate, String sourceDomain, String adServingDomain,
+                          String publisherAccId, String accType, String certAuthId) throws IOException {
+        buffer.setLength(0);
+        buffer.append(insertDate != null ? formatInsertDate(insertDate) : NULL);
+        buffer.append(SEPARATOR);
+        appendValue(sourceDomain);
+        buffer.append(SEPARATOR);
+        appendValue(adServingDomain);
+        buffer.append(SEPARATOR);
+        appendValue(publisherAccId);
+        buffer.append(SEPARATOR);
+        appendValue(accType);
+        buffer.append(SEPARATOR);
+        appendValue(certAuthId);
+        buffer.append('\n');
+
+        int length = buffer.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        buffer.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+    }
+
+    private String formatInsertDate(DateTime insertDate) {
+        if (lastInsertDate == null || lastMillis != insertDate.getMillis()) {
+            lastMillis = insertDate.getMillis();
+            lastInsertDate = dateFormatter.print(lastMillis);
+        }
+        return lastInsertDate;
+    }
+
+    private void appendValue(String value) {
+        if (value == null) {
+            buffer.append(NULL);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    buffer.append("\\\\");
+                    break;
+                case '\t':
+                    buffer.append("\\t");
+                    break;
+                case '\n':
+                    buffer.append("\\n");
+                    break;
+                case '\r':
+                    buffer.append("\\r");
+                    break;
+                default:
+                    buffer.append(c);
+            }
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.ignitionone.configuration.ConfigBuilder;
 import org.ignitionone.datastore.ConsoleDataStore;
 import org.ignitionone.datastore.FileDataStore;
 import org.ignitionone.datastore.JDBCDataStore;
+import org.ignitionone.datastore.PostgresCopyDataStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +40,8 @@ public class DataStoreFactory {
         switch (dataStoreType) {
             case POSTGRES:
                 return new JDBCDataStore(config, "postgres");
+            case POSTGRES_COPY:
+                return new PostgresCopyDataStore(config, "postgres");
             case FILE:
                 return new FileDataStore(config);
             case CONSOLE:
@@ -23,6 +23,7 @@ package org.ignitionone.datastore.core;
 
 public enum DataStoreType {
     POSTGRES,
+    POSTGRES_COPY,
     FILE,
     CONSOLE;
 
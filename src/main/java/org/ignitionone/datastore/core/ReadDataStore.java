@@ -21,11 +21,35 @@
  */
 package org.ignitionone.datastore.core;
 
+import org.ignitionone.model.CrawlTarget;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * This method lets you read urls/domains from a source.
  */
 public interface ReadDataStore {
     Set<String> getAdsTxtUrls();
+
+    /**
+     * Reads the urls/domains with their crawl priority. Stores which hold a priority override this, the others
+     * give every url the default priority.
+     */
+    default List<CrawlTarget> getCrawlTargets() {
+        List<CrawlTarget> crawlTargets = new ArrayList<>();
+        getAdsTxtUrls().forEach(url -> crawlTargets.add(new CrawlTarget(url)));
+        return crawlTargets;
+    }
+
+    /**
+     * Streams the urls/domains with their crawl priority as they are read, so a large table or file is never held
+     * in memory as a whole. The stream holds the store's resources and must be closed. Stores which can read
+     * incrementally override this, the others stream {@link #getCrawlTargets()}.
+     */
+    default Stream<CrawlTarget> streamCrawlTargets() {
+        return getCrawlTargets().stream();
+    }
 }
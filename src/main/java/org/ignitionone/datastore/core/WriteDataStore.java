@@ -22,6 +22,7 @@
 package org.ignitionone.datastore.core;
 
 import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtRecordBatch;
 
 import java.util.List;
 
@@ -30,4 +31,40 @@ import java.util.List;
  */
 public interface WriteDataStore {
     void insertAdsTxtRecords(List<AdsTxtRecord> adsTxtRecords);
+
+    /**
+     * Writes a columnar batch. Stores which read the columns directly override this, the others get the batch
+     * as a list of records.
+     */
+    default void insertAdsTxtRecordBatch(AdsTxtRecordBatch batch) {
+        insertAdsTxtRecords(batch.asList());
+    }
+
+    /**
+     * Writes records of the lines removed from ads.txt files since the last crawl, if delta writes keep them
+     * (delta.tombstones). Stores which keep a history of the lines override this, the others ignore them.
+     */
+    default void insertRemovedAdsTxtRecords(List<AdsTxtRecord> removedRecords) {
+    }
+
+    /**
+     * Called before the first insert when an interrupted crawl is resumed and its records were already partly
+     * written to this store. Stores which replace their data on the first insert of a crawl must keep it.
+     */
+    default void resume() {
+    }
+
+    /**
+     * @return true if records handed to this store were not written, stores which only log failed writes
+     * override this
+     */
+    default boolean hasFailedWrites() {
+        return false;
+    }
+
+    /**
+     * Called once all records of a crawl are written. Stores which write from their own threads stop them here.
+     */
+    default void close() {
+    }
 }
@@ -0,0 +1,188 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.http;
+
+import org.ignitionone.http.core.AdaptiveConcurrencyLimiter;
+import org.ignitionone.http.core.AdaptiveConcurrencyLimiter.Outcome;
+import org.ignitionone.http.core.BodyReader;
+import org.ignitionone.http.core.HttpEngine;
+import org.ignitionone.http.core.PolitenessScheduler;
+import org.ignitionone.model.HttpRequest;
+import org.ignitionone.model.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Http engine using only the JDK's {@link HttpURLConnection} on a pool of daemon threads, one blocking
+ * request per thread. It starts instantly and has no akka/netty footprint, which makes it the cheaper choice
+ * for small crawls. Redirects are not followed, same as parallec; http and https are both supported.
+ * </p>
+ * <p>
+ * Requests are taken from the {@link PolitenessScheduler} as soon as their host group has a free slot and
+ * started once the {@link AdaptiveConcurrencyLimiter} grants a permit, so the number of in-flight requests
+ * follows the adaptive limit. The pool is sized to the limiter's ceiling.
+ * </p>
+ * <p>
+ * Bodies are streamed through a {@link BodyReader}: a body that does not look like an ads.txt file after the
+ * first few KB or exceeds the size cap is aborted and handed over without content.
+ * </p>
+ * <p>
+ * jdk.http.connecttimeout.ms / jdk.http.readtimeout.ms - socket timeouts
+ * </p>
+ */
+public class JdkHttpEngine implements HttpEngine {
+    private static final Logger LOG = LoggerFactory.getLogger(JdkHttpEngine.class);
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final BodyReader bodyReader;
+    private final int connectTimeout;
+    private final int readTimeout;
+
+    public JdkHttpEngine(Properties config, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.bodyReader = new BodyReader(config);
+        this.connectTimeout = Integer.parseInt(config.getProperty("jdk.http.connecttimeout.ms", "10000"));
+        this.readTimeout = Integer.parseInt(config.getProperty("jdk.http.readtimeout.ms", "10000"));
+    }
+
+    @Override
+    public void execute(PolitenessScheduler scheduler, Consumer<HttpResponse> responseConsumer) {
+        LOG.info("Starting {} http requests with concurrency limit {}..", scheduler.getQueuedCount(),
+                concurrencyLimiter.getLimit());
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrencyLimiter.getMaxLimit(), runnable -> {
+            Thread thread = new Thread(runnable, "jdk-http-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            HttpRequest next;
+            while ((next = scheduler.take()) != null) {
+                HttpRequest httpRequest = next;
+                concurrencyLimiter.acquire();
+                executor.execute(() -> {
+                    try {
+                        responseConsumer.accept(fetch(httpRequest));
+                    } finally {
+                        scheduler.complete(httpRequest);
+                    }
+                    long done = scheduler.getCompletedCount();
+                    if (done % 1000 == 0) {
+                        LOG.debug("Completed {} http requests, {} queued, concurrency limit {}", new Object[]{
+                                done, scheduler.getQueuedCount(), concurrencyLimiter.getLimit()});
+                    }
+                });
+            }
+
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.debug("Completed {} http requests", scheduler.getCompletedCount());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted waiting for http requests to complete", e);
+            executor.shutdownNow();
+        }
+    }
+
+    private HttpResponse fetch(HttpRequest httpRequest) {
+        HttpURLConnection connection = null;
+        Outcome outcome = Outcome.IGNORE;
+        long start = System.currentTimeMillis();
+        try {
+            URL url = new URL(httpRequest.getScheme(), httpRequest.getHost(), httpRequest.getPort(),
+                    httpRequest.getPath());
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setInstanceFollowRedirects(false);
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            httpRequest.getHeaders().forEach(connection::setRequestProperty);
+
+            int responseCode = connection.getResponseCode();
+            HttpResponse httpResponse = new HttpResponse()
+                    .setResponseCode(responseCode)
+                    .setResponseContent(readBody(connection, responseCode))
+                    .setDomainName(httpRequest.getDomainName())
+                    .setHttpRequest(httpRequest)
+                    .setEtag(connection.getHeaderField("ETag"))
+                    .setLastModified(connection.getHeaderField("Last-Modified"))
+                    .setLocation(connection.getHeaderField("Location"))
+                    .setRetryAfter(connection.getHeaderField("Retry-After"));
+            outcome = Outcome.SUCCESS;
+            return httpResponse;
+        } catch (Exception e) {
+            LOG.debug("Request to {} failed: {}", httpRequest.getUrl(), e.toString());
+            outcome = classify(e);
+            return new HttpResponse()
+                    .setDomainName(httpRequest.getDomainName())
+                    .setHttpRequest(httpRequest)
+                    .setError(e.toString());
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            concurrencyLimiter.release(outcome, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * <p> Timeouts and connection errors signal overload, anything else (unknown host etc.) does not </p>
+     */
+    private static Outcome classify(Exception e) {
+        // ConnectException, NoRouteToHostException and connection resets are all SocketExceptions
+        if (e instanceof SocketTimeoutException || e instanceof SocketException) {
+            return Outcome.OVERLOAD;
+        }
+        return Outcome.IGNORE;
+    }
+
+    /**
+     * <p> Only 200 bodies can hold an ads.txt file, others are not read at all </p>
+     */
+    private String readBody(HttpURLConnection connection, int responseCode) throws IOException {
+        if (responseCode != 200) {
+            return null;
+        }
+        try (InputStream inputStream = connection.getInputStream()) {
+            BodyReader.Body body = bodyReader.read(inputStream, connection.getContentType());
+            if (!body.isAccepted()) {
+                LOG.debug("Dropped body of {}: {}", connection.getURL(), body.getRejectReason());
+            }
+            return body.getContent();
+        }
+    }
+}
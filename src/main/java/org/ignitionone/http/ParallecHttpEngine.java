@@ -0,0 +1,385 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.http;
+
+import io.parallec.core.ParallecHeader;
+import io.parallec.core.ParallecResponseHandler;
+import io.parallec.core.ParallelClient;
+import io.parallec.core.ParallelTask;
+import io.parallec.core.ParallelTaskBuilder;
+import io.parallec.core.RequestProtocol;
+import io.parallec.core.ResponseHeaderMeta;
+import io.parallec.core.ResponseOnSingleTask;
+import io.parallec.core.bean.StrStrMap;
+import org.ignitionone.http.core.AdaptiveConcurrencyLimiter;
+import org.ignitionone.http.core.AdaptiveConcurrencyLimiter.Outcome;
+import org.ignitionone.http.core.BodyReader;
+import org.ignitionone.http.core.HttpEngine;
+import org.ignitionone.http.core.PolitenessScheduler;
+import org.ignitionone.model.HttpRequest;
+import org.ignitionone.model.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Http engine on top of parallec's {@link ParallelClient} (akka + async http client).
+ * </p>
+ * <p>
+ * Parallec fixes the concurrency of a task when it starts, so requests are not handed to one big task. Each
+ * request takes a permit of the {@link AdaptiveConcurrencyLimiter}, and the requests that become ready within a
+ * short linger are started together in a new task while the earlier tasks are still running. Tasks run
+ * asynchronously, a single monitor thread completes the requests of finished tasks that got no response.
+ * </p>
+ * <p>
+ * Every request is completed on the {@link PolitenessScheduler} as soon as its response is handled, which
+ * frees the slot of its host group for the next request of the group. The per group limits therefore hold
+ * across all in-flight requests, a slow host only holds back its own group.
+ * </p>
+ * <p>
+ * Parallec only hands over complete bodies, so the {@link BodyReader} checks (sniffing, size cap) are
+ * applied after the download; they still keep junk bodies out of the rest of the crawl.
+ * </p>
+ */
+public class ParallecHttpEngine implements HttpEngine {
+    private static final Logger LOG = LoggerFactory.getLogger(ParallecHttpEngine.class);
+    private static final String HTTPS = "https";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last-modified";
+    private static final String LOCATION = "location";
+    private static final String CONTENT_TYPE = "content-type";
+    private static final String RETRY_AFTER = "retry-after";
+    private static final long BATCH_LINGER_MILLIS = 100L;
+    private static final long BATCH_POLL_MILLIS = 10L;
+    private static final long POLL_MILLIS = 100L;
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final BodyReader bodyReader;
+
+    public ParallecHttpEngine(Properties config, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.bodyReader = new BodyReader(config);
+    }
+
+    @Override
+    public void execute(PolitenessScheduler scheduler, Consumer<HttpResponse> responseConsumer) {
+        LOG.info("Starting {} parallel http requests with concurrency limit {}..", scheduler.getQueuedCount(),
+                concurrencyLimiter.getLimit());
+        ParallelClient parallelClient = new ParallelClient();
+        Queue<RunningTask> runningTasks = new ConcurrentLinkedQueue<>();
+        ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "parallec-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitor.scheduleWithFixedDelay(() -> completeFinishedTasks(parallelClient, scheduler, runningTasks),
+                POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+        try {
+            HttpRequest next;
+            while ((next = scheduler.take()) != null) {
+                concurrencyLimiter.acquire();
+                List<HttpRequest> httpRequests = new ArrayList<>();
+                httpRequests.add(next);
+                collectBatch(scheduler, httpRequests);
+                toTasks(httpRequests).forEach(requestsByHost -> runningTasks.add(
+                        startTask(parallelClient, scheduler, requestsByHost, responseConsumer)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted waiting for http requests", e);
+        } finally {
+            monitor.shutdownNow();
+        }
+        parallelClient.releaseExternalResources();
+    }
+
+    /**
+     * <p>
+     * Adds the requests which may start within {@link #BATCH_LINGER_MILLIS}, each with a permit, so tasks are
+     * started for batches of requests rather than for every freed permit. Stops early once no permit is left or
+     * nothing else can become ready.
+     * </p>
+     */
+    private void collectBatch(PolitenessScheduler scheduler, List<HttpRequest> httpRequests)
+            throws InterruptedException {
+        long lingerUntil = System.currentTimeMillis() + BATCH_LINGER_MILLIS;
+        while (true) {
+            List<HttpRequest> ready = scheduler.drain(freePermits());
+            for (int i = 0; i < ready.size(); i++) {
+                concurrencyLimiter.acquire();
+            }
+            httpRequests.addAll(ready);
+            if (freePermits() == 0 || System.currentTimeMillis() >= lingerUntil
+                    || scheduler.getQueuedCount() + scheduler.getDelayedCount() == 0) {
+                return;
+            }
+            Thread.sleep(BATCH_POLL_MILLIS);
+        }
+    }
+
+    private int freePermits() {
+        return Math.max(0, concurrencyLimiter.getLimit() - concurrencyLimiter.getInFlight());
+    }
+
+    /**
+     * <p>
+     * Runs on the monitor thread: requests of finished tasks that parallec completed without a response are
+     * completed on the scheduler, the others were completed when their response was handled.
+     * </p>
+     */
+    private void completeFinishedTasks(ParallelClient parallelClient, PolitenessScheduler scheduler,
+                                       Queue<RunningTask> runningTasks) {
+        try {
+            for (Iterator<RunningTask> iterator = runningTasks.iterator(); iterator.hasNext(); ) {
+                RunningTask runningTask = iterator.next();
+                if (runningTask.task.isCompleted()) {
+                    iterator.remove();
+                    runningTask.completePending(scheduler);
+                }
+            }
+            LOG.debug("{} parallec tasks running, completed {} http requests", runningTasks.size(),
+                    scheduler.getCompletedCount());
+            parallelClient.logHealth();
+        } catch (RuntimeException e) {
+            LOG.error("Error occurred checking parallec tasks", e);
+        }
+    }
+
+    /**
+     * <p>
+     * Parallec uses one protocol, port, path and set of headers per task and identifies responses by host, so
+     * requests are split into tasks by url without the host and by the names of their headers, each host at most
+     * once per task.
+     * </p>
+     *
+     * @param httpRequests
+     * @return requests by host, one map per task
+     */
+    private static List<Map<String, HttpRequest>> toTasks(List<HttpRequest> httpRequests) {
+        Map<String, List<Map<String, HttpRequest>>> tasksByUrl = new LinkedHashMap<>();
+        for (HttpRequest httpRequest : httpRequests) {
+            List<Map<String, HttpRequest>> tasks = tasksByUrl.computeIfAbsent(
+                    httpRequest.getScheme() + ":" + httpRequest.getPort() + httpRequest.getPath() + " "
+                            + new TreeSet<>(httpRequest.getHeaders().keySet()),
+                    url -> new ArrayList<>());
+            Map<String, HttpRequest> task = tasks.stream()
+                    .filter(requestsByHost -> !requestsByHost.containsKey(httpRequest.getHost()))
+                    .findFirst()
+                    .orElseGet(() -> {
+                        Map<String, HttpRequest> requestsByHost = new LinkedHashMap<>();
+                        tasks.add(requestsByHost);
+                        return requestsByHost;
+                    });
+            task.put(httpRequest.getHost(), httpRequest);
+        }
+        List<Map<String, HttpRequest>> tasks = new ArrayList<>();
+        tasksByUrl.values().forEach(tasks::addAll);
+        return tasks;
+    }
+
+    /**
+     * <p> Starts one parallec task without waiting for it, every request of the task already holds a permit </p>
+     */
+    private RunningTask startTask(ParallelClient parallelClient, PolitenessScheduler scheduler,
+                                  Map<String, HttpRequest> requestsByHost, Consumer<HttpResponse> responseConsumer) {
+        HttpRequest first = requestsByHost.values().iterator().next();
+        int concurrency = requestsByHost.size();
+        LOG.debug("Starting parallec task of {} requests", concurrency);
+        ParallelTaskBuilder taskBuilder = parallelClient.prepareHttpGet(first.getPath())
+                .async()
+                .handleInWorker()
+                .setProtocol(HTTPS.equals(first.getScheme()) ? RequestProtocol.HTTPS : RequestProtocol.HTTP)
+                .setHttpPort(first.getPort())
+                .setConcurrency(concurrency)
+                .setTargetHostsFromList(new ArrayList<>(requestsByHost.keySet()))
+                .saveResponseHeaders(new ResponseHeaderMeta(Arrays.asList(ETAG, LAST_MODIFIED, LOCATION,
+                        CONTENT_TYPE, RETRY_AFTER), false));
+        addHeaders(taskBuilder, requestsByHost.values());
+
+        Set<String> pendingHosts = ConcurrentHashMap.newKeySet();
+        pendingHosts.addAll(requestsByHost.keySet());
+        // The concurrency of the task is its size, so all of its requests start right away
+        long start = System.currentTimeMillis();
+        ParallelTask task = taskBuilder.execute(new AdsTxtResponseHandler(responseConsumer, scheduler,
+                requestsByHost, pendingHosts, start));
+        return new RunningTask(task, requestsByHost, pendingHosts, start);
+    }
+
+    /**
+     * <p>
+     * Parallec sends the same headers to every host, so per request header values are passed as per host
+     * variables. All requests of a task have the same header names (see {@link #toTasks}), so every host sends
+     * a value of its own for each header.
+     * </p>
+     *
+     * @param taskBuilder
+     * @param httpRequests
+     */
+    private void addHeaders(ParallelTaskBuilder taskBuilder, Collection<HttpRequest> httpRequests) {
+        Set<String> headerNames = httpRequests.iterator().next().getHeaders().keySet();
+        if (headerNames.isEmpty()) {
+            return;
+        }
+
+        ParallecHeader parallecHeader = new ParallecHeader();
+        headerNames.forEach(headerName -> parallecHeader.addPair(headerName, toVariable(headerName)));
+
+        Map<String, StrStrMap> headerValuesByHost = new HashMap<>();
+        for (HttpRequest httpRequest : httpRequests) {
+            StrStrMap headerValues = new StrStrMap();
+            headerNames.forEach(headerName -> headerValues.addPair(toVariable(headerName),
+                    httpRequest.getHeaders().get(headerName)));
+            headerValuesByHost.put(httpRequest.getHost(), headerValues);
+        }
+
+        taskBuilder.setHttpHeaders(parallecHeader)
+                .setReplacementVarMapNodeSpecific(headerValuesByHost);
+    }
+
+    private static String toVariable(String headerName) {
+        return "$" + headerName.toUpperCase().replace('-', '_');
+    }
+
+    /**
+     * <p> Parallec only reports errors as messages. Unknown hosts say nothing about load, the rest
+     * (timeouts, refused or reset connections) are treated as overload. </p>
+     */
+    private static Outcome classify(String errorMessage) {
+        if (errorMessage != null && errorMessage.contains("UnknownHost")) {
+            return Outcome.IGNORE;
+        }
+        return Outcome.OVERLOAD;
+    }
+
+    /**
+     * <p> Only 200 bodies can hold an ads.txt file, others are dropped </p>
+     */
+    private String checkBody(ResponseOnSingleTask response) {
+        if (response.getStatusCodeInt() != 200 || response.getResponseContent() == null) {
+            return null;
+        }
+        BodyReader.Body body = bodyReader.check(response.getResponseContent(), getHeader(response, CONTENT_TYPE));
+        if (!body.isAccepted()) {
+            LOG.debug("Dropped body of {}: {}", response.getHost(), body.getRejectReason());
+        }
+        return body.getContent();
+    }
+
+    private static String getHeader(ResponseOnSingleTask response, String name) {
+        Map<String, List<String>> headers = response.getResponseHeaders();
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    private class RunningTask {
+
+        private final ParallelTask task;
+        private final Map<String, HttpRequest> requestsByHost;
+        private final Set<String> pendingHosts;
+        private final long start;
+
+        public RunningTask(ParallelTask task, Map<String, HttpRequest> requestsByHost, Set<String> pendingHosts,
+                           long start) {
+            this.task = task;
+            this.requestsByHost = requestsByHost;
+            this.pendingHosts = pendingHosts;
+            this.start = start;
+        }
+
+        private void completePending(PolitenessScheduler scheduler) {
+            for (String host : pendingHosts) {
+                if (pendingHosts.remove(host)) {
+                    concurrencyLimiter.release(Outcome.IGNORE, System.currentTimeMillis() - start);
+                    scheduler.complete(requestsByHost.get(host));
+                }
+            }
+        }
+    }
+
+    private class AdsTxtResponseHandler implements ParallecResponseHandler {
+
+        private final Consumer<HttpResponse> responseConsumer;
+        private final PolitenessScheduler scheduler;
+        private final Map<String, HttpRequest> requestsByHost;
+        private final Set<String> pendingHosts;
+        private final long start;
+
+        public AdsTxtResponseHandler(Consumer<HttpResponse> responseConsumer, PolitenessScheduler scheduler,
+                                     Map<String, HttpRequest> requestsByHost, Set<String> pendingHosts,
+                                     long start) {
+            this.responseConsumer = responseConsumer;
+            this.scheduler = scheduler;
+            this.requestsByHost = requestsByHost;
+            this.pendingHosts = pendingHosts;
+            this.start = start;
+        }
+
+        @Override
+        public void onCompleted(ResponseOnSingleTask response, Map<String, Object> responseContext) {
+            if (!pendingHosts.remove(response.getHost())) {
+                return;
+            }
+            HttpRequest httpRequest = requestsByHost.get(response.getHost());
+            try {
+                responseConsumer.accept(toHttpResponse(httpRequest, response));
+            } finally {
+                scheduler.complete(httpRequest);
+            }
+        }
+
+        private HttpResponse toHttpResponse(HttpRequest httpRequest, ResponseOnSingleTask response) {
+            long latency = System.currentTimeMillis() - start;
+            HttpResponse httpResponse = new HttpResponse()
+                    .setDomainName(httpRequest.getDomainName())
+                    .setHttpRequest(httpRequest);
+            if (response.isError()) {
+                LOG.debug("Request to {} failed: {}", httpRequest.getUrl(), response.getErrorMessage());
+                concurrencyLimiter.release(classify(response.getErrorMessage()), latency);
+                return httpResponse.setError(String.valueOf(response.getErrorMessage()));
+            }
+            concurrencyLimiter.release(Outcome.SUCCESS, latency);
+            return httpResponse
+                    .setResponseCode(response.getStatusCodeInt())
+                    .setResponseContent(checkBody(response))
+                    .setEtag(getHeader(response, ETAG))
+                    .setLastModified(getHeader(response, LAST_MODIFIED))
+                    .setLocation(getHeader(response, LOCATION))
+                    .setRetryAfter(getHeader(response, RETRY_AFTER));
+        }
+    }
+}
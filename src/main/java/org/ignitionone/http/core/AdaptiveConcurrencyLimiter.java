@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.http.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * <p>
+ * AIMD (additive increase, multiplicative decrease) limit on the number of in-flight http requests.
+ * Every healthy response grows the limit by increase/limit, i.e. by about "increase" per window of limit
+ * requests. A timeout, connection error or a response slower than the latency threshold shrinks the limit
+ * by the backoff ratio, at most once per window so a burst of failures from one window only backs off once.
+ * </p>
+ * <p>
+ * http.concurrency.initial - starting limit, defaults to parallec.http.parallelism
+ * <br>
+ * http.concurrency.min / http.concurrency.max - floor and ceiling, both default to the initial limit which
+ * keeps concurrency fixed
+ * <br>
+ * http.concurrency.increase - additive increase per window
+ * <br>
+ * http.concurrency.backoff - multiplicative decrease ratio
+ * <br>
+ * http.concurrency.latency.threshold.ms - responses slower than this count as overload
+ * </p>
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    public enum Outcome {
+        // Response received
+        SUCCESS,
+        // Timeout or connection error, a sign we or the network are overloaded
+        OVERLOAD,
+        // Failure that says nothing about load, e.g. an unknown host
+        IGNORE
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double increase;
+    private final double backoffRatio;
+    private final long latencyThresholdMillis;
+
+    private double limit;
+    private int inFlight;
+    private long samplesSinceBackoff;
+    private long backoffCount;
+    private int lowestLimit;
+    private int highestLimit;
+
+    public AdaptiveConcurrencyLimiter(Properties config) {
+        this(Integer.parseInt(config.getProperty("http.concurrency.initial",
+                config.getProperty("parallec.http.parallelism", "100"))), config);
+    }
+
+    private AdaptiveConcurrencyLimiter(int initialLimit, Properties config) {
+        this(initialLimit,
+                Integer.parseInt(config.getProperty("http.concurrency.min", String.valueOf(initialLimit))),
+                Integer.parseInt(config.getProperty("http.concurrency.max", String.valueOf(initialLimit))),
+                Double.parseDouble(config.getProperty("http.concurrency.increase", "1")),
+                Double.parseDouble(config.getProperty("http.concurrency.backoff", "0.9")),
+                Long.parseLong(config.getProperty("http.concurrency.latency.threshold.ms", "5000")));
+    }
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double increase,
+                                      double backoffRatio, long latencyThresholdMillis) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.increase = increase;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdMillis = latencyThresholdMillis;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.lowestLimit = (int) limit;
+        this.highestLimit = (int) limit;
+    }
+
+    /**
+     * @return false if floor and ceiling are equal and the limit can never change
+     */
+    public boolean isAdaptive() {
+        return minLimit != maxLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * <p> Blocks until the number of in-flight requests is below the current limit </p>
+     *
+     * @throws InterruptedException
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    public synchronized void release(Outcome outcome, long latencyMillis) {
+        inFlight--;
+        onSample(outcome, latencyMillis);
+        notifyAll();
+    }
+
+    /**
+     * <p> Records the outcome of a request that was not started through {@link #acquire()} </p>
+     *
+     * @param outcome
+     * @param latencyMillis
+     */
+    public synchronized void onSample(Outcome outcome, long latencyMillis) {
+        samplesSinceBackoff++;
+        if (outcome == Outcome.IGNORE) {
+            return;
+        }
+
+        if (outcome == Outcome.OVERLOAD || latencyMillis > latencyThresholdMillis) {
+            if (samplesSinceBackoff >= limit) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                samplesSinceBackoff = 0;
+                backoffCount++;
+                lowestLimit = Math.min(lowestLimit, (int) limit);
+                LOG.debug("Backing off, concurrency limit is now {}", (int) limit);
+            }
+        } else {
+            limit = Math.min(maxLimit, limit + increase / limit);
+            highestLimit = Math.max(highestLimit, (int) limit);
+        }
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized long getBackoffCount() {
+        return backoffCount;
+    }
+
+    public synchronized void logStats() {
+        LOG.info("Concurrency limit: current {}, lowest {}, highest {}, {} backoffs", new Object[]{
+                (int) limit, lowestLimit, highestLimit, backoffCount});
+    }
+}
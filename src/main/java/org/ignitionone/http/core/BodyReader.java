@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.http.core;
+
+import org.ignitionone.util.ContentSniffer;
+import org.ignitionone.util.ContentSniffer.Verdict;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * <p>
+ * Reads response bodies with constant memory per bad domain. The first sniff window of the body is checked
+ * by the {@link ContentSniffer} and the read is aborted as soon as the body clearly is not an ads.txt file;
+ * bodies over the size cap are aborted as well. A byte order mark selects the charset and is stripped.
+ * </p>
+ * <p>
+ * http.body.max.bytes - max body size
+ * <br>
+ * http.body.sniff.bytes - size of the window sniffed before the rest of the body is read
+ * </p>
+ */
+public class BodyReader {
+    private static final Logger LOG = LoggerFactory.getLogger(BodyReader.class);
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int maxBytes;
+    private final int sniffBytes;
+
+    public BodyReader(Properties config) {
+        this(Integer.parseInt(config.getProperty("http.body.max.bytes", "4194304")),
+                Integer.parseInt(config.getProperty("http.body.sniff.bytes", "4096")));
+    }
+
+    public BodyReader(int maxBytes, int sniffBytes) {
+        this.maxBytes = maxBytes;
+        this.sniffBytes = Math.min(sniffBytes, maxBytes);
+    }
+
+    /**
+     * <p> Reads the body from the stream, stopping early if it is rejected. The caller closes the stream. </p>
+     *
+     * @param inputStream
+     * @param contentType content type header, may be null
+     * @return
+     * @throws IOException
+     */
+    public Body read(InputStream inputStream, String contentType) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(Math.min(BUFFER_SIZE, sniffBytes));
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        // Sniff window first, then the rest up to one byte over the cap
+        boolean complete = fill(inputStream, body, buffer, sniffBytes);
+        Charset charset = charset(body.toByteArray(), contentType);
+        Verdict verdict = ContentSniffer.sniff(contentType, decode(body.toByteArray(), charset), complete);
+        if (verdict != Verdict.ACCEPT) {
+            return Body.rejected(verdict.name());
+        }
+        if (!complete && !fill(inputStream, body, buffer, maxBytes + 1)) {
+            return Body.rejected("TOO_LARGE");
+        }
+        return Body.accepted(decode(body.toByteArray(), charset));
+    }
+
+    /**
+     * <p> Applies the same checks to a body which was read completely by the http client </p>
+     *
+     * @param content
+     * @param contentType content type header, may be null
+     * @return
+     */
+    public Body check(String content, String contentType) {
+        // Characters are close enough to bytes for a cap
+        if (content.length() > maxBytes) {
+            return Body.rejected("TOO_LARGE");
+        }
+        boolean complete = content.length() <= sniffBytes;
+        Verdict verdict = ContentSniffer.sniff(contentType,
+                complete ? content : content.subSequence(0, sniffBytes), complete);
+        if (verdict != Verdict.ACCEPT) {
+            return Body.rejected(verdict.name());
+        }
+        return Body.accepted(stripBom(content));
+    }
+
+    /**
+     * @return true if the end of the stream was reached before the body reached limit bytes
+     */
+    private static boolean fill(InputStream inputStream, ByteArrayOutputStream body, byte[] buffer, int limit)
+            throws IOException {
+        while (body.size() < limit) {
+            int read = inputStream.read(buffer, 0, Math.min(buffer.length, limit - body.size()));
+            if (read == -1) {
+                return true;
+            }
+            body.write(buffer, 0, read);
+        }
+        return false;
+    }
+
+    private static String decode(byte[] bytes, Charset charset) {
+        return stripBom(new String(bytes, charset));
+    }
+
+    private static String stripBom(String content) {
+        return !content.isEmpty() && content.charAt(0) == '\uFEFF' ? content.substring(1) : content;
+    }
+
+    /**
+     * <p> Byte order mark first, then the charset parameter of the content type, UTF-8 otherwise </p>
+     */
+    static Charset charset(byte[] start, String contentType) {
+        if (start.length >= 2) {
+            if ((start[0] & 0xFF) == 0xFE && (start[1] & 0xFF) == 0xFF) {
+                return StandardCharsets.UTF_16BE;
+            }
+            if ((start[0] & 0xFF) == 0xFF && (start[1] & 0xFF) == 0xFE) {
+                return StandardCharsets.UTF_16LE;
+            }
+        }
+        if (start.length >= 3 && (start[0] & 0xFF) == 0xEF && (start[1] & 0xFF) == 0xBB && (start[2] & 0xFF) == 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                parameter = parameter.trim();
+                if (parameter.toLowerCase().startsWith("charset=")) {
+                    try {
+                        return Charset.forName(parameter.substring("charset=".length()).replace("\"", ""));
+                    } catch (Exception e) {
+                        LOG.debug("Unsupported charset in content type: {}", contentType);
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    public static class Body {
+        private final String content;
+        private final String rejectReason;
+
+        private Body(String content, String rejectReason) {
+            this.content = content;
+            this.rejectReason = rejectReason;
+        }
+
+        static Body accepted(String content) {
+            return new Body(content, null);
+        }
+
+        static Body rejected(String rejectReason) {
+            return new Body(null, rejectReason);
+        }
+
+        public boolean isAccepted() {
+            return rejectReason == null;
+        }
+
+        /**
+         * @return the body, null if it was rejected
+         */
+        public String getContent() {
+            return content;
+        }
+
+        /**
+         * @return why the body was rejected (HTML, BINARY, NOT_ADS_TXT or TOO_LARGE), null if it was accepted
+         */
+        public String getRejectReason() {
+            return rejectReason;
+        }
+    }
+}
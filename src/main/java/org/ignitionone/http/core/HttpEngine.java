@@ -0,0 +1,37 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.http.core;
+
+import org.ignitionone.model.HttpResponse;
+
+import java.util.function.Consumer;
+
+/**
+ * An http engine fetches /ads.txt for the requests handed out by a {@link PolitenessScheduler} concurrently,
+ * until the scheduler has nothing left. Every completed response, whatever its status code, is handed to the
+ * consumer as soon as it arrives; requests that fail without a response are handed over as error responses.
+ * Redirects are not followed. The consumer may be called from several threads at once. A request is completed
+ * on the scheduler only after the consumer returned, so requests the consumer schedules are still picked up.
+ */
+public interface HttpEngine {
+    void execute(PolitenessScheduler scheduler, Consumer<HttpResponse> responseConsumer);
+}
@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.http.core;
+
+import org.ignitionone.http.JdkHttpEngine;
+import org.ignitionone.http.ParallecHttpEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+public class HttpEngineFactory {
+    private static final Logger LOG = LoggerFactory.getLogger(HttpEngineFactory.class);
+
+    public static HttpEngine getHttpEngine(HttpEngineType httpEngineType, Properties config,
+                                           AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        switch (httpEngineType) {
+            case PARALLEC:
+                return new ParallecHttpEngine(config, concurrencyLimiter);
+            case JDK:
+                return new JdkHttpEngine(config, concurrencyLimiter);
+            default:
+                LOG.error("Could not find http engine! Exiting!!!");
+                System.exit(112);
+                return null;
+        }
+    }
+}
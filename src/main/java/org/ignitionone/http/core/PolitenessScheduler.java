@@ -0,0 +1,394 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.http.core;
+
+import org.ignitionone.model.HttpRequest;
+import org.ignitionone.util.ParserUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.util.*;
+
+/**
+ * <p>
+ * Hands out http requests so that no single origin gets hammered. Requests are grouped by registrable domain
+ * or resolved IP address, at most maxPerGroup requests of a group are in flight at any time and groups are
+ * served round robin so shared hosting providers are interleaved with everybody else.
+ * </p>
+ * <p>
+ * Requests of a higher priority (see {@link HttpRequest#getPriority()}) go first, both within a group and
+ * across groups; groups whose next requests have the same priority take turns. Once the deadline has passed,
+ * queued and delayed requests below the deadline priority are deferred instead of started, requests at or above
+ * it are still crawled.
+ * </p>
+ * <p>
+ * Engines pull requests with {@link #take()} (blocking) or {@link #drain(int)} (non blocking) and must call
+ * {@link #complete(HttpRequest)} once a request is fully handled. Requests may be added while the crawl is
+ * running, also with a delay (retries); the crawl is over when nothing is queued, delayed or in flight.
+ * </p>
+ * <p>
+ * http.politeness.groupby - domain (registrable domain) or ip (resolved address, taken from the dns
+ * pre-resolution if the request has one)
+ * <br>
+ * http.politeness.maxpergroup - max in-flight requests per group, 0 for unlimited
+ * </p>
+ */
+public class PolitenessScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(PolitenessScheduler.class);
+
+    public enum GroupBy {
+        DOMAIN,
+        IP;
+
+        public static GroupBy getValueOf(String groupBy) {
+            return valueOf(groupBy.trim().toUpperCase());
+        }
+    }
+
+    private final GroupBy groupBy;
+    private final int maxPerGroup;
+    private final Map<String, Group> groups = new HashMap<>();
+    // Groups with queued requests and a free slot, by priority of their next request and then round robin
+    private final TreeSet<Group> readyGroups = new TreeSet<>(Comparator
+            .comparingInt((Group group) -> -group.readyPriority)
+            .thenComparingLong(group -> group.readySequence));
+    private final Map<HttpRequest, Group> inFlight = new IdentityHashMap<>();
+    private final PriorityQueue<DelayedRequest> delayed = new PriorityQueue<>();
+    private final List<HttpRequest> deferred = new ArrayList<>();
+    private long sequence;
+    private int queued;
+    private long completed;
+    private long deadline = Long.MAX_VALUE;
+    private int deadlinePriority;
+    private boolean deadlinePassed;
+
+    public PolitenessScheduler(Properties config) {
+        this(GroupBy.getValueOf(config.getProperty("http.politeness.groupby", "domain")),
+                Integer.parseInt(config.getProperty("http.politeness.maxpergroup", "0")));
+    }
+
+    public PolitenessScheduler(GroupBy groupBy, int maxPerGroup) {
+        this.groupBy = groupBy;
+        this.maxPerGroup = maxPerGroup <= 0 ? Integer.MAX_VALUE : maxPerGroup;
+    }
+
+    /**
+     * <p> Defers requests below the given priority once the deadline has passed </p>
+     *
+     * @param deadline         epoch millis
+     * @param deadlinePriority min priority of the requests still started after the deadline
+     */
+    public synchronized void setDeadline(long deadline, int deadlinePriority) {
+        this.deadline = deadline;
+        this.deadlinePriority = deadlinePriority;
+        notifyAll();
+    }
+
+    public void addAll(Collection<HttpRequest> httpRequests) {
+        // Group keys may need a dns lookup, compute them before taking the lock
+        Map<HttpRequest, String> groupKeys = new IdentityHashMap<>();
+        httpRequests.parallelStream()
+                .map(httpRequest -> new AbstractMap.SimpleEntry<>(httpRequest, groupKey(httpRequest)))
+                .sequential()
+                .forEach(entry -> groupKeys.put(entry.getKey(), entry.getValue()));
+
+        synchronized (this) {
+            httpRequests.forEach(httpRequest -> enqueue(httpRequest, groupKeys.get(httpRequest)));
+            LOG.debug("Scheduled {} requests in {} groups", queued, groups.size());
+            notifyAll();
+        }
+    }
+
+    public void add(HttpRequest httpRequest) {
+        String groupKey = groupKey(httpRequest);
+        synchronized (this) {
+            enqueue(httpRequest, groupKey);
+            notifyAll();
+        }
+    }
+
+    /**
+     * <p> Queues a request once the delay has passed </p>
+     *
+     * @param httpRequest
+     * @param delayMillis
+     */
+    public void schedule(HttpRequest httpRequest, long delayMillis) {
+        String groupKey = groupKey(httpRequest);
+        synchronized (this) {
+            if (isDeferred(httpRequest)) {
+                deferred.add(httpRequest);
+                return;
+            }
+            delayed.add(new DelayedRequest(httpRequest, groupKey, System.currentTimeMillis() + delayMillis));
+            notifyAll();
+        }
+    }
+
+    /**
+     * <p> Blocks until a request may be started </p>
+     *
+     * @return the next request, or null once nothing is queued, delayed or in flight
+     * @throws InterruptedException
+     */
+    public synchronized HttpRequest take() throws InterruptedException {
+        return awaitReady() ? next() : null;
+    }
+
+    /**
+     * <p> Blocks until a request may be started, without taking it </p>
+     *
+     * @return false once nothing is queued, delayed or in flight
+     * @throws InterruptedException
+     */
+    public synchronized boolean awaitReady() throws InterruptedException {
+        while (true) {
+            long now = System.currentTimeMillis();
+            enqueueDue(now);
+            if (!readyGroups.isEmpty()) {
+                return true;
+            }
+            if (isDone()) {
+                return false;
+            }
+            long wakeUp = deadlinePassed ? Long.MAX_VALUE : deadline;
+            if (!delayed.isEmpty()) {
+                wakeUp = Math.min(wakeUp, delayed.peek().dueAt);
+            }
+            wait(wakeUp == Long.MAX_VALUE ? 0L : Math.max(1L, wakeUp - now));
+        }
+    }
+
+    /**
+     * <p> Takes up to max requests which may be started right now, without blocking </p>
+     *
+     * @param max
+     * @return
+     */
+    public synchronized List<HttpRequest> drain(int max) {
+        enqueueDue(System.currentTimeMillis());
+        List<HttpRequest> httpRequests = new ArrayList<>(Math.min(max, queued));
+        while (httpRequests.size() < max && !readyGroups.isEmpty()) {
+            httpRequests.add(next());
+        }
+        return httpRequests;
+    }
+
+    public synchronized void complete(HttpRequest httpRequest) {
+        Group group = inFlight.remove(httpRequest);
+        if (group == null) {
+            return;
+        }
+        completed++;
+        group.inFlight--;
+        if (group.inFlight == maxPerGroup - 1 && !group.queue.isEmpty()) {
+            addReady(group);
+        }
+        if (group.inFlight == 0 && group.queue.isEmpty()) {
+            groups.remove(group.key);
+        }
+        notifyAll();
+    }
+
+    public synchronized boolean isDone() {
+        return queued == 0 && delayed.isEmpty() && inFlight.isEmpty();
+    }
+
+    public synchronized int getQueuedCount() {
+        return queued;
+    }
+
+    public synchronized int getDelayedCount() {
+        return delayed.size();
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public synchronized long getCompletedCount() {
+        return completed;
+    }
+
+    /**
+     * @return the requests deferred because the deadline passed
+     */
+    public synchronized List<HttpRequest> getDeferred() {
+        return new ArrayList<>(deferred);
+    }
+
+    private HttpRequest next() {
+        Group group = readyGroups.pollFirst();
+        group.ready = false;
+        HttpRequest httpRequest = group.queue.poll().httpRequest;
+        queued--;
+        group.inFlight++;
+        inFlight.put(httpRequest, group);
+        if (group.inFlight < maxPerGroup && !group.queue.isEmpty()) {
+            addReady(group);
+        }
+        return httpRequest;
+    }
+
+    private void enqueueDue(long now) {
+        if (now >= deadline && !deadlinePassed) {
+            deferQueued();
+        }
+        while (!delayed.isEmpty() && delayed.peek().dueAt <= now) {
+            DelayedRequest delayedRequest = delayed.poll();
+            enqueue(delayedRequest.httpRequest, delayedRequest.groupKey);
+        }
+    }
+
+    private void enqueue(HttpRequest httpRequest, String groupKey) {
+        if (isDeferred(httpRequest)) {
+            deferred.add(httpRequest);
+            return;
+        }
+        Group group = groups.computeIfAbsent(groupKey, Group::new);
+        group.queue.add(new QueuedRequest(httpRequest, sequence++));
+        queued++;
+        if (group.inFlight >= maxPerGroup) {
+            return;
+        }
+        if (!group.ready) {
+            addReady(group);
+        } else if (httpRequest.getPriority() > group.readyPriority) {
+            // Moves up, keeping its turn among groups of the same priority
+            readyGroups.remove(group);
+            group.readyPriority = httpRequest.getPriority();
+            readyGroups.add(group);
+        }
+    }
+
+    private void addReady(Group group) {
+        group.ready = true;
+        group.readyPriority = group.queue.peek().httpRequest.getPriority();
+        group.readySequence = sequence++;
+        readyGroups.add(group);
+    }
+
+    private boolean isDeferred(HttpRequest httpRequest) {
+        return deadlinePassed && httpRequest.getPriority() < deadlinePriority;
+    }
+
+    /**
+     * <p> Moves the queued and delayed requests below the deadline priority to the deferred requests </p>
+     */
+    private void deferQueued() {
+        deadlinePassed = true;
+        int deferredBefore = deferred.size();
+        for (Iterator<Group> iterator = groups.values().iterator(); iterator.hasNext(); ) {
+            Group group = iterator.next();
+            for (Iterator<QueuedRequest> queue = group.queue.iterator(); queue.hasNext(); ) {
+                HttpRequest httpRequest = queue.next().httpRequest;
+                if (isDeferred(httpRequest)) {
+                    deferred.add(httpRequest);
+                    queue.remove();
+                    queued--;
+                }
+            }
+            if (group.ready) {
+                readyGroups.remove(group);
+                group.ready = false;
+                if (!group.queue.isEmpty()) {
+                    addReady(group);
+                }
+            }
+            if (group.inFlight == 0 && group.queue.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        for (Iterator<DelayedRequest> iterator = delayed.iterator(); iterator.hasNext(); ) {
+            HttpRequest httpRequest = iterator.next().httpRequest;
+            if (isDeferred(httpRequest)) {
+                deferred.add(httpRequest);
+                iterator.remove();
+            }
+        }
+        LOG.info("Crawl deadline passed, deferred {} requests below priority {}, {} queued and {} in flight go on",
+                new Object[]{deferred.size() - deferredBefore, deadlinePriority, queued, inFlight.size()});
+    }
+
+    private String groupKey(HttpRequest httpRequest) {
+        String host = httpRequest.getHost();
+        if (groupBy == GroupBy.IP) {
+            if (httpRequest.getAddress() != null) {
+                return httpRequest.getAddress();
+            }
+            try {
+                return InetAddress.getByName(host).getHostAddress();
+            } catch (Exception e) {
+                LOG.debug("Could not resolve {}, grouping by domain", host);
+            }
+        }
+        return ParserUtil.getRegistrableDomain(host);
+    }
+
+    private static class DelayedRequest implements Comparable<DelayedRequest> {
+        private final HttpRequest httpRequest;
+        private final String groupKey;
+        private final long dueAt;
+
+        DelayedRequest(HttpRequest httpRequest, String groupKey, long dueAt) {
+            this.httpRequest = httpRequest;
+            this.groupKey = groupKey;
+            this.dueAt = dueAt;
+        }
+
+        @Override
+        public int compareTo(DelayedRequest other) {
+            return Long.compare(dueAt, other.dueAt);
+        }
+    }
+
+    private static class QueuedRequest implements Comparable<QueuedRequest> {
+        private final HttpRequest httpRequest;
+        private final long sequence;
+
+        QueuedRequest(HttpRequest httpRequest, long sequence) {
+            this.httpRequest = httpRequest;
+            this.sequence = sequence;
+        }
+
+        // Higher priority first, first in first out within a priority
+        @Override
+        public int compareTo(QueuedRequest other) {
+            int byPriority = Integer.compare(other.httpRequest.getPriority(), httpRequest.getPriority());
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static class Group {
+        private final String key;
+        private final PriorityQueue<QueuedRequest> queue = new PriorityQueue<>();
+        private int inFlight;
+        private boolean ready;
+        private int readyPriority;
+        private long readySequence;
+
+        Group(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.http.core;
+
+import org.ignitionone.model.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Decides which failed requests are retried and when. Timeouts, connection resets, 5xx and 429 responses
+ * are transient and retried with exponential backoff and jitter (a Retry-After header wins if it is within
+ * the backoff ceiling); 4xx, unknown hosts and refused connections are not. Retries are limited per request
+ * and by a budget relative to the size of the crawl, so a failing network cannot multiply the load.
+ * </p>
+ * <p>
+ * http.retry.max - max retries per request
+ * <br>
+ * http.retry.budget - max retries as a fraction of the requests of the crawl
+ * <br>
+ * http.retry.backoff.ms / http.retry.backoff.max.ms - base and ceiling of the backoff
+ * </p>
+ */
+public class RetryPolicy {
+    private static final Logger LOG = LoggerFactory.getLogger(RetryPolicy.class);
+
+    public enum FailureClass {
+        TIMEOUT(true),
+        CONNECTION_RESET(true),
+        SERVER_ERROR(true),
+        TOO_MANY_REQUESTS(true),
+        CLIENT_ERROR(false),
+        UNKNOWN_HOST(false),
+        CONNECTION_REFUSED(false),
+        OTHER(false);
+
+        private final boolean isTransient;
+
+        FailureClass(boolean isTransient) {
+            this.isTransient = isTransient;
+        }
+
+        public boolean isTransient() {
+            return isTransient;
+        }
+    }
+
+    private final int maxRetries;
+    private final long retryBudget;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+
+    private final AtomicLong retries = new AtomicLong();
+    // Last failure of every domain that failed and has no final outcome yet
+    private final Map<String, FailureClass> pending = new ConcurrentHashMap<>();
+    private final Map<FailureClass, AtomicLong> failureCounts = counters();
+    private final Map<FailureClass, AtomicLong> retryCounts = counters();
+    private final Map<FailureClass, AtomicLong> recoveredCounts = counters();
+    private final Map<FailureClass, AtomicLong> failedCounts = counters();
+
+    /**
+     * @param config
+     * @param requests number of requests of the crawl, the base of the retry budget
+     */
+    public RetryPolicy(Properties config, int requests) {
+        this(Integer.parseInt(config.getProperty("http.retry.max", "2")),
+                (long) (Double.parseDouble(config.getProperty("http.retry.budget", "0.2")) * requests),
+                Long.parseLong(config.getProperty("http.retry.backoff.ms", "1000")),
+                Long.parseLong(config.getProperty("http.retry.backoff.max.ms", "30000")));
+    }
+
+    public RetryPolicy(int maxRetries, long retryBudget, long backoffMillis, long maxBackoffMillis) {
+        this.maxRetries = maxRetries;
+        this.retryBudget = retryBudget;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * @param httpResponse
+     * @return the failure class, or null if the request did not fail
+     */
+    public static FailureClass classify(HttpResponse httpResponse) {
+        if (httpResponse.isError()) {
+            String error = httpResponse.getError().toLowerCase();
+            if (error.contains("unknownhost")) {
+                return FailureClass.UNKNOWN_HOST;
+            }
+            if (error.contains("timeout") || error.contains("timed out")) {
+                return FailureClass.TIMEOUT;
+            }
+            if (error.contains("refused")) {
+                return FailureClass.CONNECTION_REFUSED;
+            }
+            if (error.contains("reset") || error.contains("broken pipe") || error.contains("closed")
+                    || error.contains("eof")) {
+                return FailureClass.CONNECTION_RESET;
+            }
+            return FailureClass.OTHER;
+        }
+
+        int responseCode = httpResponse.getResponseCode();
+        if (responseCode == 429) {
+            return FailureClass.TOO_MANY_REQUESTS;
+        }
+        if (responseCode >= 500) {
+            return FailureClass.SERVER_ERROR;
+        }
+        if (responseCode >= 400) {
+            return FailureClass.CLIENT_ERROR;
+        }
+        return null;
+    }
+
+    /**
+     * <p> Records a failed request of the domain </p>
+     *
+     * @param domain
+     * @param failureClass
+     */
+    public void onFailure(String domain, FailureClass failureClass) {
+        failureCounts.get(failureClass).incrementAndGet();
+        pending.put(domain, failureClass);
+    }
+
+    /**
+     * <p> Decides whether to retry a failed request, taking the retry from the budget if so </p>
+     *
+     * @param failureClass
+     * @param retriesSoFar retries of this request so far
+     * @param retryAfter   Retry-After header of the response, may be null
+     * @return the delay before the retry, or -1 if the request must not be retried
+     */
+    public long retryDelay(FailureClass failureClass, int retriesSoFar, String retryAfter) {
+        if (!failureClass.isTransient() || retriesSoFar >= maxRetries) {
+            return -1L;
+        }
+        if (retries.incrementAndGet() > retryBudget) {
+            retries.decrementAndGet();
+            return -1L;
+        }
+        retryCounts.get(failureClass).incrementAndGet();
+        return delay(retriesSoFar, retryAfter);
+    }
+
+    /**
+     * <p> The domain got a response in the end </p>
+     *
+     * @param domain
+     */
+    public void onSuccess(String domain) {
+        FailureClass failureClass = pending.remove(domain);
+        if (failureClass != null) {
+            recoveredCounts.get(failureClass).incrementAndGet();
+        }
+    }
+
+    /**
+     * <p> The domain is given up, with nothing left to retry or fall back to </p>
+     *
+     * @param domain
+     */
+    public void onGiveUp(String domain) {
+        FailureClass failureClass = pending.remove(domain);
+        if (failureClass != null) {
+            failedCounts.get(failureClass).incrementAndGet();
+        }
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    public long getRetryCount(FailureClass failureClass) {
+        return retryCounts.get(failureClass).get();
+    }
+
+    public long getRecoveredCount(FailureClass failureClass) {
+        return recoveredCounts.get(failureClass).get();
+    }
+
+    public long getFailedCount(FailureClass failureClass) {
+        return failedCounts.get(failureClass).get();
+    }
+
+    public void logStats() {
+        LOG.info("Retries: {} of a budget of {}", retries.get(), retryBudget);
+        for (FailureClass failureClass : FailureClass.values()) {
+            if (failureCounts.get(failureClass).get() > 0) {
+                LOG.info("{}: {} failures, {} retries, {} recovered, {} failed", new Object[]{failureClass,
+                        failureCounts.get(failureClass).get(), retryCounts.get(failureClass).get(),
+                        recoveredCounts.get(failureClass).get(), failedCounts.get(failureClass).get()});
+            }
+        }
+    }
+
+    /**
+     * <p> Exponential backoff with equal jitter: half of the backoff is fixed, the other half random </p>
+     */
+    private long delay(int retriesSoFar, String retryAfter) {
+        Long retryAfterMillis = parseRetryAfter(retryAfter);
+        if (retryAfterMillis != null && retryAfterMillis <= maxBackoffMillis) {
+            return retryAfterMillis;
+        }
+        long backoff = Math.min(maxBackoffMillis, backoffMillis << Math.min(retriesSoFar, 30));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    // Only the delay in seconds form, http dates are rare on 429/503 and fall back to the backoff
+    private static Long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return null;
+        }
+        try {
+            return Math.max(0L, Long.parseLong(retryAfter.trim())) * 1000L;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Map<FailureClass, AtomicLong> counters() {
+        Map<FailureClass, AtomicLong> counters = new EnumMap<>(FailureClass.class);
+        for (FailureClass failureClass : FailureClass.values()) {
+            counters.put(failureClass, new AtomicLong());
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,334 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.journal;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>
+ * Append-only journal of the domains a crawl completed and the records parsed from them, so a crawl that dies
+ * half way can be restarted without fetching the completed domains again. The journal is flushed after every
+ * domain and synced whenever the records written so far were handed to the write stores. It is deleted once
+ * the crawl finishes, a journal found at startup therefore belongs to an interrupted crawl.
+ * </p>
+ * <p>
+ * The journal is a tab separated text file with one entry per line:
+ * <br>
+ * R	insertDateMillis	sourceDomain	adServingDomain	publisherAccId	accType	certAuthId - a parsed record
+ * <br>
+ * D	domain - the domain is complete, the R lines since the previous D line are its records
+ * <br>
+ * C - all records above were written to the write stores
+ * <br>
+ * Records of domains completed after the last C line were lost by the write stores and must be written again.
+ * Stores may see those records twice if the crawl died between a write and its C line.
+ * </p>
+ */
+public class CrawlJournal {
+    private static final Logger LOG = LoggerFactory.getLogger(CrawlJournal.class);
+    private static final String SEPARATOR = "\t";
+    private static final String RECORD = "R";
+    private static final String DOMAIN = "D";
+    private static final String COMMIT = "C";
+    private static final String NULL = "\\N";
+
+    private final String journalFile;
+    private final Set<String> completedDomains = new LinkedHashSet<>();
+    private final List<AdsTxtRecord> uncommittedRecords = new ArrayList<>();
+    private boolean committed;
+
+    private FileOutputStream outputStream;
+    private BufferedWriter writer;
+
+    /**
+     * @param journalFile file the journal is written to, an empty value disables the journal
+     */
+    public CrawlJournal(String journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    public boolean isEnabled() {
+        return !journalFile.isEmpty();
+    }
+
+    /**
+     * <p> Reads the journal of an interrupted crawl. A line cut off by the crash ends the journal. </p>
+     */
+    public void load() {
+        File file = new File(journalFile);
+        if (!isEnabled() || !file.exists()) {
+            return;
+        }
+
+        List<AdsTxtRecord> domainRecords = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(SEPARATOR, -1);
+                if (RECORD.equals(columns[0]) && columns.length == 7) {
+                    domainRecords.add(toRecord(columns));
+                } else if (DOMAIN.equals(columns[0]) && columns.length == 2) {
+                    completedDomains.add(unescape(columns[1]));
+                    uncommittedRecords.addAll(domainRecords);
+                    domainRecords.clear();
+                } else if (COMMIT.equals(line)) {
+                    committed = true;
+                    uncommittedRecords.clear();
+                } else {
+                    LOG.warn("Ignoring the rest of the crawl journal from malformed line: {}", line);
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("Error reading crawl journal, resuming from what was read: ", e);
+        }
+        LOG.info("Crawl journal {}: {} domains completed, {} records not written yet", new Object[]{
+                journalFile, completedDomains.size(), uncommittedRecords.size()});
+    }
+
+    /**
+     * @return true if a journal of an interrupted crawl was loaded
+     */
+    public boolean isResuming() {
+        return !completedDomains.isEmpty();
+    }
+
+    /**
+     * @return true if the interrupted crawl wrote records to the write stores
+     */
+    public boolean hasCommitted() {
+        return committed;
+    }
+
+    public Set<String> getCompletedDomains() {
+        return Collections.unmodifiableSet(completedDomains);
+    }
+
+    /**
+     * @return records of completed domains which may not have reached the write stores
+     */
+    public List<AdsTxtRecord> getUncommittedRecords() {
+        return Collections.unmodifiableList(uncommittedRecords);
+    }
+
+    /**
+     * <p>
+     * Opens the journal for this crawl. The loaded journal is compacted to its completed domains, its
+     * uncommitted records must have been written to the write stores before.
+     * </p>
+     *
+     * @throws IOException
+     */
+    public synchronized void open() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+
+        File tempFile = new File(journalFile + ".tmp");
+        try (BufferedWriter compacted = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            for (String domain : completedDomains) {
+                writeLine(compacted, DOMAIN, escape(domain));
+            }
+            if (isResuming()) {
+                writeLine(compacted, COMMIT);
+            }
+        }
+        Files.move(tempFile.toPath(), new File(journalFile).toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        uncommittedRecords.clear();
+
+        outputStream = new FileOutputStream(journalFile, true);
+        writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * <p> Journals a completed domain with its records and flushes the journal </p>
+     *
+     * @param domain
+     * @param adsTxtRecords records of the domain, may be empty
+     */
+    public synchronized void complete(String domain, List<AdsTxtRecord> adsTxtRecords) {
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            for (AdsTxtRecord adsTxtRecord : adsTxtRecords) {
+                writeRecord(adsTxtRecord);
+            }
+            writeLine(writer, DOMAIN, escape(domain));
+            writer.flush();
+        } catch (IOException e) {
+            LOG.error("Error writing crawl journal for domain {}: ", domain, e);
+        }
+    }
+
+    /**
+     * <p> Marks all journaled records as written to the write stores and syncs the journal to disk </p>
+     */
+    public synchronized void commit() {
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writeLine(writer, COMMIT);
+            writer.flush();
+            outputStream.getFD().sync();
+        } catch (IOException e) {
+            LOG.error("Error committing crawl journal: ", e);
+        }
+    }
+
+    /**
+     * <p> Closes and deletes the journal once the crawl is complete </p>
+     */
+    public synchronized void finish() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        close();
+        try {
+            Files.deleteIfExists(new File(journalFile).toPath());
+        } catch (IOException e) {
+            LOG.error("Error deleting crawl journal, the next crawl will resume from it: ", e);
+        }
+    }
+
+    /**
+     * <p> Closes the journal and keeps it, the next crawl resumes from it </p>
+     */
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writer.close();
+        } catch (IOException e) {
+            LOG.error("Error closing crawl journal: ", e);
+        }
+        writer = null;
+        outputStream = null;
+    }
+
+    private void writeRecord(AdsTxtRecord adsTxtRecord) throws IOException {
+        DateTime insertDate = adsTxtRecord.getInsertDate();
+        writeLine(writer, RECORD,
+                insertDate == null ? NULL : String.valueOf(insertDate.getMillis()),
+                escape(adsTxtRecord.getSourceDomain()),
+                escape(adsTxtRecord.getAdServingDomain()),
+                escape(adsTxtRecord.getPublisherAccId()),
+                escape(adsTxtRecord.getAccType()),
+                escape(adsTxtRecord.getCertAuthId()));
+    }
+
+    private static AdsTxtRecord toRecord(String[] columns) {
+        AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+        adsTxtRecord.setInsertDate(NULL.equals(columns[1]) ? null : new DateTime(Long.parseLong(columns[1])));
+        adsTxtRecord.setSourceDomain(unescape(columns[2]));
+        adsTxtRecord.setAdServingDomain(unescape(columns[3]));
+        adsTxtRecord.setPublisherAccId(unescape(columns[4]));
+        adsTxtRecord.setAccType(unescape(columns[5]));
+        adsTxtRecord.setCertAuthId(unescape(columns[6]));
+        return adsTxtRecord;
+    }
+
+    private static void writeLine(BufferedWriter writer, String... columns) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(SEPARATOR);
+            }
+            writer.write(columns[i]);
+        }
+        writer.newLine();
+    }
+
+    /**
+     * <p> Backslash escapes for the separator and line breaks, \N for null </p>
+     */
+    static String escape(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    static String unescape(String value) {
+        if (NULL.equals(value)) {
+            return null;
+        }
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.journal;
+
+import org.ignitionone.model.CrawlTarget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Domains a crawl deferred when it ran out of time (see crawl.deadline.minutes), kept for the next crawl. The
+ * next crawl adds them to its targets with their priority raised by one, so domains deferred night after night
+ * eventually move ahead of the domains of their former priority instead of starving.
+ * </p>
+ * <p>
+ * The file is tab separated, one target per line:
+ * <br>
+ * domain	priority
+ * </p>
+ */
+public class DeferredTargets {
+    private static final Logger LOG = LoggerFactory.getLogger(DeferredTargets.class);
+    private static final String SEPARATOR = "\t";
+
+    private final String deferredFile;
+
+    /**
+     * @param deferredFile file the deferred domains are kept in, an empty value does not keep them
+     */
+    public DeferredTargets(String deferredFile) {
+        this.deferredFile = deferredFile;
+    }
+
+    public boolean isEnabled() {
+        return !deferredFile.isEmpty();
+    }
+
+    /**
+     * @return the domains deferred by the previous crawl, with their raised priority
+     */
+    public List<CrawlTarget> load() {
+        List<CrawlTarget> crawlTargets = new ArrayList<>();
+        File file = new File(deferredFile);
+        if (!isEnabled() || !file.exists()) {
+            return crawlTargets;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(SEPARATOR, -1);
+                if (columns.length == 2 && !columns[0].isEmpty()) {
+                    crawlTargets.add(new CrawlTarget(columns[0], Integer.parseInt(columns[1])));
+                }
+            }
+            LOG.info("Loaded {} domains deferred by the previous crawl", crawlTargets.size());
+        } catch (Exception e) {
+            LOG.error("Error reading deferred domains: ", e);
+        }
+        return crawlTargets;
+    }
+
+    /**
+     * <p> Replaces the deferred domains with the ones of this crawl, no file is left if there are none </p>
+     *
+     * @param crawlTargets deferred targets with the priority they were crawled with
+     */
+    public void save(List<CrawlTarget> crawlTargets) {
+        if (!isEnabled()) {
+            if (!crawlTargets.isEmpty()) {
+                LOG.warn("{} deferred domains are not kept, crawl.deferred.file is not set", crawlTargets.size());
+            }
+            return;
+        }
+
+        File file = new File(deferredFile);
+        try {
+            if (crawlTargets.isEmpty()) {
+                Files.deleteIfExists(file.toPath());
+                return;
+            }
+            File tempFile = new File(deferredFile + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+                for (CrawlTarget crawlTarget : crawlTargets) {
+                    writer.write(crawlTarget.getDomain() + SEPARATOR + raise(crawlTarget.getPriority()));
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            LOG.info("Saved {} deferred domains to {}", crawlTargets.size(), deferredFile);
+        } catch (IOException e) {
+            LOG.error("Error writing deferred domains: ", e);
+        }
+    }
+
+    private static int raise(int priority) {
+        return priority == Integer.MAX_VALUE ? priority : priority + 1;
+    }
+}
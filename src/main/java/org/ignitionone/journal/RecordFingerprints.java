@@ -0,0 +1,327 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.journal;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.parser.CrawlDictionary;
+import org.ignitionone.util.ParserUtil;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Fingerprints of the ads.txt lines written for each domain, so a crawl writes only the lines that changed
+ * since the last one instead of every line again. A fingerprint is a 64 bit hash of the line, insert date and
+ * source domain left out. Lines gone since the last crawl become removed records (tombstones) if the lines
+ * themselves are kept as well.
+ * </p>
+ * <p>
+ * The fingerprints are persisted as a tab separated text file when the crawl finishes, one header line per
+ * domain followed by its lines:
+ * <br>
+ * domain	lineCount
+ * <br>
+ * hash	adServingDomain	publisherAccId	accType	certAuthId
+ * <br>
+ * Only the hash is written if the lines are not kept. Loaded lines are canonicalized through the
+ * {@link CrawlDictionary}, so removed records share their values with the parsed ones. A crawl that is interrupted before it finishes, or whose
+ * records a write store failed to write, does not save them, so the changes of the domains it completed are
+ * written again by the next crawl.
+ * </p>
+ * <p>
+ * Only domains whose ads.txt was parsed are compared. Domains that were not found, failed or were deferred keep
+ * the fingerprints of the crawl they were last parsed in and get no removed records, a file that is missing
+ * for one crawl is not taken for a file whose lines were all removed.
+ * </p>
+ * <p>
+ * Thread safe, domains are compared concurrently by the response parsers.
+ * </p>
+ */
+public class RecordFingerprints {
+    private static final Logger LOG = LoggerFactory.getLogger(RecordFingerprints.class);
+    private static final String SEPARATOR = "\t";
+    private static final long[] NO_HASHES = new long[0];
+
+    private final String fingerprintFile;
+    private final boolean tombstones;
+    private final CrawlDictionary crawlDictionary;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<AdsTxtRecord> removedRecords = Collections.synchronizedList(new ArrayList<>());
+
+    // Churn of this crawl
+    private final AtomicLong domains = new AtomicLong();
+    private final AtomicLong newDomains = new AtomicLong();
+    private final AtomicLong changedDomains = new AtomicLong();
+    private final AtomicLong addedLines = new AtomicLong();
+    private final AtomicLong removedLines = new AtomicLong();
+    private final AtomicLong unchangedLines = new AtomicLong();
+
+    /**
+     * @param fingerprintFile file the fingerprints are kept in, an empty value writes every line
+     * @param tombstones      keep the lines as well and collect the removed ones
+     */
+    public RecordFingerprints(String fingerprintFile, boolean tombstones) {
+        this(fingerprintFile, tombstones, new CrawlDictionary());
+    }
+
+    /**
+     * @param fingerprintFile file the fingerprints are kept in, an empty value writes every line
+     * @param tombstones      keep the lines as well and collect the removed ones
+     * @param crawlDictionary dictionary the values of the loaded lines are canonicalized with
+     */
+    public RecordFingerprints(String fingerprintFile, boolean tombstones, CrawlDictionary crawlDictionary) {
+        this.fingerprintFile = fingerprintFile;
+        this.tombstones = tombstones;
+        this.crawlDictionary = crawlDictionary;
+    }
+
+    public boolean isEnabled() {
+        return !fingerprintFile.isEmpty();
+    }
+
+    /**
+     * <p>
+     * Compares the records of a domain with the ones written by the last crawl and remembers them for the next.
+     * Lines of the last crawl missing now are collected as removed records with the given insert date.
+     * </p>
+     *
+     * @param domain
+     * @param adsTxtRecords all records the domain lists now
+     * @param insertDate    insert date of the removed records
+     * @return the records not written by the last crawl
+     */
+    public List<AdsTxtRecord> diff(String domain, List<AdsTxtRecord> adsTxtRecords, DateTime insertDate) {
+        long[] hashes = new long[adsTxtRecords.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = hash(adsTxtRecords.get(i));
+        }
+        Entry current = Entry.of(hashes, tombstones ? adsTxtRecords : null);
+        Entry previous = current.hashes.length > 0 ? entries.put(domain, current) : entries.remove(domain);
+
+        List<AdsTxtRecord> added = new ArrayList<>();
+        for (int i = 0; i < hashes.length; i++) {
+            if (previous == null || !previous.contains(hashes[i])) {
+                added.add(adsTxtRecords.get(i));
+            }
+        }
+
+        int removed = 0;
+        if (previous != null) {
+            for (int i = 0; i < previous.hashes.length; i++) {
+                if (!current.contains(previous.hashes[i])) {
+                    removed++;
+                    if (tombstones && previous.lines != null) {
+                        removedRecords.add(previous.toRecord(i, domain, insertDate));
+                    }
+                }
+            }
+        }
+
+        domains.incrementAndGet();
+        if (previous == null && hashes.length > 0) {
+            newDomains.incrementAndGet();
+        } else if (!added.isEmpty() || removed > 0) {
+            changedDomains.incrementAndGet();
+        }
+        addedLines.addAndGet(added.size());
+        removedLines.addAndGet(removed);
+        unchangedLines.addAndGet(hashes.length - added.size());
+        return added;
+    }
+
+    /**
+     * @return the lines removed since the last crawl, if tombstones are kept
+     */
+    public List<AdsTxtRecord> getRemovedRecords() {
+        synchronized (removedRecords) {
+            return new ArrayList<>(removedRecords);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void logStats() {
+        long total = addedLines.get() + unchangedLines.get();
+        LOG.info("Delta: {} domains compared, {} new, {} changed, {} unchanged", new Object[]{domains.get(),
+                newDomains.get(), changedDomains.get(), domains.get() - newDomains.get() - changedDomains.get()});
+        LOG.info("Delta: {} lines added, {} removed, {} unchanged ({}% churn)", new Object[]{addedLines.get(),
+                removedLines.get(), unchangedLines.get(),
+                total == 0 ? 0 : (addedLines.get() + removedLines.get()) * 100 / total});
+    }
+
+    public void load() {
+        File file = new File(fingerprintFile);
+        if (!isEnabled() || !file.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] header = line.split(SEPARATOR, -1);
+                int lineCount = Integer.parseInt(header[1]);
+                long[] hashes = new long[lineCount];
+                String[][] lines = new String[lineCount][];
+                boolean keepsLines = tombstones;
+                for (int i = 0; i < lineCount; i++) {
+                    String[] columns = reader.readLine().split(SEPARATOR, -1);
+                    hashes[i] = Long.parseUnsignedLong(columns[0], 16);
+                    if (columns.length == 5) {
+                        lines[i] = new String[]{crawlDictionary.canonicalize(columns[1]),
+                                crawlDictionary.canonicalize(columns[2]), crawlDictionary.canonicalize(columns[3]),
+                                crawlDictionary.canonicalize(columns[4])};
+                    } else {
+                        keepsLines = false;
+                    }
+                }
+                entries.put(header[0], new Entry(hashes, keepsLines ? lines : null));
+            }
+            LOG.info("Loaded fingerprints of {} domains from {}", entries.size(), fingerprintFile);
+        } catch (Exception e) {
+            LOG.error("Error reading fingerprints, writing every line: ", e);
+            entries.clear();
+        }
+    }
+
+    public void save() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        File file = new File(fingerprintFile);
+        File tempFile = new File(fingerprintFile + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> fingerprint : entries.entrySet()) {
+                Entry entry = fingerprint.getValue();
+                writer.write(fingerprint.getKey() + SEPARATOR + entry.hashes.length);
+                writer.newLine();
+                for (int i = 0; i < entry.hashes.length; i++) {
+                    writer.write(Long.toHexString(entry.hashes[i]));
+                    if (entry.lines != null) {
+                        for (String column : entry.lines[i]) {
+                            writer.write(SEPARATOR);
+                            writer.write(escape(column));
+                        }
+                    }
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            LOG.error("Error writing fingerprints: ", e);
+            return;
+        }
+
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            LOG.info("Saved fingerprints of {} domains to {}", entries.size(), fingerprintFile);
+        } catch (IOException e) {
+            LOG.error("Error replacing fingerprints: ", e);
+        }
+    }
+
+    private static long hash(AdsTxtRecord adsTxtRecord) {
+        return ParserUtil.contentHash(adsTxtRecord.getAdServingDomain() + SEPARATOR
+                + adsTxtRecord.getPublisherAccId() + SEPARATOR
+                + adsTxtRecord.getAccType() + SEPARATOR
+                + adsTxtRecord.getCertAuthId());
+    }
+
+    // Tabs and line breaks would corrupt the file format, they never occur in valid values anyway
+    private static String escape(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * <p> Distinct hashes of the lines of a domain in ascending order, with the lines if they are kept </p>
+     */
+    private static class Entry {
+        private final long[] hashes;
+        private final String[][] lines;
+
+        Entry(long[] hashes, String[][] lines) {
+            this.hashes = hashes;
+            this.lines = lines;
+        }
+
+        /**
+         * @param adsTxtRecords the records of the hashes if their lines are kept, null otherwise
+         */
+        static Entry of(long[] recordHashes, List<AdsTxtRecord> adsTxtRecords) {
+            Integer[] order = new Integer[recordHashes.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (first, second) -> Long.compare(recordHashes[first], recordHashes[second]));
+
+            long[] distinctHashes = new long[recordHashes.length];
+            String[][] distinctLines = adsTxtRecords != null ? new String[recordHashes.length][] : null;
+            int count = 0;
+            for (int index : order) {
+                if (count > 0 && distinctHashes[count - 1] == recordHashes[index]) {
+                    continue;
+                }
+                distinctHashes[count] = recordHashes[index];
+                if (distinctLines != null) {
+                    AdsTxtRecord adsTxtRecord = adsTxtRecords.get(index);
+                    distinctLines[count] = new String[]{adsTxtRecord.getAdServingDomain(),
+                            adsTxtRecord.getPublisherAccId(), adsTxtRecord.getAccType(), adsTxtRecord.getCertAuthId()};
+                }
+                count++;
+            }
+            return new Entry(count == 0 ? NO_HASHES : Arrays.copyOf(distinctHashes, count),
+                    distinctLines != null ? Arrays.copyOf(distinctLines, count) : null);
+        }
+
+        boolean contains(long hash) {
+            return Arrays.binarySearch(hashes, hash) >= 0;
+        }
+
+        AdsTxtRecord toRecord(int line, String domain, DateTime insertDate) {
+            AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+            adsTxtRecord.setInsertDate(insertDate);
+            adsTxtRecord.setSourceDomain(domain);
+            adsTxtRecord.setAdServingDomain(lines[line][0]);
+            adsTxtRecord.setPublisherAccId(lines[line][1]);
+            adsTxtRecord.setAccType(lines[line][2]);
+            adsTxtRecord.setCertAuthId(lines[line][3]);
+            return adsTxtRecord;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.model;
+
+/**
+ * <p> Account relationship of an ads.txt record (third field) </p>
+ */
+public enum AccountType {
+    DIRECT,
+    RESELLER;
+
+    /**
+     * @param accType value of the field as written in the file
+     * @return the account type, null unless the value is exactly DIRECT or RESELLER
+     */
+    public static AccountType getValueOf(String accType) {
+        if (DIRECT.name().equals(accType)) {
+            return DIRECT;
+        }
+        if (RESELLER.name().equals(accType)) {
+            return RESELLER;
+        }
+        return null;
+    }
+}
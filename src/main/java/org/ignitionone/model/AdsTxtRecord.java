@@ -22,14 +22,15 @@
 package org.ignitionone.model;
 
 import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormat;
 
 public class AdsTxtRecord {
     private DateTime insertDate;
     private String sourceDomain;
     private String adServingDomain;
     private String publisherAccId;
-    private String accType;
+    // Values other than DIRECT and RESELLER are kept as written in otherAccType
+    private AccountType accountType;
+    private String otherAccType;
     private String certAuthId;
 
     public String getSourceDomain() {
@@ -65,11 +66,24 @@ public class AdsTxtRecord {
     }
 
     public String getAccType() {
-        return accType;
+        return accountType != null ? accountType.name() : otherAccType;
     }
 
     public void setAccType(String accType) {
-        this.accType = accType;
+        this.accountType = AccountType.getValueOf(accType);
+        this.otherAccType = accountType != null ? null : accType;
+    }
+
+    /**
+     * @return the account type, null if the value is neither DIRECT nor RESELLER, see {@link #getAccType()}
+     */
+    public AccountType getAccountType() {
+        return accountType;
+    }
+
+    public void setAccountType(AccountType accountType) {
+        this.accountType = accountType;
+        this.otherAccType = null;
     }
 
     public String getCertAuthId() {
@@ -82,11 +96,16 @@ public class AdsTxtRecord {
 
     @Override
     public String toString() {
-        return DateTimeFormat.forPattern("YYYY-M-dd HH:MM:SS").print(this.getInsertDate()) + "," +
-                this.getSourceDomain() + "," +
-                this.getAdServingDomain() + "," +
-                this.getPublisherAccId() + "," +
-                this.getAccType() + "," +
-                this.getCertAuthId() + "\n";
-    }
-}
\ No newline at end of file
+        return toLine(this.getInsertDate(), this.getSourceDomain(), this.getAdServingDomain(),
+                this.getPublisherAccId(), this.getAccType(), this.getCertAuthId());
+    }
+
+    /**
+     * <p> Line of the file and console stores for the given values, see {@link AdsTxtRecordSerializer} </p>
+     */
+    public static String toLine(DateTime insertDate, String sourceDomain, String adServingDomain,
+                                String publisherAccId, String accType, String certAuthId) {
+        return new AdsTxtRecordSerializer().toLine(insertDate, sourceDomain, adServingDomain, publisherAccId,
+                accType, certAuthId);
+    }
+}
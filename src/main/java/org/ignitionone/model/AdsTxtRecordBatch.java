@@ -0,0 +1,230 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.model;
+
+import org.joda.time.DateTime;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * Columnar batch of ads.txt records. Every field is a column of primitives: insert dates as epoch millis and
+ * the text fields as ids into a dictionary of the distinct values of the batch, so a row costs 28 bytes in
+ * arrays instead of a record object and its references. Stores read the columns row by row, {@link #asList()}
+ * views the batch as records for stores that take a list.
+ * </p>
+ * <p>
+ * Not thread safe while rows are added, a batch that is no longer added to can be read by several threads.
+ * </p>
+ */
+public class AdsTxtRecordBatch {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int NULL_VALUE = -1;
+
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Integer> valueIds = new HashMap<>();
+
+    private long[] insertDates;
+    private int[] sourceDomains;
+    private int[] adServingDomains;
+    private int[] publisherAccIds;
+    private int[] accTypes;
+    private int[] certAuthIds;
+    private int size;
+
+    // Records of a crawl share one insert date, which is materialized once
+    private DateTime lastInsertDate;
+
+    public AdsTxtRecordBatch() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public AdsTxtRecordBatch(int capacity) {
+        capacity = Math.max(capacity, 1);
+        insertDates = new long[capacity];
+        sourceDomains = new int[capacity];
+        adServingDomains = new int[capacity];
+        publisherAccIds = new int[capacity];
+        accTypes = new int[capacity];
+        certAuthIds = new int[capacity];
+    }
+
+    public static AdsTxtRecordBatch of(List<AdsTxtRecord> adsTxtRecords) {
+        AdsTxtRecordBatch batch = new AdsTxtRecordBatch(adsTxtRecords.size());
+        batch.addAll(adsTxtRecords);
+        return batch;
+    }
+
+    public void add(AdsTxtRecord adsTxtRecord) {
+        if (size == insertDates.length) {
+            grow();
+        }
+        DateTime insertDate = adsTxtRecord.getInsertDate();
+        insertDates[size] = insertDate == null ? NO_DATE : insertDate.getMillis();
+        if (insertDate != null) {
+            lastInsertDate = insertDate;
+        }
+        sourceDomains[size] = valueId(adsTxtRecord.getSourceDomain());
+        adServingDomains[size] = valueId(adsTxtRecord.getAdServingDomain());
+        publisherAccIds[size] = valueId(adsTxtRecord.getPublisherAccId());
+        accTypes[size] = valueId(adsTxtRecord.getAccType());
+        certAuthIds[size] = valueId(adsTxtRecord.getCertAuthId());
+        size++;
+    }
+
+    public void addAll(List<AdsTxtRecord> adsTxtRecords) {
+        adsTxtRecords.forEach(this::add);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of distinct text values of the batch
+     */
+    public int getValueCount() {
+        return values.size();
+    }
+
+    public DateTime getInsertDate(int row) {
+        long millis = insertDates[checkRow(row)];
+        if (millis == NO_DATE) {
+            return null;
+        }
+        // Read once, concurrent readers may replace it
+        DateTime insertDate = lastInsertDate;
+        if (insertDate == null || insertDate.getMillis() != millis) {
+            insertDate = new DateTime(millis);
+            lastInsertDate = insertDate;
+        }
+        return insertDate;
+    }
+
+    public String getSourceDomain(int row) {
+        return value(sourceDomains[checkRow(row)]);
+    }
+
+    public String getAdServingDomain(int row) {
+        return value(adServingDomains[checkRow(row)]);
+    }
+
+    public String getPublisherAccId(int row) {
+        return value(publisherAccIds[checkRow(row)]);
+    }
+
+    public String getAccType(int row) {
+        return value(accTypes[checkRow(row)]);
+    }
+
+    public String getCertAuthId(int row) {
+        return value(certAuthIds[checkRow(row)]);
+    }
+
+    /**
+     * @param row
+     * @return the row as written by the file and console stores, same as the toString() of its record
+     */
+    public String toLine(int row) {
+        return AdsTxtRecord.toLine(getInsertDate(row), getSourceDomain(row), getAdServingDomain(row),
+                getPublisherAccId(row), getAccType(row), getCertAuthId(row));
+    }
+
+    /**
+     * @param row
+     * @return a new record with the values of the row
+     */
+    public AdsTxtRecord get(int row) {
+        AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+        adsTxtRecord.setInsertDate(getInsertDate(row));
+        adsTxtRecord.setSourceDomain(getSourceDomain(row));
+        adsTxtRecord.setAdServingDomain(getAdServingDomain(row));
+        adsTxtRecord.setPublisherAccId(getPublisherAccId(row));
+        adsTxtRecord.setAccType(getAccType(row));
+        adsTxtRecord.setCertAuthId(getCertAuthId(row));
+        return adsTxtRecord;
+    }
+
+    /**
+     * @return read only view of the batch as records, created on access
+     */
+    public List<AdsTxtRecord> asList() {
+        return new RecordList();
+    }
+
+    private int valueId(String value) {
+        if (value == null) {
+            return NULL_VALUE;
+        }
+        Integer id = valueIds.get(value);
+        if (id == null) {
+            id = values.size();
+            values.add(value);
+            valueIds.put(value, id);
+        }
+        return id;
+    }
+
+    private String value(int id) {
+        return id == NULL_VALUE ? null : values.get(id);
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", size: " + size);
+        }
+        return row;
+    }
+
+    private void grow() {
+        int capacity = insertDates.length * 2;
+        insertDates = Arrays.copyOf(insertDates, capacity);
+        sourceDomains = Arrays.copyOf(sourceDomains, capacity);
+        adServingDomains = Arrays.copyOf(adServingDomains, capacity);
+        publisherAccIds = Arrays.copyOf(publisherAccIds, capacity);
+        accTypes = Arrays.copyOf(accTypes, capacity);
+        certAuthIds = Arrays.copyOf(certAuthIds, capacity);
+    }
+
+    private class RecordList extends AbstractList<AdsTxtRecord> implements RandomAccess {
+        @Override
+        public AdsTxtRecord get(int row) {
+            return AdsTxtRecordBatch.this.get(row);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
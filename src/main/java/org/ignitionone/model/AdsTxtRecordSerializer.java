@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.model;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * <p>
+ * Writes records as the csv lines of the file and console stores:
+ * <br>
+ * insertDate,sourceDomain,adServingDomain,publisherAccId,accType,certAuthId
+ * </p>
+ * <p>
+ * Lines are built in a buffer reused for every line and written to the writer in one call. The insert date
+ * (yyyy-MM-dd HH:mm:ss) is formatted once and reused for as long as the records share it, which all records
+ * of a crawl do. Values containing a comma, quote or line break are quoted as per RFC 4180, null values are
+ * written as null and a missing insert date as an empty field.
+ * </p>
+ * <p>
+ * Not thread safe, every writer thread needs its own serializer.
+ * </p>
+ */
+public class AdsTxtRecordSerializer {
+    public static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormat.forPattern(DATE_PATTERN);
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+
+    private final StringBuilder buffer = new StringBuilder(128);
+    private char[] chars = new char[128];
+
+    // Insert date formatted last
+    private long lastMillis;
+    private DateTimeZone lastZone;
+    private String lastInsertDate;
+
+    public void write(Writer writer, AdsTxtRecord adsTxtRecord) throws IOException {
+        writeLine(writer, adsTxtRecord.getInsertDate(), adsTxtRecord.getSourceDomain(),
+                adsTxtRecord.getAdServingDomain(), adsTxtRecord.getPublisherAccId(), adsTxtRecord.getAccType(),
+                adsTxtRecord.getCertAuthId());
+    }
+
+    public void write(Writer writer, AdsTxtRecordBatch batch, int row) throws IOException {
+        writeLine(writer, batch.getInsertDate(row), batch.getSourceDomain(row), batch.getAdServingDomain(row),
+                batch.getPublisherAccId(row), batch.getAccType(row), batch.getCertAuthId(row));
+    }
+
+    /**
+     * <p> Writes all rows of the batch </p>
+     */
+    public void write(Writer writer, AdsTxtRecordBatch batch) throws IOException {
+        for (int row = 0; row < batch.size(); row++) {
+            write(writer, batch, row);
+        }
+    }
+
+    public void writeLine(Writer writer, DateTime insertDate, String sourceDomain, String adServingDomain,
+                          String publisherAccId, String accType, String certAuthId) throws IOException {
+        appendLine(insertDate, sourceDomain, adServingDomain, publisherAccId, accType, certAuthId);
+        int length = buffer.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        buffer.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+    }
+
+    /**
+     * @return the line for the given values, line break included
+     */
+    public String toLine(DateTime insertDate, String sourceDomain, String adServingDomain, String publisherAccId,
+                         String accType, String certAuthId) {
+        appendLine(insertDate, sourceDomain, adServingDomain, publisherAccId, accType, certAuthId);
+        return buffer.toString();
+    }
+
+    private void appendLine(DateTime insertDate, String sourceDomain, String adServingDomain,
+                            String publisherAccId, String accType, String certAuthId) {
+        buffer.setLength(0);
+        if (insertDate != null) {
+            buffer.append(formatInsertDate(insertDate));
+        }
+        buffer.append(SEPARATOR);
+        appendValue(sourceDomain);
+        buffer.append(SEPARATOR);
+        appendValue(adServingDomain);
+        buffer.append(SEPARATOR);
+        appendValue(publisherAccId);
+        buffer.append(SEPARATOR);
+        appendValue(accType);
+        buffer.append(SEPARATOR);
+        appendValue(certAuthId);
+        buffer.append('\n');
+    }
+
+    private String formatInsertDate(DateTime insertDate) {
+        if (lastInsertDate == null || lastMillis != insertDate.getMillis()
+                || !lastZone.equals(insertDate.getZone())) {
+            lastMillis = insertDate.getMillis();
+            lastZone = insertDate.getZone();
+            lastInsertDate = DATE_FORMATTER.print(insertDate);
+        }
+        return lastInsertDate;
+    }
+
+    private void appendValue(String value) {
+        if (value == null) {
+            buffer.append("null");
+            return;
+        }
+        if (!needsQuotes(value)) {
+            buffer.append(value);
+            return;
+        }
+        buffer.append(QUOTE);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == QUOTE) {
+                buffer.append(QUOTE);
+            }
+            buffer.append(c);
+        }
+        buffer.append(QUOTE);
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == SEPARATOR || c == QUOTE || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.model;
+
+/**
+ * <p>
+ * Variable line of an ads.txt file (<code>NAME=value</code>), e.g. CONTACT, SUBDOMAIN, OWNERDOMAIN or
+ * MANAGERDOMAIN. Variables are not records, the parser hands them out separately. Names are upper cased, values
+ * are trimmed and cut at a '#'.
+ * </p>
+ */
+public class AdsTxtVariable {
+    public static final String CONTACT = "CONTACT";
+    public static final String SUBDOMAIN = "SUBDOMAIN";
+    public static final String INVENTORYPARTNERDOMAIN = "INVENTORYPARTNERDOMAIN";
+    public static final String OWNERDOMAIN = "OWNERDOMAIN";
+    public static final String MANAGERDOMAIN = "MANAGERDOMAIN";
+
+    private final String name;
+    private final String value;
+
+    public AdsTxtVariable(String name, String value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public boolean isSubdomain() {
+        return SUBDOMAIN.equals(name);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AdsTxtVariable)) {
+            return false;
+        }
+        AdsTxtVariable other = (AdsTxtVariable) o;
+        return name.equals(other.name) && value.equals(other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name + "=" + value;
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.model;
+
+/**
+ * <p>
+ * A domain or url to crawl with its priority as given by the read stores. Higher priorities are crawled first
+ * and are the last to be deferred when the crawl runs out of time, unweighted targets have priority 0.
+ * </p>
+ */
+public class CrawlTarget {
+    public static final int DEFAULT_PRIORITY = 0;
+
+    private final String domain;
+    private final int priority;
+
+    public CrawlTarget(String domain) {
+        this(domain, DEFAULT_PRIORITY);
+    }
+
+    public CrawlTarget(String domain, int priority) {
+        this.domain = domain;
+        this.priority = priority;
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CrawlTarget)) {
+            return false;
+        }
+        CrawlTarget other = (CrawlTarget) o;
+        return priority == other.priority && domain.equals(other.domain);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * domain.hashCode() + priority;
+    }
+
+    @Override
+    public String toString() {
+        return domain + ":" + priority;
+    }
+}
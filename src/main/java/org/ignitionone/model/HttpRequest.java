@@ -0,0 +1,239 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.model;
+
+import org.ignitionone.util.ParserUtil;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * A request for the ads.txt file of a domain. The url defaults to http://domain/ads.txt, redirects and
+ * fallbacks (e.g. https -> http) change scheme, host, port and path but keep the domain, which stays the
+ * source domain of the records found.
+ * </p>
+ */
+public class HttpRequest {
+    public static final String ADSTXT = "/ads.txt";
+
+    private String domainName;
+    private String scheme = "http";
+    private String host;
+    private int port;
+    private String path = ADSTXT;
+    private String address;
+    private int redirects;
+    private int retries;
+    private int priority;
+    private List<String> fallbackUrls = Collections.emptyList();
+    private final Map<String, String> headers = new LinkedHashMap<>();
+
+    public String getDomainName() {
+        return domainName;
+    }
+
+    public HttpRequest setDomainName(String domainName) {
+        this.domainName = domainName;
+        return this;
+    }
+
+    public String getScheme() {
+        return scheme;
+    }
+
+    public HttpRequest setScheme(String scheme) {
+        this.scheme = scheme;
+        return this;
+    }
+
+    /**
+     * @return the host to connect to, the host of the domain unless redirected
+     */
+    public String getHost() {
+        return host != null ? host : ParserUtil.getHost(domainName);
+    }
+
+    public HttpRequest setHost(String host) {
+        this.host = host;
+        return this;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public HttpRequest setPort(int port) {
+        this.port = port;
+        return this;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public HttpRequest setPath(String path) {
+        this.path = path;
+        return this;
+    }
+
+    /**
+     * <p> Sets scheme, host, port and path from an absolute url, the default port of the scheme if it has none </p>
+     *
+     * @param url
+     * @return
+     */
+    public HttpRequest setUrl(URL url) {
+        this.scheme = url.getProtocol();
+        this.host = url.getHost();
+        this.port = url.getPort() < 0 ? url.getDefaultPort() : url.getPort();
+        this.path = url.getFile().isEmpty() ? "/" : url.getFile();
+        return this;
+    }
+
+    public String getUrl() {
+        return scheme + "://" + getHost() + ":" + port + path;
+    }
+
+    public int getRedirects() {
+        return redirects;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return the same request once more, with its retry count increased
+     */
+    public HttpRequest retry() {
+        HttpRequest retried = follow(toUrl());
+        retried.redirects = redirects;
+        retried.retries = retries + 1;
+        return retried;
+    }
+
+    /**
+     * @return the urls to try, in order, if this request fails
+     */
+    public List<String> getFallbackUrls() {
+        return fallbackUrls;
+    }
+
+    public HttpRequest setFallbackUrls(List<String> fallbackUrls) {
+        this.fallbackUrls = fallbackUrls;
+        return this;
+    }
+
+    /**
+     * @return a request for the first fallback url, or null if there is none left
+     */
+    public HttpRequest nextFallback() {
+        for (int i = 0; i < fallbackUrls.size(); i++) {
+            try {
+                HttpRequest fallback = follow(new URL(fallbackUrls.get(i)));
+                fallback.redirects = 0;
+                fallback.fallbackUrls = new ArrayList<>(fallbackUrls.subList(i + 1, fallbackUrls.size()));
+                return fallback;
+            } catch (MalformedURLException e) {
+                // Skip, fallback urls are built by the crawler and should always be valid
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param location absolute url the response redirected to
+     * @return a request for the location, keeping domain, headers and remaining fallbacks
+     */
+    public HttpRequest redirect(URL location) {
+        HttpRequest redirected = follow(location);
+        redirected.redirects = redirects + 1;
+        return redirected;
+    }
+
+    private URL toUrl() {
+        try {
+            return new URL(scheme, getHost(), port, path);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("Invalid url " + getUrl(), e);
+        }
+    }
+
+    private HttpRequest follow(URL url) {
+        HttpRequest httpRequest = new HttpRequest()
+                .setDomainName(domainName)
+                .setUrl(url)
+                .setFallbackUrls(fallbackUrls)
+                .setPriority(priority);
+        // The pre-resolved address is only valid for the original host
+        if (httpRequest.getHost().equalsIgnoreCase(getHost())) {
+            httpRequest.setAddress(address);
+        }
+        httpRequest.headers.putAll(headers);
+        return httpRequest;
+    }
+    /**
+     * @return crawl priority of the domain, higher priorities are crawled first
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    public HttpRequest setPriority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * @return the address the host resolved to during dns pre-resolution, null if unknown
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    public HttpRequest setAddress(String address) {
+        this.address = address;
+        return this;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public HttpRequest addHeader(String name, String value) {
+        this.headers.put(name, value);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "DomainName: " + this.getDomainName() + "\n" +
+                "Url: " + this.getUrl() + "\n" +
+                "Headers: " + this.getHeaders();
+    }
+}
@@ -26,6 +26,12 @@ public class HttpResponse {
     private String responseContent;
     private String domainName;
     private boolean hasAdsTxt;
+    private String etag;
+    private String lastModified;
+    private String location;
+    private String retryAfter;
+    private String error;
+    private HttpRequest httpRequest;
 
     public int getResponseCode() {
         return responseCode;
@@ -63,6 +69,79 @@ public class HttpResponse {
         return this;
     }
 
+    public String getEtag() {
+        return etag;
+    }
+
+    public HttpResponse setEtag(String etag) {
+        this.etag = etag;
+        return this;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public HttpResponse setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+        return this;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public HttpResponse setLocation(String location) {
+        this.location = location;
+        return this;
+    }
+
+    public String getRetryAfter() {
+        return retryAfter;
+    }
+
+    public HttpResponse setRetryAfter(String retryAfter) {
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * @return why the request failed without a response, null if there is a response
+     */
+    public String getError() {
+        return error;
+    }
+
+    public HttpResponse setError(String error) {
+        this.error = error;
+        return this;
+    }
+
+    public boolean isError() {
+        return error != null;
+    }
+
+    /**
+     * @return the request this is the response to
+     */
+    public HttpRequest getHttpRequest() {
+        return httpRequest;
+    }
+
+    public HttpResponse setHttpRequest(HttpRequest httpRequest) {
+        this.httpRequest = httpRequest;
+        return this;
+    }
+
+    public boolean isRedirect() {
+        return responseCode == 301 || responseCode == 302 || responseCode == 303
+                || responseCode == 307 || responseCode == 308;
+    }
+
+    public boolean isNotModified() {
+        return responseCode == 304;
+    }
+
     @Override
     public String toString() {
         return "StatusCode: " + this.getResponseCode() + "\n" +
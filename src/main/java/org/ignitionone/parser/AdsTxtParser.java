@@ -0,0 +1,361 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.parser;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * Single pass scanner turning the body of an ads.txt file into records. Lines, field boundaries, comments and
+ * whitespace are recognized on the characters of the body; the only objects created are the records and
+ * their field values, which are shared through the {@link CrawlDictionary}.
+ * </p>
+ * <p>
+ * The output is the same as that of splitting the body on line breaks and every trimmed line on
+ * <code>\s*,\s*</code>: lines which are empty or start with '#' are skipped, a '#' in one of the first three
+ * fields cuts the field, the fourth field is kept as is if there are exactly four fields. A line with fewer
+ * than three fields gives a partial record.
+ * </p>
+ * <p>
+ * Variable lines (<code>CONTACT=...</code>, <code>SUBDOMAIN=...</code>) are not records, they are handed out
+ * as {@link AdsTxtVariable}s.
+ * </p>
+ * <p>
+ * Bodies over the split size are cut into segments at line breaks when parsed on a fork/join pool, so that
+ * other workers can steal the segments of a single huge file.
+ * </p>
+ */
+public class AdsTxtParser {
+    private static final Logger LOG = LoggerFactory.getLogger(AdsTxtParser.class);
+    private static final int FIELDS = 4;
+
+    private final int splitChars;
+    private final CrawlDictionary crawlDictionary;
+
+    public AdsTxtParser() {
+        this(0, new CrawlDictionary());
+    }
+
+    /**
+     * @param splitChars      size of the segments a body is cut into on a fork/join pool, 0 never cuts bodies
+     * @param crawlDictionary dictionary of the field values and insert date of the records
+     */
+    public AdsTxtParser(int splitChars, CrawlDictionary crawlDictionary) {
+        this.splitChars = splitChars;
+        this.crawlDictionary = crawlDictionary;
+    }
+
+    public CrawlDictionary getCrawlDictionary() {
+        return crawlDictionary;
+    }
+
+    /**
+     * <p> Parses the body and appends its records to the given list, variable lines are skipped </p>
+     *
+     * @param sourceDomain  domain the body was fetched for
+     * @param content       body of the ads.txt file
+     * @param adsTxtRecords
+     */
+    public void parse(String sourceDomain, String content, List<AdsTxtRecord> adsTxtRecords) {
+        parse(sourceDomain, content, adsTxtRecords, null);
+    }
+
+    /**
+     * <p> Parses the body and appends its records and variables to the given lists </p>
+     *
+     * @param sourceDomain    domain the body was fetched for
+     * @param content         body of the ads.txt file
+     * @param adsTxtRecords
+     * @param adsTxtVariables null to skip variable lines
+     */
+    public void parse(String sourceDomain, String content, List<AdsTxtRecord> adsTxtRecords,
+                      List<AdsTxtVariable> adsTxtVariables) {
+        if (splitChars <= 0 || content.length() <= splitChars || !ForkJoinTask.inForkJoinPool()) {
+            parse(sourceDomain, content, 0, content.length(), adsTxtRecords, adsTxtVariables);
+            return;
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        int segmentStart = 0;
+        while (segmentStart < content.length()) {
+            int segmentEnd = content.indexOf('\n', Math.min(segmentStart + splitChars, content.length() - 1));
+            segmentEnd = segmentEnd < 0 ? content.length() : segmentEnd + 1;
+            segments.add(new Segment(sourceDomain, content, segmentStart, segmentEnd, adsTxtVariables != null));
+            segmentStart = segmentEnd;
+        }
+        ForkJoinTask.invokeAll(segments);
+        for (Segment segment : segments) {
+            adsTxtRecords.addAll(segment.adsTxtRecords);
+            if (adsTxtVariables != null) {
+                adsTxtVariables.addAll(segment.adsTxtVariables);
+            }
+        }
+    }
+
+    /**
+     * <p> Only the variables of the body, records are not built </p>
+     *
+     * @param content body of the ads.txt file
+     * @return
+     */
+    public static List<AdsTxtVariable> parseVariables(String content) {
+        List<AdsTxtVariable> adsTxtVariables = new ArrayList<>();
+        int lineStart = 0;
+        while (lineStart < content.length()) {
+            int lineEnd = content.indexOf('\n', lineStart);
+            lineEnd = lineEnd < 0 ? content.length() : lineEnd;
+            int start = lineStart;
+            lineStart = lineEnd + 1;
+            while (start < lineEnd && content.charAt(start) <= ' ') {
+                start++;
+            }
+            int separator = variableSeparator(content, start, lineEnd);
+            if (separator >= 0) {
+                adsTxtVariables.add(variable(content, start, separator, lineEnd, null));
+            }
+        }
+        return adsTxtVariables;
+    }
+
+    private void parse(String sourceDomain, String content, int from, int to, List<AdsTxtRecord> adsTxtRecords,
+                       List<AdsTxtVariable> adsTxtVariables) {
+        // Start and end of the first fields of the current line
+        int[] fields = new int[FIELDS * 2];
+        int lineStart = from;
+
+        while (lineStart < to) {
+            int lineEnd = content.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd > to) {
+                lineEnd = to;
+            }
+            int start = lineStart;
+            int end = lineEnd;
+            lineStart = lineEnd + 1;
+
+            // Same as String.trim()
+            while (start < end && content.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && content.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (start == end || content.charAt(start) == '#') {
+                continue;
+            }
+
+            int separator = variableSeparator(content, start, end);
+            if (separator >= 0) {
+                if (adsTxtVariables != null) {
+                    adsTxtVariables.add(variable(content, start, separator, end, crawlDictionary));
+                }
+                continue;
+            }
+            adsTxtRecords.add(parseLine(sourceDomain, content, start, end, fields));
+        }
+    }
+
+    /**
+     * <p>
+     * A line is a variable if it starts with a name of letters, digits and underscores followed by '='
+     * (whitespace allowed before the '='). Records never qualify, their first field holds a dot or a comma
+     * ends it.
+     * </p>
+     *
+     * @return index of the '=', -1 if the line is not a variable
+     */
+    private static int variableSeparator(String content, int start, int end) {
+        int i = start;
+        while (i < end && isNameChar(content.charAt(i))) {
+            i++;
+        }
+        if (i == start) {
+            return -1;
+        }
+        while (i < end && (content.charAt(i) == ' ' || content.charAt(i) == '\t')) {
+            i++;
+        }
+        return i < end && content.charAt(i) == '=' ? i : -1;
+    }
+
+    private static AdsTxtVariable variable(String content, int start, int separator, int end,
+                                           CrawlDictionary crawlDictionary) {
+        int nameEnd = separator;
+        while (content.charAt(nameEnd - 1) == ' ' || content.charAt(nameEnd - 1) == '\t') {
+            nameEnd--;
+        }
+        int valueStart = separator + 1;
+        int valueEnd = content.indexOf('#', valueStart);
+        valueEnd = valueEnd < 0 || valueEnd > end ? end : valueEnd;
+        while (valueStart < valueEnd && content.charAt(valueStart) <= ' ') {
+            valueStart++;
+        }
+        while (valueEnd > valueStart && content.charAt(valueEnd - 1) <= ' ') {
+            valueEnd--;
+        }
+        String name = content.substring(start, nameEnd).toUpperCase(Locale.ROOT);
+        String value = content.substring(valueStart, valueEnd);
+        if (crawlDictionary != null) {
+            name = crawlDictionary.canonicalize(name);
+        }
+        return new AdsTxtVariable(name, value);
+    }
+
+    private static boolean isNameChar(char c) {
+        return c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_';
+    }
+
+    private AdsTxtRecord parseLine(String sourceDomain, String content, int start, int end, int[] fields) {
+        int fieldCount = 0;
+        // Trailing empty fields do not count
+        int nonEmptyFieldCount = 0;
+        int fieldStart = start;
+
+        for (int i = start; i <= end; i++) {
+            if (i < end && content.charAt(i) != ',') {
+                continue;
+            }
+
+            // Whitespace around the comma belongs to the separator
+            int fieldEnd = i;
+            if (i < end) {
+                while (fieldEnd > fieldStart && isSeparatorWhitespace(content.charAt(fieldEnd - 1))) {
+                    fieldEnd--;
+                }
+            }
+            if (fieldCount < FIELDS) {
+                fields[fieldCount * 2] = fieldStart;
+                fields[fieldCount * 2 + 1] = fieldEnd;
+            }
+            fieldCount++;
+            if (fieldEnd > fieldStart) {
+                nonEmptyFieldCount = fieldCount;
+            }
+
+            fieldStart = i + 1;
+            while (fieldStart < end && isSeparatorWhitespace(content.charAt(fieldStart))) {
+                fieldStart++;
+            }
+            i = fieldStart - 1;
+        }
+
+        AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+        if (nonEmptyFieldCount == 0) {
+            return adsTxtRecord;
+        }
+
+        adsTxtRecord.setInsertDate(crawlDictionary.getInsertDate());
+        adsTxtRecord.setSourceDomain(sourceDomain);
+        adsTxtRecord.setAdServingDomain(crawlDictionary.canonicalize(field(content, fields[0], fields[1])));
+        if (nonEmptyFieldCount < 3) {
+            LOG.error("Error parsing adstxt data! Invalid adsTxtRecordRow for domain: {}", sourceDomain);
+            if (nonEmptyFieldCount == 2) {
+                adsTxtRecord.setPublisherAccId(crawlDictionary.canonicalize(field(content, fields[2], fields[3])));
+            }
+            return adsTxtRecord;
+        }
+        adsTxtRecord.setPublisherAccId(crawlDictionary.canonicalize(field(content, fields[2], fields[3])));
+        // DIRECT and RESELLER are held as an enum, other values are kept as written
+        adsTxtRecord.setAccType(crawlDictionary.canonicalize(field(content, fields[4], fields[5])));
+
+        // 4th column is optional
+        if (nonEmptyFieldCount == 4) {
+            adsTxtRecord.setCertAuthId(crawlDictionary.canonicalize(content.substring(fields[6], fields[7])));
+        } else {
+            adsTxtRecord.setCertAuthId("");
+        }
+        return adsTxtRecord;
+    }
+
+    /**
+     * <p> A field up to the first '#', trimmed, unless it is blank or starts with '#' </p>
+     */
+    private static String field(String content, int start, int end) {
+        if (start == end || content.charAt(start) == '#' || isBlank(content, start, end)) {
+            return content.substring(start, end);
+        }
+        int comment = start;
+        while (comment < end && content.charAt(comment) != '#') {
+            comment++;
+        }
+        if (comment == end) {
+            return content.substring(start, end);
+        }
+        end = comment;
+        while (start < end && content.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && content.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return content.substring(start, end);
+    }
+
+    private static boolean isBlank(String content, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(content.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <p> Whitespace as matched by \s </p>
+     */
+    private static boolean isSeparatorWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * <p> Records and variables of a range of lines of a body </p>
+     */
+    private class Segment extends RecursiveAction {
+        private final String sourceDomain;
+        private final String content;
+        private final int start;
+        private final int end;
+        private final List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        private final List<AdsTxtVariable> adsTxtVariables;
+
+        Segment(String sourceDomain, String content, int start, int end, boolean withVariables) {
+            this.sourceDomain = sourceDomain;
+            this.content = content;
+            this.start = start;
+            this.end = end;
+            this.adsTxtVariables = withVariables ? new ArrayList<>() : null;
+        }
+
+        @Override
+        protected void compute() {
+            parse(sourceDomain, content, start, end, adsTxtRecords, adsTxtVariables);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.parser;
+
+import org.joda.time.DateTime;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Crawl scoped dictionary of the field values of ads.txt records. The same ad serving domains, publisher
+ * account ids and certification authority ids occur in thousands of files; records parsed with the dictionary
+ * share one instance of every value instead of holding their own copies, and all records of the crawl share
+ * one insert date.
+ * </p>
+ * <p>
+ * Once the dictionary holds maxEntries values, values not in it yet are returned as they are.
+ * </p>
+ */
+public class CrawlDictionary {
+    private static final int DEFAULT_MAX_ENTRIES = 1000000;
+
+    private final DateTime insertDate;
+    private final int maxEntries;
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+
+    public CrawlDictionary() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries max number of distinct values kept, 0 disables the dictionary
+     */
+    public CrawlDictionary(int maxEntries) {
+        this(new DateTime(), maxEntries);
+    }
+
+    public CrawlDictionary(DateTime insertDate, int maxEntries) {
+        this.insertDate = insertDate;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return insert date of all records of the crawl
+     */
+    public DateTime getInsertDate() {
+        return insertDate;
+    }
+
+    /**
+     * @param value
+     * @return the instance of the value held by the dictionary
+     */
+    public String canonicalize(String value) {
+        if (value == null || maxEntries <= 0) {
+            return value;
+        }
+        String canonical = values.get(value);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (values.size() >= maxEntries) {
+            return value;
+        }
+        canonical = values.putIfAbsent(value, value);
+        return canonical != null ? canonical : value;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
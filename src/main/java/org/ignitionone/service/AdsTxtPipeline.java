@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.service;
+
+import org.ignitionone.datastore.core.WriteDataStore;
+import org.ignitionone.journal.CrawlJournal;
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtRecordBatch;
+import org.ignitionone.model.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Bounded fetch -> parse -> write pipeline. Http responses are put on a bounded queue by the http workers and
+ * drained by a single thread which parses all queued responses at once with a {@link ParallelResponseParser}
+ * and hands the parsed records to the write stores in columnar batches ({@link AdsTxtRecordBatch}).
+ * </p>
+ * <p>
+ * When the queue is full {@link #accept(HttpResponse)} blocks, which holds back the http worker that delivered
+ * the response. Memory is thereby bounded by the queue capacity and batch size, not by the size of the crawl.
+ * </p>
+ * <p>
+ * Every parsed domain is recorded in the {@link CrawlJournal}, every batch all write stores got is committed
+ * to it.
+ * </p>
+ * <p>
+ * A response or write store that fails is logged and the pipeline keeps draining, so the http workers are never
+ * left blocked on a full queue. Failed writes are reported by {@link #hasFailedWrites()}, from then on no batch
+ * is committed to the journal.
+ * </p>
+ */
+public class AdsTxtPipeline implements Consumer<HttpResponse> {
+    private static final Logger LOG = LoggerFactory.getLogger(AdsTxtPipeline.class);
+    private static final HttpResponse END_OF_STREAM = new HttpResponse();
+
+    private final ParallelResponseParser responseParser;
+    private final List<WriteDataStore> writeDataStores;
+    private final CrawlJournal crawlJournal;
+    private final BlockingQueue<HttpResponse> responseQueue;
+    private final int batchSize;
+    private final Thread parserThread;
+
+    private long responseCount;
+    private long recordCount;
+    private volatile boolean failedWrites;
+
+    public AdsTxtPipeline(BiConsumer<HttpResponse, List<AdsTxtRecord>> responseParser,
+                          List<WriteDataStore> writeDataStores, int queueCapacity, int batchSize) {
+        this(new ParallelResponseParser(responseParser), writeDataStores, new CrawlJournal(""), queueCapacity,
+                batchSize);
+    }
+
+    public AdsTxtPipeline(ParallelResponseParser responseParser, List<WriteDataStore> writeDataStores,
+                          CrawlJournal crawlJournal, int queueCapacity, int batchSize) {
+        this.responseParser = responseParser;
+        this.writeDataStores = writeDataStores;
+        this.crawlJournal = crawlJournal;
+        this.responseQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.parserThread = new Thread(this::drain, "adstxt-pipeline");
+    }
+
+    public void start() {
+        parserThread.start();
+    }
+
+    @Override
+    public void accept(HttpResponse httpResponse) {
+        try {
+            responseQueue.put(httpResponse);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted while queueing response for domain: {}", httpResponse.getDomainName());
+        }
+    }
+
+    /**
+     * <p> Signals that no more responses will arrive and waits until all queued responses are written </p>
+     */
+    public void finish() {
+        accept(END_OF_STREAM);
+        try {
+            parserThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted while waiting for the pipeline to finish", e);
+        }
+        LOG.info("Pipeline processed {} responses into {} adsTxtRecords", responseCount, recordCount);
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return true if a write store threw or reported failed writes while records were handed to it
+     */
+    public boolean hasFailedWrites() {
+        return failedWrites;
+    }
+
+    private void drain() {
+        AdsTxtRecordBatch batch = new AdsTxtRecordBatch(batchSize);
+        List<HttpResponse> httpResponses = new ArrayList<>();
+        boolean endOfStream = false;
+        try {
+            while (!endOfStream) {
+                httpResponses.add(responseQueue.take());
+                responseQueue.drainTo(httpResponses);
+                if (httpResponses.get(httpResponses.size() - 1) == END_OF_STREAM) {
+                    httpResponses.remove(httpResponses.size() - 1);
+                    endOfStream = true;
+                }
+
+                List<List<AdsTxtRecord>> parsedResponses = parseEach(httpResponses);
+                for (int i = 0; i < httpResponses.size(); i++) {
+                    responseCount++;
+                    List<AdsTxtRecord> adsTxtRecords = parsedResponses.get(i);
+                    // Null if the response failed to parse, which the parser logged
+                    if (adsTxtRecords == null) {
+                        continue;
+                    }
+                    String domain = httpResponses.get(i).getDomainName();
+                    try {
+                        crawlJournal.complete(domain, adsTxtRecords);
+                        batch.addAll(adsTxtRecords);
+                    } catch (RuntimeException e) {
+                        LOG.error("Error queueing records for domain: {}", domain, e);
+                    }
+                    if (batch.size() >= batchSize) {
+                        write(batch);
+                        batch = new AdsTxtRecordBatch(batchSize);
+                    }
+                }
+                httpResponses.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Pipeline interrupted, writing partial batch", e);
+        }
+        write(batch);
+    }
+
+    /**
+     * @return the records of every response, all null if parsing failed as a whole
+     */
+    private List<List<AdsTxtRecord>> parseEach(List<HttpResponse> httpResponses) {
+        try {
+            return responseParser.parseEach(httpResponses);
+        } catch (RuntimeException e) {
+            LOG.error("Error parsing {} responses", httpResponses.size(), e);
+            return Collections.nCopies(httpResponses.size(), null);
+        }
+    }
+
+    private void write(AdsTxtRecordBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        LOG.debug("Writing batch of {} adsTxtRecords", batch.size());
+        for (WriteDataStore writeDataStore : writeDataStores) {
+            try {
+                writeDataStore.insertAdsTxtRecordBatch(batch);
+            } catch (RuntimeException e) {
+                LOG.error("Error writing batch of {} adsTxtRecords: ", batch.size(), e);
+                failedWrites = true;
+            }
+        }
+        if (writeDataStores.stream().anyMatch(WriteDataStore::hasFailedWrites)) {
+            failedWrites = true;
+        }
+        // Once a store missed records nothing is committed anymore, a resumed crawl writes them again
+        if (!failedWrites) {
+            crawlJournal.commit();
+        }
+        recordCount += batch.size();
+    }
+}
@@ -22,31 +22,75 @@
 package org.ignitionone.service;
 
 import com.google.common.annotations.VisibleForTesting;
+import org.ignitionone.cache.ContentDedupCache;
+import org.ignitionone.cache.DnsCache;
+import org.ignitionone.cache.SchemeCache;
+import org.ignitionone.cache.ValidatorCache;
 import org.ignitionone.datastore.core.DataStoreFactory;
 import org.ignitionone.datastore.core.DataStoreType;
 import org.ignitionone.datastore.core.ReadDataStore;
 import org.ignitionone.datastore.core.WriteDataStore;
+import org.ignitionone.journal.CrawlJournal;
+import org.ignitionone.journal.DeferredTargets;
+import org.ignitionone.journal.RecordFingerprints;
 import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtRecordBatch;
+import org.ignitionone.model.AdsTxtVariable;
+import org.ignitionone.model.CrawlTarget;
 import org.ignitionone.model.HttpResponse;
+import org.ignitionone.parser.AdsTxtParser;
+import org.ignitionone.parser.CrawlDictionary;
 import org.ignitionone.util.ParserUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 public class AdsTxtService {
     private static final Logger LOG = LoggerFactory.getLogger(AdsTxtService.class);
-    private static final String NEWLINE = "\n";
     private final Properties config;
     private final List<ReadDataStore> readDataStores;
     private final List<WriteDataStore> writeDataStores;
+    private final boolean streaming;
+    private final ValidatorCache validatorCache;
+    private final boolean dnsPreResolution;
+    private final boolean registrableDomain;
+    private final DnsCache dnsCache;
+    private final SchemeCache schemeCache;
+    private final CrawlJournal crawlJournal;
+    private final DeferredTargets deferredTargets;
+    private final RecordFingerprints recordFingerprints;
+    private final AdsTxtParser adsTxtParser;
+    private final ParallelResponseParser responseParser;
+    private final ContentDedupCache contentDedupCache;
 
 
     public AdsTxtService(Properties config) {
         this.config = config;
+        this.streaming = Boolean.parseBoolean(config.getProperty("pipeline.streaming", "false"));
+        CrawlDictionary crawlDictionary =
+                new CrawlDictionary(Integer.parseInt(config.getProperty("dictionary.max.entries", "1000000")));
+        this.validatorCache = new ValidatorCache(config.getProperty("cache.validator.file", ""), crawlDictionary);
+        this.dnsPreResolution = Boolean.parseBoolean(config.getProperty("dns.resolver.enabled", "true"));
+        this.registrableDomain = Boolean.parseBoolean(config.getProperty("crawl.registrable.domain", "false"));
+        this.dnsCache = new DnsCache(config.getProperty("cache.dns.file", ""));
+        this.schemeCache = new SchemeCache(config.getProperty("cache.scheme.file", ""));
+        this.crawlJournal = new CrawlJournal(config.getProperty("journal.file", ""));
+        this.deferredTargets = new DeferredTargets(config.getProperty("crawl.deferred.file", ""));
+        this.recordFingerprints = new RecordFingerprints(config.getProperty("delta.file", ""),
+                Boolean.parseBoolean(config.getProperty("delta.tombstones", "false")), crawlDictionary);
+        this.adsTxtParser = new AdsTxtParser(Integer.parseInt(config.getProperty("parse.split.chars", "1048576")),
+                crawlDictionary);
+        this.contentDedupCache = new ContentDedupCache(adsTxtParser,
+                Integer.parseInt(config.getProperty("dedup.max.entries", "100000")),
+                Long.parseLong(config.getProperty("dedup.max.records",
+                        String.valueOf(ContentDedupCache.DEFAULT_MAX_RECORDS))));
+        this.responseParser = new ParallelResponseParser(this::processHttpResponse, config);
 
         // Initialize data stores
         this.writeDataStores = new LinkedList<>();
@@ -87,31 +131,57 @@ public class AdsTxtService {
     public void executionDirector() {
         try {
 
-            HttpService httpService = new HttpService(config);
+            validatorCache.load();
+            dnsCache.load();
+            schemeCache.load();
+            recordFingerprints.load();
+            HttpService httpService = new HttpService(config, validatorCache, dnsCache, schemeCache);
 
-            // Get Urls from all stores
-            Set<String> urlsFromAllStores = new HashSet<>();
-            this.readDataStores.forEach(readDataStore ->
-                    urlsFromAllStores.addAll(readDataStore.getAdsTxtUrls())
-            );
-
-            // Validate Urls obtained from all stores
-            Set<String> validUrls = ParserUtil.filterValidUrls(urlsFromAllStores);
+            // Stream urls from all stores and the domains the previous crawl deferred straight into validation,
+            // keeping only the priority of every valid domain
+            Map<String, Integer> priorities = new ConcurrentHashMap<>();
+            for (ReadDataStore readDataStore : readDataStores) {
+                try (Stream<CrawlTarget> crawlTargets = readDataStore.streamCrawlTargets()) {
+                    addValidTargets(crawlTargets, priorities, registrableDomain);
+                }
+            }
+            addValidTargets(deferredTargets.load().stream(), priorities, registrableDomain);
+            Set<String> validUrls = priorities.keySet();
             LOG.debug("Total valid unique urls: {}", validUrls.size());
 
-            // Execute http requests on these valid urls/domains
-            List<HttpResponse> responses = httpService.executeHttpRequests(
-                    validUrls.stream()
-                            .collect(Collectors.toList()));
+            // Skip the domains an interrupted crawl already completed
+            Set<String> pendingUrls = resumeCrawl(validUrls);
+
+            // Drop domains that do not resolve before spending http requests on them
+            Collection<String> targetUrls = resolveUrls(pendingUrls);
+            List<CrawlTarget> crawlTargets = new ArrayList<>(targetUrls.size());
+            targetUrls.forEach(url -> crawlTargets.add(new CrawlTarget(url, priorities.get(url))));
+
+            if (streaming) {
+                AdsTxtPipeline pipeline = newPipeline();
+                List<CrawlTarget> deferred = executeStreaming(httpService, pipeline, crawlTargets);
+                writeRemovedRecords(pipeline.hasFailedWrites());
+                writeDataStores.forEach(WriteDataStore::close);
+                saveCaches();
+                deferredTargets.save(deferred);
+                finishJournal(pipeline.hasFailedWrites());
+                return;
+            }
 
-            // Process http responses
-            LOG.info("Beginning processing of http responses!");
-            List<AdsTxtRecord> adsTxtRecords = processHttpResponses(responses);
+            // Execute http requests on these valid urls/domains, processing and journaling responses as they arrive
+            AdsTxtRecordBatch adsTxtRecords = new AdsTxtRecordBatch();
+            List<CrawlTarget> deferred = httpService.executeCrawl(crawlTargets, httpResponse ->
+                    processAndJournalHttpResponse(httpResponse, adsTxtRecords));
 
 
             // Write valid responses to all endpoints
             LOG.debug("Starting data insertion of {} adsTxtRecords", adsTxtRecords.size());
-            writeDataStores.forEach(writeDataStore -> writeDataStore.insertAdsTxtRecords(adsTxtRecords));
+            writeDataStores.forEach(writeDataStore -> writeDataStore.insertAdsTxtRecordBatch(adsTxtRecords));
+            writeRemovedRecords(false);
+            writeDataStores.forEach(WriteDataStore::close);
+            saveCaches();
+            deferredTargets.save(deferred);
+            finishJournal(false);
 
         } catch (Exception e) {
             LOG.error("Exception occured: {}", e);
@@ -121,71 +191,255 @@ public class AdsTxtService {
     }
 
     /**
-     * <p> Responsible for processing and retaining valid responses </p>
+     * <p>
+     * Streams responses through a bounded queue into parsing and batched writes while the crawl is still
+     * running, so memory is bounded by the queue and batch size instead of the size of the crawl.
+     * </p>
+     *
+     * @param httpService
+     * @param pipeline
+     * @param crawlTargets
+     * @return the deferred targets
+     */
+    private List<CrawlTarget> executeStreaming(HttpService httpService, AdsTxtPipeline pipeline,
+                                               List<CrawlTarget> crawlTargets) {
+        pipeline.start();
+
+        LOG.info("Streaming http responses into {} write stores", writeDataStores.size());
+        List<CrawlTarget> deferred = httpService.executeCrawl(crawlTargets, pipeline);
+        pipeline.finish();
+        return deferred;
+    }
+
+    /**
+     * <p>
+     * pipeline.queue.capacity - max number of responses waiting to be parsed
+     * <br>
+     * pipeline.batch.size - number of records handed to the write stores at once
+     * </p>
+     */
+    private AdsTxtPipeline newPipeline() {
+        int queueCapacity = Integer.parseInt(config.getProperty("pipeline.queue.capacity", "1000"));
+        int batchSize = Integer.parseInt(config.getProperty("pipeline.batch.size", "10000"));
+        return new AdsTxtPipeline(responseParser, writeDataStores, crawlJournal, queueCapacity, batchSize);
+    }
+
+    /**
+     * <p>
+     * Canonicalizes the targets like {@link ParserUtil#filterValidUrls}, a domain listed more than once keeps
+     * its highest priority.
+     * </p>
+     *
+     * @param crawlTargets
+     * @param registrableDomain collapse the targets to their registrable domain (crawl.registrable.domain)
+     * @return the priority of every valid domain
+     */
+    @VisibleForTesting
+    static Map<String, Integer> filterValidTargets(List<CrawlTarget> crawlTargets, boolean registrableDomain) {
+        Map<String, Integer> priorities = new ConcurrentHashMap<>();
+        addValidTargets(crawlTargets.stream(), priorities, registrableDomain);
+        return priorities;
+    }
+
+    /**
+     * <p> Canonicalizes the streamed targets in parallel into the priorities of {@link #filterValidTargets} </p>
+     */
+    private static void addValidTargets(Stream<CrawlTarget> crawlTargets, Map<String, Integer> priorities,
+                                        boolean registrableDomain) {
+        crawlTargets.parallel().forEach(crawlTarget -> {
+            String url = ParserUtil.sanitizeUrl(crawlTarget.getDomain(), registrableDomain);
+            if (url != null && !url.isEmpty()) {
+                priorities.merge(url, crawlTarget.getPriority(), Math::max);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Resumes an interrupted crawl from the crawl journal (journal.file): records of completed domains that did
+     * not reach the write stores are written now and the completed domains are not crawled again. Opens the
+     * journal for this crawl either way.
+     * </p>
+     *
+     * @param validUrls
+     * @return the urls still to crawl
+     * @throws IOException
+     */
+    private Set<String> resumeCrawl(Set<String> validUrls) throws IOException {
+        crawlJournal.load();
+        if (!crawlJournal.isResuming()) {
+            crawlJournal.open();
+            return validUrls;
+        }
+
+        // Stores written by the interrupted crawl keep its records, the others start over with the replay
+        if (crawlJournal.hasCommitted()) {
+            writeDataStores.forEach(WriteDataStore::resume);
+        }
+        List<AdsTxtRecord> uncommittedRecords = new ArrayList<>(crawlJournal.getUncommittedRecords());
+        writeDataStores.forEach(writeDataStore -> writeDataStore.insertAdsTxtRecords(uncommittedRecords));
+        crawlJournal.open();
+
+        Set<String> pendingUrls = new HashSet<>(validUrls);
+        pendingUrls.removeAll(crawlJournal.getCompletedDomains());
+        LOG.info("Resuming interrupted crawl: {} domains completed, {} records rewritten, {} domains to go",
+                new Object[]{validUrls.size() - pendingUrls.size(), uncommittedRecords.size(), pendingUrls.size()});
+        return pendingUrls;
+    }
+
+    /**
+     * <p>
+     * Deletes the crawl journal, unless a write store missed records: the journal is then kept so the next
+     * crawl writes its uncommitted records again.
+     * </p>
+     *
+     * @param failedWrites true if a store threw while records were written to it
+     */
+    private void finishJournal(boolean failedWrites) {
+        if (failedWrites || writeDataStores.stream().anyMatch(WriteDataStore::hasFailedWrites)) {
+            LOG.warn("Write stores failed, keeping the crawl journal for the next crawl");
+            crawlJournal.close();
+            return;
+        }
+        crawlJournal.finish();
+    }
+
+    /**
+     * <p>
+     * Resolves the hosts of all urls up front (see {@link DnsService}) unless dns.resolver.enabled is false.
+     * </p>
+     *
+     * @param validUrls
+     * @return the urls to crawl
+     */
+    private Collection<String> resolveUrls(Set<String> validUrls) {
+        if (!dnsPreResolution) {
+            return validUrls;
+        }
+        List<String> resolvedUrls = new DnsService(config, dnsCache).resolve(validUrls);
+        dnsCache.save();
+        return resolvedUrls;
+    }
+
+    /**
+     * <p> Responsible for processing and retaining valid responses, parsed by the {@link ParallelResponseParser} </p>
      *
      * @param httpResponses
      * @return
      */
     @VisibleForTesting
     public List<AdsTxtRecord> processHttpResponses(List<HttpResponse> httpResponses) {
-        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
-
-        httpResponses
-                .forEach(httpResponse -> {
-                    if (httpResponse.hasAdsTxtData()) {
-                        List<String> adsTxtRecordRows = Arrays.asList(httpResponse.getResponseContent().split(NEWLINE));
-                        String domain = httpResponse.getDomainName();
-
-                        for (String adsTxtRecordRow : adsTxtRecordRows) {
-                            adsTxtRecordRow = adsTxtRecordRow.trim();
-                            if (!adsTxtRecordRow.startsWith("#") && !adsTxtRecordRow.isEmpty()) {
-                                AdsTxtRecord adsTxtRecord = adsTxtRecordBuilder(adsTxtRecordRow, domain);
-                                if (adsTxtRecord != null) {
-                                    adsTxtRecords.add(adsTxtRecord);
-                                }
-                            }
-                        }
-                    } else
-                        LOG.debug("\n===========************\n" +
-                                "Non adstxt 200 response: \n {} \n", httpResponse.toString() +
-                                "===========************\n");
-                });
-
-        return adsTxtRecords;
+        return responseParser.parse(httpResponses);
     }
 
     /**
-     * <p> This method builds the adsTxt objects from http response content </p>
+     * <p> Called by the http workers, which parse in parallel and only lock to append the records </p>
+     */
+    private void processAndJournalHttpResponse(HttpResponse httpResponse, AdsTxtRecordBatch adsTxtRecords) {
+        List<AdsTxtRecord> responseRecords = new ArrayList<>();
+        processHttpResponse(httpResponse, responseRecords);
+        crawlJournal.complete(httpResponse.getDomainName(), responseRecords);
+        synchronized (adsTxtRecords) {
+            adsTxtRecords.addAll(responseRecords);
+        }
+    }
+
+    /**
+     * <p>
+     * Hands the lines removed since the last crawl to the write stores and keeps the fingerprints of this crawl
+     * for the next one (delta.file), once all records are written. If a store failed to write records the
+     * fingerprints of the last crawl are kept instead, so the next crawl writes the lost changes again.
+     * </p>
      *
-     * @param adsTxtRecordRow
-     * @param domain
-     * @return
+     * @param failedWrites true if a store threw while records were written to it
      */
+    private void writeRemovedRecords(boolean failedWrites) {
+        if (!recordFingerprints.isEnabled()) {
+            return;
+        }
+        List<AdsTxtRecord> removedRecords = recordFingerprints.getRemovedRecords();
+        if (!removedRecords.isEmpty()) {
+            LOG.debug("Starting data insertion of {} removed adsTxtRecords", removedRecords.size());
+            writeDataStores.forEach(writeDataStore -> writeDataStore.insertRemovedAdsTxtRecords(removedRecords));
+        }
+        recordFingerprints.logStats();
+        if (failedWrites || writeDataStores.stream().anyMatch(WriteDataStore::hasFailedWrites)) {
+            LOG.warn("Records were not written, keeping the fingerprints of the last crawl");
+            return;
+        }
+        recordFingerprints.save();
+    }
 
-    private AdsTxtRecord adsTxtRecordBuilder(String adsTxtRecordRow, String domain) {
+    private void saveCaches() {
+        contentDedupCache.logStats();
+        validatorCache.logStats();
+        validatorCache.save();
+        schemeCache.save();
+    }
 
-        List<String> adsTxtRecordRowColumns = Arrays.asList(adsTxtRecordRow.split(("\\s*,\\s*")));
-        AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+    /**
+     * <p>
+     * Parses a single http response and appends its records to the given list. With delta writes (delta.file)
+     * only the records of lines the domain did not list in the last crawl are appended.
+     * </p>
+     *
+     * @param httpResponse
+     * @param adsTxtRecords
+     */
+    void processHttpResponse(HttpResponse httpResponse, List<AdsTxtRecord> adsTxtRecords) {
+        int firstRecord = adsTxtRecords.size();
+        if (appendRecords(httpResponse, adsTxtRecords) && recordFingerprints.isEnabled()) {
+            List<AdsTxtRecord> responseRecords = adsTxtRecords.subList(firstRecord, adsTxtRecords.size());
+            List<AdsTxtRecord> addedRecords = recordFingerprints.diff(httpResponse.getDomainName(), responseRecords,
+                    adsTxtParser.getCrawlDictionary().getInsertDate());
+            responseRecords.clear();
+            responseRecords.addAll(addedRecords);
+        }
+    }
 
-        try {
-            if (adsTxtRecordRowColumns.size() > 0) {
-                adsTxtRecord.setInsertDate(new DateTime());
-                adsTxtRecord.setSourceDomain(removeComments(domain));
-                adsTxtRecord.setAdServingDomain(removeComments(adsTxtRecordRowColumns.get(0)));
-                adsTxtRecord.setPublisherAccId(removeComments(adsTxtRecordRowColumns.get(1)));
-                adsTxtRecord.setAccType(removeComments(adsTxtRecordRowColumns.get(2)));
-
-                // 4th column is optional
-                if (adsTxtRecordRowColumns.size() == 4) {
-                    adsTxtRecord.setCertAuthId(adsTxtRecordRowColumns.get(3));
-                } else {
-                    adsTxtRecord.setCertAuthId("");
-                }
+    /**
+     * <p>
+     * Appends the records of a single http response. Records of responses whose content did not change since
+     * the last crawl (304 or identical content hash) are taken from the validator cache instead of being parsed
+     * again, bodies served by several domains are parsed once. Variable lines are not records, only the
+     * subdomains they list are kept.
+     * </p>
+     *
+     * @param httpResponse
+     * @param adsTxtRecords
+     * @return false if the records of the domain are not known, for a 304 without cached records
+     */
+    private boolean appendRecords(HttpResponse httpResponse, List<AdsTxtRecord> adsTxtRecords) {
+        String domain = httpResponse.getDomainName();
+        DateTime insertDate = adsTxtParser.getCrawlDictionary().getInsertDate();
+
+        if (httpResponse.isNotModified()) {
+            if (!validatorCache.reuseNotModified(domain, insertDate, adsTxtRecords)) {
+                LOG.warn("Got 304 for domain {} without cached records", domain);
+                return false;
             }
-        } catch (Exception e) {
-            LOG.error("Error parsing adstxt data! Invalid adsTxtRecordRow for domain: {}", domain);
+        } else if (httpResponse.hasAdsTxtData()) {
+            String content = httpResponse.getResponseContent();
+            long contentHash = ParserUtil.contentHash(content);
+            if (validatorCache.reuseUnchanged(domain, httpResponse.getEtag(), httpResponse.getLastModified(),
+                    contentHash, insertDate, adsTxtRecords)) {
+                return true;
+            }
+
+            int firstRecord = adsTxtRecords.size();
+            List<AdsTxtVariable> adsTxtVariables = new ArrayList<>();
+            contentDedupCache.parse(removeComments(domain), content, contentHash, adsTxtRecords, adsTxtVariables);
+            // Subdomains are kept so that a 304 next time still adds them to the crawl, see HttpService
+            validatorCache.put(domain, httpResponse.getEtag(), httpResponse.getLastModified(), contentHash,
+                    adsTxtRecords.subList(firstRecord, adsTxtRecords.size()),
+                    SubdomainExpander.getSubdomains(adsTxtVariables));
+        } else {
+            validatorCache.remove(domain);
+            LOG.debug("\n===========************\n" +
+                    "Non adstxt 200 response: \n {} \n", httpResponse.toString() +
+                    "===========************\n");
         }
-        return adsTxtRecord;
+        return true;
     }
 
     @VisibleForTesting
@@ -0,0 +1,243 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.service;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.ignitionone.cache.DnsCache;
+import org.ignitionone.util.ParserUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Resolves the hosts of all domains in parallel before the crawl starts and drops the ones that do not
+ * resolve, so the http engines never wait for a resolver timeout on a dead domain. Results are kept in a
+ * {@link DnsCache} with a ttl for resolved and for unresolvable hosts, which makes the stage almost free on
+ * the next run. Lookups go through the JVM resolver ({@link InetAddress}), which cannot tell NXDOMAIN from
+ * a failing name server. A host it cannot resolve is therefore queried again through the JNDI dns provider,
+ * only a NXDOMAIN answer drops it and caches it with the negative ttl. Hosts failing otherwise (SERVFAIL,
+ * timeouts) stay in the crawl for the http engine and its retries to handle, they are cached with the failure
+ * ttl for the running crawl only.
+ * </p>
+ * <p>
+ * dns.resolver.threads - number of concurrent lookups
+ * <br>
+ * dns.cache.ttl.seconds / dns.cache.negative.ttl.seconds - how long resolved / unresolvable hosts are cached
+ * <br>
+ * dns.cache.failure.ttl.seconds - how long hosts whose lookup failed without an answer are not looked up again
+ * </p>
+ */
+public class DnsService {
+    private static final Logger LOG = LoggerFactory.getLogger(DnsService.class);
+
+    @FunctionalInterface
+    public interface HostResolver {
+        /**
+         * @param host
+         * @return the address of the host
+         * @throws UnknownHostException if the host does not resolve
+         */
+        String resolve(String host) throws UnknownHostException;
+    }
+
+    @FunctionalInterface
+    public interface NameChecker {
+        /**
+         * @param host a host the resolver could not resolve
+         * @return true if the name server answered that the host does not exist (NXDOMAIN)
+         */
+        boolean isNonExistent(String host);
+    }
+
+    private final DnsCache dnsCache;
+    private final HostResolver hostResolver;
+    private final NameChecker nameChecker;
+    private final int threads;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final long failureTtlMillis;
+
+    public DnsService(Properties config, DnsCache dnsCache) {
+        this(config, dnsCache, host -> InetAddress.getByName(host).getHostAddress(), DnsService::isNxDomain);
+    }
+
+    @VisibleForTesting
+    public DnsService(Properties config, DnsCache dnsCache, HostResolver hostResolver, NameChecker nameChecker) {
+        this.dnsCache = dnsCache;
+        this.hostResolver = hostResolver;
+        this.nameChecker = nameChecker;
+        this.threads = Integer.parseInt(config.getProperty("dns.resolver.threads", "64"));
+        this.ttlMillis = Long.parseLong(config.getProperty("dns.cache.ttl.seconds", "3600")) * 1000L;
+        this.negativeTtlMillis = Long.parseLong(config.getProperty("dns.cache.negative.ttl.seconds", "86400")) * 1000L;
+        this.failureTtlMillis = Long.parseLong(config.getProperty("dns.cache.failure.ttl.seconds", "300")) * 1000L;
+    }
+
+    /**
+     * <p> Resolves the hosts of the given domains, using and updating the dns cache </p>
+     *
+     * @param domains
+     * @return the domains whose host was not answered NXDOMAIN, in the given order
+     */
+    public List<String> resolve(Collection<String> domains) {
+        long start = System.currentTimeMillis();
+        List<String> resolvable = new ArrayList<>(domains.size());
+        List<String> lookups = new ArrayList<>();
+        int cacheHits = 0;
+        int cachedUnresolvable = 0;
+
+        // Cached hosts are decided right away, the rest is looked up in parallel
+        for (String domain : domains) {
+            DnsCache.Entry entry = dnsCache.get(ParserUtil.getHost(domain), start);
+            if (entry == null) {
+                lookups.add(domain);
+            } else {
+                cacheHits++;
+                if (entry.isResolved() || entry.isFailed()) {
+                    resolvable.add(domain);
+                } else {
+                    cachedUnresolvable++;
+                }
+            }
+        }
+
+        long[] latencies = new long[lookups.size()];
+        boolean[] resolved = new boolean[lookups.size()];
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "dns-resolver-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(lookups.size());
+            for (int i = 0; i < lookups.size(); i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    long lookupStart = System.currentTimeMillis();
+                    resolved[index] = lookup(ParserUtil.getHost(lookups.get(index)));
+                    latencies[index] = System.currentTimeMillis() - lookupStart;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (Exception e) {
+            LOG.error("Error resolving hosts, keeping all unresolved domains: ", e);
+            Arrays.fill(resolved, true);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int unresolvable = 0;
+        for (int i = 0; i < lookups.size(); i++) {
+            if (resolved[i]) {
+                resolvable.add(lookups.get(i));
+            } else {
+                unresolvable++;
+            }
+        }
+
+        logStats(latencies, cacheHits, cachedUnresolvable, unresolvable, System.currentTimeMillis() - start);
+        return resolvable;
+    }
+
+    private boolean lookup(String host) {
+        try {
+            dnsCache.putResolved(host, hostResolver.resolve(host), System.currentTimeMillis() + ttlMillis);
+            return true;
+        } catch (UnknownHostException e) {
+            if (nameChecker.isNonExistent(host)) {
+                dnsCache.putUnresolvable(host, System.currentTimeMillis() + negativeTtlMillis);
+            } else {
+                LOG.debug("Lookup of {} failed without a NXDOMAIN answer", host);
+                dnsCache.putFailed(host, System.currentTimeMillis() + failureTtlMillis);
+                return true;
+            }
+            return false;
+        } catch (RuntimeException e) {
+            // Not a dns answer (e.g. a malformed host name), leave it to the http engine
+            LOG.debug("Could not look up {}: {}", host, e.toString());
+            return true;
+        }
+    }
+
+    /**
+     * <p> Queries the host through the JNDI dns provider, which reports NXDOMAIN as a missing name </p>
+     */
+    private static boolean isNxDomain(String host) {
+        Hashtable<String, String> env = new Hashtable<>();
+        env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.dns.DnsContextFactory");
+        try {
+            DirContext context = new InitialDirContext(env);
+            try {
+                context.getAttributes(host, new String[]{"A", "AAAA"});
+            } finally {
+                context.close();
+            }
+            return false;
+        } catch (NameNotFoundException e) {
+            return true;
+        } catch (NamingException e) {
+            // No answer from the name server
+            return false;
+        }
+    }
+
+    private void logStats(long[] latencies, int cacheHits, int cachedUnresolvable, int unresolvable, long millis) {
+        LOG.info("Dns resolution took {} ms: {} lookups, {} cache hits, {} unresolvable dropped", new Object[]{
+                millis, latencies.length, cacheHits, cachedUnresolvable + unresolvable});
+        if (latencies.length == 0) {
+            return;
+        }
+        Arrays.sort(latencies);
+        long total = 0;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        LOG.info("Dns lookup latency: avg {} ms, p50 {} ms, p95 {} ms, max {} ms", new Object[]{
+                total / latencies.length, percentile(latencies, 50), percentile(latencies, 95),
+                latencies[latencies.length - 1]});
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
@@ -21,81 +21,330 @@
  */
 package org.ignitionone.service;
 
+import org.ignitionone.cache.DnsCache;
+import org.ignitionone.cache.SchemeCache;
+import org.ignitionone.cache.ValidatorCache;
+import org.ignitionone.http.core.AdaptiveConcurrencyLimiter;
+import org.ignitionone.http.core.HttpEngine;
+import org.ignitionone.http.core.HttpEngineFactory;
+import org.ignitionone.http.core.HttpEngineType;
+import org.ignitionone.http.core.PolitenessScheduler;
+import org.ignitionone.http.core.RetryPolicy;
+import org.ignitionone.model.CrawlTarget;
+import org.ignitionone.model.HttpRequest;
 import org.ignitionone.model.HttpResponse;
+import org.ignitionone.parser.AdsTxtParser;
+import org.ignitionone.util.ContentClassifier;
+import org.ignitionone.util.ContentClassifier.ContentType;
 import org.ignitionone.util.ParserUtil;
-import io.parallec.core.ParallecResponseHandler;
-import io.parallec.core.ParallelClient;
-import io.parallec.core.ParallelTask;
-import io.parallec.core.ResponseOnSingleTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+/**
+ * <p>
+ * Fetches ads.txt files. Every domain is tried over https first and over http if that fails (no response
+ * or an error status); a domain whose file was found before starts at the url it was found at (see
+ * {@link SchemeCache}). Redirects are followed up to http.redirect.max hops, but only within the root domain
+ * of the original domain as the ads.txt specification requires. Transient failures are retried while the
+ * crawl goes on (see {@link RetryPolicy}). Subdomains listed in SUBDOMAIN variables are added to the running
+ * crawl (see {@link SubdomainExpander}).
+ * </p>
+ * <p>
+ * http.https.first - try https before http
+ * <br>
+ * parallec.http.port / http.https.port - ports for http and https
+ * <br>
+ * crawl.deadline.minutes - time from the start of the http requests after which requests below
+ * crawl.deadline.priority are deferred, 0 for no deadline
+ * </p>
+ */
 public class HttpService {
     private static final Logger LOG = LoggerFactory.getLogger(HttpService.class);
-    private static final String ADSTXT = "/ads.txt";
 
+    private final Properties config;
     private final String httpPort;
-    private final String httpParallelism;
+    private final int httpsPort;
+    private final boolean httpsFirst;
+    private final int maxRedirects;
+    private final long deadlineMillis;
+    private final int deadlinePriority;
+    private final HttpEngine httpEngine;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ValidatorCache validatorCache;
+    private final DnsCache dnsCache;
+    private final SchemeCache schemeCache;
 
     public HttpService(Properties config) {
+        this(config, new ValidatorCache(""));
+    }
+
+    public HttpService(Properties config, ValidatorCache validatorCache) {
+        this(config, validatorCache, new DnsCache(""));
+    }
+
+    public HttpService(Properties config, ValidatorCache validatorCache, DnsCache dnsCache) {
+        this(config, validatorCache, dnsCache, new SchemeCache(""));
+    }
+
+    public HttpService(Properties config, ValidatorCache validatorCache, DnsCache dnsCache,
+                       SchemeCache schemeCache) {
+        this(config, validatorCache, dnsCache, schemeCache, new AdaptiveConcurrencyLimiter(config));
+    }
+
+    private HttpService(Properties config, ValidatorCache validatorCache, DnsCache dnsCache,
+                        SchemeCache schemeCache, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.config = config;
         this.httpPort = config.getProperty("parallec.http.port");
-        this.httpParallelism = config.getProperty("parallec.http.parallelism");
+        this.httpsPort = Integer.parseInt(config.getProperty("http.https.port", "443"));
+        this.httpsFirst = Boolean.parseBoolean(config.getProperty("http.https.first", "true"));
+        this.maxRedirects = Integer.parseInt(config.getProperty("http.redirect.max", "5"));
+        this.deadlineMillis = TimeUnit.MINUTES.toMillis(
+                Long.parseLong(config.getProperty("crawl.deadline.minutes", "0")));
+        this.deadlinePriority = Integer.parseInt(config.getProperty("crawl.deadline.priority", "1"));
+        this.validatorCache = validatorCache;
+        this.dnsCache = dnsCache;
+        this.schemeCache = schemeCache;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.httpEngine = HttpEngineFactory.getHttpEngine(
+                HttpEngineType.getValueOf(config.getProperty("http.engine", "parallec")), config, concurrencyLimiter);
+    }
+
+    /**
+     * @return the current limit on in-flight requests
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimiter.getLimit();
     }
 
     public List<HttpResponse> executeHttpRequests(List<String> domains) {
         List<HttpResponse> synchronizedHttpResponses = Collections.synchronizedList(new ArrayList<HttpResponse>());
-        AdsTxtResponseHandler adsTxtResponseHandler = new AdsTxtResponseHandler(synchronizedHttpResponses);
-
-        LOG.info("Starting parallel http requests..");
-        ParallelClient parallelClient = new ParallelClient();
-
-        ParallelTask task = parallelClient.prepareHttpGet(ADSTXT)
-                .async()
-                .setHttpPort(Integer.parseInt(httpPort))
-                .setConcurrency(Integer.parseInt(httpParallelism))
-                .setTargetHostsFromList(domains)
-                .execute(adsTxtResponseHandler);
-
-        while (!task.isCompleted()) {
-            try {
-                Thread.sleep(100L);
-                LOG.debug(String.format("POLL_JOB_PROGRESS (%.5g%%)  PT jobid: %s",
-                        task.getProgress(), task.getTaskId()));
-                parallelClient.logHealth();
-            } catch (InterruptedException e) {
-                LOG.error("Error occurred waiting for task to complete", e);
+        executeHttpRequests(domains, synchronizedHttpResponses::add);
+        return synchronizedHttpResponses;
+    }
+
+    /**
+     * <p>
+     * Executes http requests on the given domains and hands every valid response to the consumer as soon as
+     * it arrives. The consumer is called from the http engine's worker threads, so it must be thread safe. A
+     * consumer that blocks (e.g. on a full queue) holds back the worker and thereby throttles the crawl.
+     * </p>
+     * <p>
+     * Requests are handed to the engine by a {@link PolitenessScheduler}, which limits the in-flight requests
+     * per registrable domain or IP address and interleaves the hosts.
+     * </p>
+     *
+     * @param domains
+     * @param responseConsumer
+     */
+    public void executeHttpRequests(List<String> domains, Consumer<HttpResponse> responseConsumer) {
+        List<CrawlTarget> crawlTargets = new ArrayList<>(domains.size());
+        domains.forEach(domain -> crawlTargets.add(new CrawlTarget(domain)));
+        executeCrawl(crawlTargets, responseConsumer);
+    }
+
+    /**
+     * <p>
+     * Same as {@link #executeHttpRequests(List, Consumer)}, crawling the targets by priority. Once the deadline
+     * (crawl.deadline.minutes) has passed, targets below crawl.deadline.priority which were not started yet are
+     * deferred.
+     * </p>
+     *
+     * @param crawlTargets
+     * @param responseConsumer
+     * @return the deferred targets
+     */
+    public List<CrawlTarget> executeCrawl(List<CrawlTarget> crawlTargets, Consumer<HttpResponse> responseConsumer) {
+        // The deadline counts from the start of the http requests, not from reading and resolving the domains
+        long deadline = deadlineMillis > 0 ? System.currentTimeMillis() + deadlineMillis : Long.MAX_VALUE;
+        List<HttpRequest> httpRequests = new ArrayList<>(crawlTargets.size());
+        List<String> domains = new ArrayList<>(crawlTargets.size());
+        crawlTargets.forEach(crawlTarget -> {
+            httpRequests.add(buildHttpRequest(crawlTarget.getDomain()).setPriority(crawlTarget.getPriority()));
+            domains.add(crawlTarget.getDomain());
+        });
+        PolitenessScheduler scheduler = new PolitenessScheduler(config);
+        scheduler.setDeadline(deadline, deadlinePriority);
+        scheduler.addAll(httpRequests);
+        RetryPolicy retryPolicy = new RetryPolicy(config, httpRequests.size());
+        SubdomainExpander subdomainExpander = new SubdomainExpander(config, domains);
+
+        httpEngine.execute(scheduler, httpResponse -> handleHttpResponse(httpResponse, scheduler, retryPolicy,
+                subdomainExpander, responseConsumer));
+        concurrencyLimiter.logStats();
+        retryPolicy.logStats();
+        subdomainExpander.logStats();
+
+        List<CrawlTarget> deferred = new ArrayList<>();
+        scheduler.getDeferred().forEach(httpRequest ->
+                deferred.add(new CrawlTarget(httpRequest.getDomainName(), httpRequest.getPriority())));
+        if (!deferred.isEmpty()) {
+            LOG.info("Deferred {} domains to the next crawl", deferred.size());
+        }
+        return deferred;
+    }
+
+    /**
+     * <p>
+     * Sends If-None-Match/If-Modified-Since for domains with cached validators. The request starts at the
+     * cached url of the domain if there is one, the https and http urls are its fallbacks.
+     * </p>
+     *
+     * @param domain
+     * @return
+     */
+    private HttpRequest buildHttpRequest(String domain) {
+        String host = ParserUtil.getHost(domain);
+        Set<String> urls = new LinkedHashSet<>();
+        String cachedUrl = schemeCache.get(domain);
+        if (cachedUrl != null) {
+            urls.add(cachedUrl);
+        }
+        if (httpsFirst) {
+            urls.add("https://" + host + ":" + httpsPort + HttpRequest.ADSTXT);
+        }
+        urls.add("http://" + host + ":" + httpPort + HttpRequest.ADSTXT);
+
+        HttpRequest httpRequest = new HttpRequest()
+                .setDomainName(domain)
+                .setAddress(dnsCache.getAddress(host))
+                .setFallbackUrls(new ArrayList<>(urls));
+
+        ValidatorCache.Entry entry = validatorCache.get(domain);
+        if (entry != null) {
+            if (entry.getEtag() != null) {
+                httpRequest.addHeader("If-None-Match", entry.getEtag());
+            }
+            if (entry.getLastModified() != null) {
+                httpRequest.addHeader("If-Modified-Since", entry.getLastModified());
+            }
+        }
+        return httpRequest.nextFallback();
+    }
+
+    private void handleHttpResponse(HttpResponse httpResponse, PolitenessScheduler scheduler,
+                                    RetryPolicy retryPolicy, SubdomainExpander subdomainExpander,
+                                    Consumer<HttpResponse> responseConsumer) {
+        HttpRequest httpRequest = httpResponse.getHttpRequest();
+        String domain = httpRequest.getDomainName();
+        RetryPolicy.FailureClass failureClass = RetryPolicy.classify(httpResponse);
+        if (failureClass != null) {
+            handleFailure(httpResponse, failureClass, scheduler, retryPolicy);
+            return;
+        }
+
+        if (httpResponse.isRedirect()) {
+            HttpRequest redirected = redirect(httpRequest, httpResponse.getLocation());
+            if (redirected != null) {
+                scheduler.add(redirected);
+            } else {
+                retryPolicy.onSuccess(domain);
+                schemeCache.remove(domain);
             }
+            return;
         }
-        parallelClient.releaseExternalResources();
 
-        return synchronizedHttpResponses;
+        retryPolicy.onSuccess(domain);
+        // Only add 200s and 304s (cached content is still valid) to result list
+        if (httpResponse.getResponseCode() == 200) {
+            ContentType contentType = ContentClassifier.classify(httpResponse.getResponseContent());
+            if (httpResponse.getResponseContent() != null && contentType != ContentType.HTML) {
+                schemeCache.put(domain, httpRequest.getUrl());
+                if (contentType == ContentType.ADS_TXT && subdomainExpander.isEnabled()) {
+                    List<String> subdomains = SubdomainExpander.getSubdomains(
+                            AdsTxtParser.parseVariables(httpResponse.getResponseContent()));
+                    addSubdomains(domain, httpRequest.getPriority(), subdomains, scheduler, subdomainExpander);
+                }
+                responseConsumer.accept(httpResponse.setHasAdsTxt(contentType == ContentType.ADS_TXT));
+            }
+        } else if (httpResponse.isNotModified()) {
+            schemeCache.put(domain, httpRequest.getUrl());
+            ValidatorCache.Entry entry = validatorCache.get(domain);
+            if (entry != null) {
+                addSubdomains(domain, httpRequest.getPriority(), entry.getSubdomains(), scheduler,
+                        subdomainExpander);
+            }
+            responseConsumer.accept(httpResponse);
+        }
     }
 
-    private class AdsTxtResponseHandler implements ParallecResponseHandler {
+    /**
+     * <p>
+     * Adds the subdomains listed by the ads.txt file of a domain to the running crawl. Called before the
+     * request of the domain is completed on the scheduler, so the crawl cannot end in between.
+     * </p>
+     */
+    private void addSubdomains(String domain, int priority, List<String> subdomains, PolitenessScheduler scheduler,
+                               SubdomainExpander subdomainExpander) {
+        for (String subdomain : subdomainExpander.expand(domain, subdomains)) {
+            LOG.debug("Adding subdomain {} of {} to the crawl", subdomain, domain);
+            scheduler.add(buildHttpRequest(subdomain).setPriority(priority));
+        }
+    }
 
-        private List<HttpResponse> synchronizedHttpResponses;
+    /**
+     * <p>
+     * Retries transient failures after a backoff, falls back to the next url otherwise. Connection level
+     * failures (timeouts, resets) fall back first if there is another url, since the same url is likely to
+     * fail again; a server which answered with 5xx/429 is asked again before falling back.
+     * </p>
+     */
+    private void handleFailure(HttpResponse httpResponse, RetryPolicy.FailureClass failureClass,
+                               PolitenessScheduler scheduler, RetryPolicy retryPolicy) {
+        HttpRequest httpRequest = httpResponse.getHttpRequest();
+        String domain = httpRequest.getDomainName();
+        retryPolicy.onFailure(domain, failureClass);
+        if (!(httpResponse.isError() && !httpRequest.getFallbackUrls().isEmpty())) {
+            long delay = retryPolicy.retryDelay(failureClass, httpRequest.getRetries(), httpResponse.getRetryAfter());
+            if (delay >= 0) {
+                LOG.debug("Retrying {} after {} in {} ms", new Object[]{httpRequest.getUrl(), failureClass, delay});
+                scheduler.schedule(httpRequest.retry(), delay);
+                return;
+            }
+        }
 
-        public AdsTxtResponseHandler(List<HttpResponse> synchronizedHttpResponses) {
-            this.synchronizedHttpResponses = synchronizedHttpResponses;
+        HttpRequest fallback = httpRequest.nextFallback();
+        if (fallback != null) {
+            scheduler.add(fallback);
+        } else {
+            retryPolicy.onGiveUp(domain);
+            schemeCache.remove(domain);
         }
+    }
 
-        @Override
-        public void onCompleted(ResponseOnSingleTask response, Map<String, Object> responseContext) {
-            // Only add 200s to result list
-            if (response.getStatusCodeInt() == 200) {
-                HttpResponse httpResponse;
-                String content = response.getResponseContent();
-                if (!ParserUtil.isHtml(content)) {
-                    httpResponse = new HttpResponse()
-                            .setResponseCode(response.getStatusCodeInt())
-                            .setResponseContent(content)
-                            .setDomainName(response.getHost())
-                            .setHasAdsTxt(ParserUtil.isAdsTXT(content));
-                    synchronizedHttpResponses.add(httpResponse);
-                }
+    /**
+     * <p>
+     * Follows a redirect if the location is an http(s) url within the root domain of the original domain and
+     * the redirect limit is not reached.
+     * </p>
+     *
+     * @param httpRequest
+     * @param location
+     * @return the request for the location, or null if the redirect must not be followed
+     */
+    private HttpRequest redirect(HttpRequest httpRequest, String location) {
+        if (location == null || httpRequest.getRedirects() >= maxRedirects) {
+            LOG.debug("Not following redirect of {} to {}", httpRequest.getUrl(), location);
+            return null;
+        }
+        try {
+            URL target = new URL(new URL(httpRequest.getUrl()), location.trim());
+            String rootDomain = ParserUtil.getRegistrableDomain(ParserUtil.getHost(httpRequest.getDomainName()));
+            if (!("http".equals(target.getProtocol()) || "https".equals(target.getProtocol()))
+                    || !rootDomain.equals(ParserUtil.getRegistrableDomain(target.getHost()))) {
+                LOG.debug("Not following redirect of {} outside of {} to {}", new Object[]{
+                        httpRequest.getUrl(), rootDomain, location});
+                return null;
             }
+            return httpRequest.redirect(target);
+        } catch (MalformedURLException e) {
+            LOG.debug("Invalid redirect location of {}: {}", httpRequest.getUrl(), location);
+            return null;
         }
     }
-}
\ No newline at end of file
+}
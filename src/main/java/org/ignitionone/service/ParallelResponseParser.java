@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.service;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+
+/**
+ * <p>
+ * Parses http responses on a fork/join pool. The responses are split in halves down to chunks, which idle
+ * workers steal from busy ones, and every chunk is parsed into buffers no other worker writes to, so the
+ * results are merged without locking. Records keep the order of the responses unless parse.ordered is
+ * false, in which case every chunk is parsed into a single buffer and the buffers are concatenated in the
+ * order the chunks complete.
+ * </p>
+ * <p>
+ * parse.parallelism - number of parser threads, 0 for one per cpu, 1 parses in the calling thread
+ * <br>
+ * parse.chunk.size - max number of responses parsed by one task
+ * <br>
+ * parse.ordered - keep the records in the order of the responses
+ * </p>
+ */
+public class ParallelResponseParser {
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelResponseParser.class);
+
+    private final BiConsumer<HttpResponse, List<AdsTxtRecord>> responseParser;
+    private final int chunkSize;
+    private final boolean ordered;
+    private final ForkJoinPool pool;
+
+    public ParallelResponseParser(BiConsumer<HttpResponse, List<AdsTxtRecord>> responseParser, Properties config) {
+        this(responseParser,
+                Integer.parseInt(config.getProperty("parse.parallelism", "0")),
+                Integer.parseInt(config.getProperty("parse.chunk.size", "64")),
+                Boolean.parseBoolean(config.getProperty("parse.ordered", "true")));
+    }
+
+    /**
+     * <p> Parses in the calling thread </p>
+     */
+    public ParallelResponseParser(BiConsumer<HttpResponse, List<AdsTxtRecord>> responseParser) {
+        this(responseParser, 1, 1, true);
+    }
+
+    public ParallelResponseParser(BiConsumer<HttpResponse, List<AdsTxtRecord>> responseParser, int parallelism,
+                                  int chunkSize, boolean ordered) {
+        if (parallelism <= 0) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        this.responseParser = responseParser;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.ordered = ordered;
+        // Daemon workers, the pool does not need to be shut down
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    /**
+     * @param httpResponses
+     * @return the records of all responses
+     */
+    public List<AdsTxtRecord> parse(List<HttpResponse> httpResponses) {
+        if (pool == null || ordered) {
+            List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+            for (List<AdsTxtRecord> responseRecords : parseEach(httpResponses)) {
+                if (responseRecords != null) {
+                    adsTxtRecords.addAll(responseRecords);
+                }
+            }
+            return adsTxtRecords;
+        }
+
+        Queue<List<AdsTxtRecord>> buffers = new ConcurrentLinkedQueue<>();
+        pool.invoke(new ChunkTask(0, httpResponses.size(), (from, to) -> {
+            List<AdsTxtRecord> buffer = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                int size = buffer.size();
+                if (!parse(httpResponses.get(i), buffer)) {
+                    // Drop the records of a response that failed half way
+                    buffer.subList(size, buffer.size()).clear();
+                }
+            }
+            buffers.add(buffer);
+        }));
+
+        int recordCount = 0;
+        for (List<AdsTxtRecord> buffer : buffers) {
+            recordCount += buffer.size();
+        }
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>(recordCount);
+        buffers.forEach(adsTxtRecords::addAll);
+        return adsTxtRecords;
+    }
+
+    /**
+     * @param httpResponses
+     * @return the records of every response in the order of the responses, null for a response which failed
+     */
+    public List<List<AdsTxtRecord>> parseEach(List<HttpResponse> httpResponses) {
+        @SuppressWarnings("unchecked")
+        List<AdsTxtRecord>[] results = new List[httpResponses.size()];
+        ChunkParser chunkParser = (from, to) -> {
+            for (int i = from; i < to; i++) {
+                List<AdsTxtRecord> responseRecords = new ArrayList<>();
+                results[i] = parse(httpResponses.get(i), responseRecords) ? responseRecords : null;
+            }
+        };
+
+        if (pool == null) {
+            chunkParser.parse(0, httpResponses.size());
+        } else {
+            pool.invoke(new ChunkTask(0, httpResponses.size(), chunkParser));
+        }
+        return Arrays.asList(results);
+    }
+
+    private boolean parse(HttpResponse httpResponse, List<AdsTxtRecord> adsTxtRecords) {
+        try {
+            responseParser.accept(httpResponse, adsTxtRecords);
+            return true;
+        } catch (Exception e) {
+            LOG.error("Error processing response for domain: {}", httpResponse.getDomainName(), e);
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkParser {
+        void parse(int from, int to);
+    }
+
+    private class ChunkTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final ChunkParser chunkParser;
+
+        ChunkTask(int from, int to, ChunkParser chunkParser) {
+            this.from = from;
+            this.to = to;
+            this.chunkParser = chunkParser;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                chunkParser.parse(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(from, middle, chunkParser), new ChunkTask(middle, to, chunkParser));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.service;
+
+import org.ignitionone.model.AdsTxtVariable;
+import org.ignitionone.util.DomainNormalizer;
+import org.ignitionone.util.ParserUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Turns the SUBDOMAIN variables of the ads.txt files of a crawl into new crawl targets, so subdomains are
+ * covered in the same pass. As the ads.txt specification requires, only subdomains of the root domain of the
+ * file they are listed in are followed. Every domain is crawled once: targets are deduplicated against all
+ * domains the crawl started with or added before.
+ * </p>
+ * <p>
+ * http.subdomain.expand - follow SUBDOMAIN variables
+ * <br>
+ * http.subdomain.max - max subdomains followed per ads.txt file, 0 for unlimited
+ * </p>
+ */
+public class SubdomainExpander {
+    private static final Logger LOG = LoggerFactory.getLogger(SubdomainExpander.class);
+
+    private final boolean enabled;
+    private final int maxPerFile;
+    private final Set<String> crawlDomains = ConcurrentHashMap.newKeySet();
+    private final AtomicLong added = new AtomicLong();
+
+    public SubdomainExpander(Properties config, Collection<String> domains) {
+        this(Boolean.parseBoolean(config.getProperty("http.subdomain.expand", "true")),
+                Integer.parseInt(config.getProperty("http.subdomain.max", "20")), domains);
+    }
+
+    public SubdomainExpander(boolean enabled, int maxPerFile, Collection<String> domains) {
+        this.enabled = enabled;
+        this.maxPerFile = maxPerFile <= 0 ? Integer.MAX_VALUE : maxPerFile;
+        crawlDomains.addAll(domains);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param adsTxtVariables
+     * @return the values of the SUBDOMAIN variables
+     */
+    public static List<String> getSubdomains(List<AdsTxtVariable> adsTxtVariables) {
+        List<String> subdomains = new ArrayList<>();
+        for (AdsTxtVariable adsTxtVariable : adsTxtVariables) {
+            if (adsTxtVariable.isSubdomain() && !adsTxtVariable.getValue().isEmpty()) {
+                subdomains.add(adsTxtVariable.getValue());
+            }
+        }
+        return subdomains;
+    }
+
+    /**
+     * @param domain     domain whose ads.txt file lists the subdomains
+     * @param subdomains values of its SUBDOMAIN variables
+     * @return the subdomains not crawled yet, normalized; they are counted as crawled from now on
+     */
+    public List<String> expand(String domain, List<String> subdomains) {
+        if (!enabled || subdomains.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String rootDomain = ParserUtil.getRegistrableDomain(ParserUtil.getHost(domain));
+        List<String> targets = new ArrayList<>();
+        for (String subdomain : subdomains) {
+            if (targets.size() >= maxPerFile) {
+                LOG.debug("Not following more than {} subdomains of {}", maxPerFile, domain);
+                break;
+            }
+            String host = DomainNormalizer.normalizeHost(subdomain);
+            if (host == null || !host.equals(rootDomain) && !host.endsWith("." + rootDomain)) {
+                LOG.debug("Not following subdomain {} outside of {}", subdomain, rootDomain);
+                continue;
+            }
+            if (crawlDomains.add(host)) {
+                targets.add(host);
+            }
+        }
+        added.addAndGet(targets.size());
+        return targets;
+    }
+
+    /**
+     * @return number of subdomains added to the crawl
+     */
+    public long getAdded() {
+        return added.get();
+    }
+
+    public void logStats() {
+        LOG.info("Subdomains: {} added to the crawl", added.get());
+    }
+}
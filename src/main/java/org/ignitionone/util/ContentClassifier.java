@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.util;
+
+/**
+ * <p>
+ * Tells ads.txt files from html pages and other content in a single pass over the first lines of a body.
+ * A record with a DIRECT or RESELLER relationship or a known variable decides for an ads.txt file, markup
+ * at the start of a line for html; the scan stops at the first deciding line. Bodies without a deciding line
+ * are judged by the majority of their first {@value #MAX_LINES} lines.
+ * </p>
+ * <p>
+ * Unlike a search for a "#Ads.txt" comment this recognizes ads.txt files by their structure, and a tag
+ * within a comment does not make an ads.txt file html.
+ * </p>
+ */
+public final class ContentClassifier {
+    static final int MAX_LINES = 50;
+    private static final char BOM = '\uFEFF';
+    private static final String[] RELATIONSHIPS = {"DIRECT", "RESELLER"};
+    private static final String[] VARIABLES = {"CONTACT", "SUBDOMAIN", "INVENTORYPARTNERDOMAIN", "OWNERDOMAIN",
+            "MANAGERDOMAIN"};
+
+    public enum ContentType {
+        // Records or variables of an ads.txt file
+        ADS_TXT,
+        // Markup
+        HTML,
+        // Nothing but whitespace and comments
+        EMPTY,
+        // Anything else, e.g. plain text error pages
+        UNKNOWN
+    }
+
+    private enum Line {
+        BLANK, COMMENT, RECORD, UNCERTAIN_RECORD, VARIABLE, MARKUP, OTHER
+    }
+
+    private ContentClassifier() {
+    }
+
+    /**
+     * @param content body of the response, may be null
+     * @return
+     */
+    public static ContentType classify(CharSequence content) {
+        if (content == null) {
+            return ContentType.EMPTY;
+        }
+
+        int uncertainRecords = 0;
+        int others = 0;
+        boolean markup = false;
+        int lines = 0;
+        int lineStart = 0;
+        int length = content.length();
+        while (lineStart < length && lines < MAX_LINES) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && content.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+
+            switch (classifyLine(content, lineStart, lineEnd)) {
+                case RECORD:
+                case VARIABLE:
+                    return ContentType.ADS_TXT;
+                case MARKUP:
+                    // Markup before any ads.txt line is a page
+                    if (uncertainRecords == 0) {
+                        return ContentType.HTML;
+                    }
+                    markup = true;
+                    lines++;
+                    break;
+                case UNCERTAIN_RECORD:
+                    uncertainRecords++;
+                    lines++;
+                    break;
+                case OTHER:
+                    others++;
+                    lines++;
+                    break;
+                default:
+                    break;
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        if (uncertainRecords > 0 && uncertainRecords > others) {
+            return ContentType.ADS_TXT;
+        }
+        if (markup) {
+            return ContentType.HTML;
+        }
+        return uncertainRecords + others == 0 ? ContentType.EMPTY : ContentType.UNKNOWN;
+    }
+
+    private static Line classifyLine(CharSequence content, int start, int end) {
+        while (start < end && (content.charAt(start) == BOM || Character.isWhitespace(content.charAt(start)))) {
+            start++;
+        }
+        if (start == end) {
+            return Line.BLANK;
+        }
+        char first = content.charAt(start);
+        if (first == '#') {
+            return Line.COMMENT;
+        }
+        if (first == '<') {
+            return Line.MARKUP;
+        }
+
+        int commas = 0;
+        int thirdField = -1;
+        for (int i = start; i < end; i++) {
+            char c = content.charAt(i);
+            if (c == '#') {
+                break;
+            }
+            if (c == ',') {
+                commas++;
+                if (commas == 2) {
+                    thirdField = i + 1;
+                }
+            } else if (c == '=' && commas == 0) {
+                return isVariable(content, start, i) ? Line.VARIABLE : Line.OTHER;
+            }
+        }
+        if (commas < 2) {
+            return Line.OTHER;
+        }
+        while (thirdField < end && Character.isWhitespace(content.charAt(thirdField))) {
+            thirdField++;
+        }
+        for (String relationship : RELATIONSHIPS) {
+            if (startsWithToken(content, thirdField, end, relationship)) {
+                return Line.RECORD;
+            }
+        }
+        return Line.UNCERTAIN_RECORD;
+    }
+
+    private static boolean isVariable(CharSequence content, int start, int end) {
+        while (end > start && Character.isWhitespace(content.charAt(end - 1))) {
+            end--;
+        }
+        for (String variable : VARIABLES) {
+            if (end - start == variable.length() && startsWithToken(content, start, end, variable)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <p> Case insensitive match of the token, not followed by a letter or digit </p>
+     */
+    private static boolean startsWithToken(CharSequence content, int start, int end, String token) {
+        if (end - start < token.length()) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.toUpperCase(content.charAt(start + i)) != token.charAt(i)) {
+                return false;
+            }
+        }
+        int next = start + token.length();
+        return next == end || !Character.isLetterOrDigit(content.charAt(next));
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.util;
+
+/**
+ * <p>
+ * Decides from the content type and the first few KB of a response body whether it can be an ads.txt file,
+ * so that html soft 404 pages, images and other junk can be dropped before they are fully downloaded.
+ * The sniffer only rejects what clearly is not an ads.txt file; a body it accepts still goes through the
+ * regular checks once complete.
+ * </p>
+ */
+public final class ContentSniffer {
+    private static final String[] BINARY_MEDIA_TYPES = {"image/", "audio/", "video/", "font/",
+            "application/pdf", "application/zip", "application/gzip", "application/x-gzip"};
+    private static final char BOM = '\uFEFF';
+
+    public enum Verdict {
+        // May be an ads.txt file
+        ACCEPT,
+        // Markup, starts with '<'
+        HTML,
+        // Binary media type or NUL characters
+        BINARY,
+        // A full sniff window without a single ads.txt shaped line
+        NOT_ADS_TXT
+    }
+
+    private ContentSniffer() {
+    }
+
+    /**
+     * @param contentType content type header, may be null
+     * @param prefix      start of the body, decoded
+     * @param complete    true if the prefix is the whole body
+     * @return
+     */
+    public static Verdict sniff(String contentType, CharSequence prefix, boolean complete) {
+        if (contentType != null) {
+            String mediaType = contentType.trim().toLowerCase();
+            for (String binaryMediaType : BINARY_MEDIA_TYPES) {
+                if (mediaType.startsWith(binaryMediaType)) {
+                    return Verdict.BINARY;
+                }
+            }
+        }
+
+        int start = 0;
+        while (start < prefix.length() && (prefix.charAt(start) == BOM || Character.isWhitespace(prefix.charAt(start)))) {
+            start++;
+        }
+        if (start < prefix.length() && prefix.charAt(start) == '<') {
+            return Verdict.HTML;
+        }
+
+        // The last line of an incomplete prefix may be cut off, only complete lines count
+        int end = prefix.length();
+        if (!complete) {
+            while (end > start && prefix.charAt(end - 1) != '\n') {
+                end--;
+            }
+        }
+
+        int lineStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || prefix.charAt(i) == '\n') {
+                if (isAdsTxtLine(prefix, lineStart, i)) {
+                    return Verdict.ACCEPT;
+                }
+                lineStart = i + 1;
+            } else if (prefix.charAt(i) == '\0') {
+                return Verdict.BINARY;
+            }
+        }
+        return complete ? Verdict.ACCEPT : Verdict.NOT_ADS_TXT;
+    }
+
+    /**
+     * <p> A comment, a record (comma separated fields) or a variable (NAME=value) </p>
+     */
+    private static boolean isAdsTxtLine(CharSequence content, int start, int end) {
+        while (start < end && Character.isWhitespace(content.charAt(start))) {
+            start++;
+        }
+        if (start == end) {
+            return false;
+        }
+        if (content.charAt(start) == '#') {
+            return true;
+        }
+        for (int i = start; i < end; i++) {
+            char c = content.charAt(i);
+            if (c == ',') {
+                return true;
+            }
+            if (c == '=') {
+                return i > start;
+            }
+            if (!Character.isLetterOrDigit(c) && c != '.' && c != '-' && c != '_' && !Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
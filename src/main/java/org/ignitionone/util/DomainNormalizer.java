@@ -0,0 +1,367 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ * @author Shridhar Manvi <Shridhar.Manvi AT ignitionone DOT com>
+ * @author Roderick Rodriguez <Roderick.Rodriguez AT ignitionone DOT com>
+ */
+package org.ignitionone.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Turns the domains and urls of the read stores into crawl targets: the listed host
+ * (WWW.Example.co.uk., http://www.example.co.uk:8080/page -> www.example.co.uk). Scheme, user info, port, path and
+ * trailing dots are stripped, the host is lowercased and internationalized names are converted to punycode.
+ * {@link #canonicalize} further collapses the host to its registrable domain (www.example.co.uk -> example.co.uk),
+ * crawl.registrable.domain turns this on for the crawl targets.
+ * </p>
+ * <p>
+ * The registrable domain is the public suffix plus one label, as defined by the public suffix list
+ * (public_suffix_list.dat, https://publicsuffix.org/list/) which is embedded as a resource. Replace the file to
+ * update the list.
+ * </p>
+ * <p>
+ * The common case of an ascii domain is handled on the characters of the input without exceptions and with at
+ * most one string created per step.
+ * </p>
+ */
+public final class DomainNormalizer {
+    private static final Logger LOG = LoggerFactory.getLogger(DomainNormalizer.class);
+    private static final String PUBLIC_SUFFIX_LIST = "/public_suffix_list.dat";
+    private static final int MAX_HOST_LENGTH = 253;
+    private static final int MAX_LABEL_LENGTH = 63;
+
+    // Kinds of public suffix rules, a suffix may have several
+    private static final byte NORMAL = 1;
+    private static final byte WILDCARD = 2;
+    private static final byte EXCEPTION = 4;
+
+    private DomainNormalizer() {
+    }
+
+    /**
+     * @param input domain or url
+     * @return the registrable domain of the host, null if the input has no valid domain name
+     */
+    public static String canonicalize(String input) {
+        String host = normalizeHost(input);
+        return host == null ? null : getRegistrableDomain(host);
+    }
+
+    /**
+     * @param input domain or url
+     * @return the lowercased ascii host name of the input, null if it is not a valid domain name
+     */
+    public static String normalizeHost(String input) {
+        if (input == null) {
+            return null;
+        }
+        int start = 0;
+        int end = input.length();
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && input.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        start = skipScheme(input, start, end);
+        // The authority ends at the path, query or fragment
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c == '/' || c == '?' || c == '#' || c == '\\') {
+                end = i;
+                break;
+            }
+        }
+        int userInfo = input.lastIndexOf('@', end - 1);
+        if (userInfo >= start) {
+            start = userInfo + 1;
+        }
+        for (int i = start; i < end; i++) {
+            if (input.charAt(i) == ':') {
+                end = i;
+                break;
+            }
+        }
+        while (end > start && input.charAt(end - 1) == '.') {
+            end--;
+        }
+
+        boolean ascii = true;
+        boolean upperCase = false;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c >= 0x80) {
+                ascii = false;
+                break;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                upperCase = true;
+            }
+        }
+
+        String host;
+        if (ascii) {
+            host = start == 0 && end == input.length() ? input : input.substring(start, end);
+            if (upperCase) {
+                host = toLowerCase(host);
+            }
+        } else {
+            host = toAscii(input.substring(start, end));
+            if (host == null) {
+                return null;
+            }
+        }
+        return isValidHost(host) ? host : null;
+    }
+
+    /**
+     * <p>
+     * Public suffix plus one label (www.news.example.co.uk -> example.co.uk). A host which is a public suffix
+     * itself or has no dot is its own registrable domain.
+     * </p>
+     *
+     * @param host host name, ascii
+     * @return
+     */
+    public static String getRegistrableDomain(String host) {
+        int end = host.length();
+        while (end > 0 && host.charAt(end - 1) == '.') {
+            end--;
+        }
+        String domain = end == host.length() ? host : host.substring(0, end);
+        if (hasUpperCase(domain)) {
+            domain = toLowerCase(domain);
+        }
+
+        // Candidate suffixes from the longest to the shortest, the first match is the prevailing rule
+        int previousLabel = -1;
+        int label = 0;
+        while (label < end) {
+            int nextLabel = domain.indexOf('.', label);
+            nextLabel = nextLabel < 0 ? end : nextLabel + 1;
+
+            byte rules = PublicSuffixes.INSTANCE.get(domain, label, end);
+            if ((rules & EXCEPTION) != 0) {
+                // The suffix is registrable itself, its parent is the public suffix
+                return label == 0 ? domain : domain.substring(label);
+            }
+            boolean wildcard = nextLabel < end
+                    && (PublicSuffixes.INSTANCE.get(domain, nextLabel, end) & WILDCARD) != 0;
+            if ((rules & NORMAL) != 0 || wildcard || nextLabel >= end) {
+                // Public suffix found, the last label being the default rule
+                if (previousLabel <= 0) {
+                    return domain;
+                }
+                return domain.substring(previousLabel);
+            }
+            previousLabel = label;
+            label = nextLabel;
+        }
+        return domain;
+    }
+
+    /**
+     * <p> Skips a scheme (http://) or a scheme relative prefix (//) </p>
+     */
+    private static int skipScheme(String input, int start, int end) {
+        if (end - start >= 2 && input.charAt(start) == '/' && input.charAt(start + 1) == '/') {
+            return start + 2;
+        }
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c == ':') {
+                boolean scheme = i > start && i + 2 < end && input.charAt(i + 1) == '/'
+                        && input.charAt(i + 2) == '/';
+                return scheme ? i + 3 : start;
+            }
+            if (!(Character.isLetterOrDigit(c) && c < 0x80 || c == '+' || c == '-' || c == '.')) {
+                return start;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * <p>
+     * Letters, digits, hyphens and underscores in labels of 1 to 63 characters not starting or ending with a
+     * hyphen, at least two labels and a top level domain which is not numeric (no ip addresses).
+     * </p>
+     */
+    private static boolean isValidHost(String host) {
+        int length = host.length();
+        if (length == 0 || length > MAX_HOST_LENGTH) {
+            return false;
+        }
+        int labelStart = 0;
+        int labels = 0;
+        boolean numericLabel = true;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? host.charAt(i) : '.';
+            if (c == '.') {
+                int labelLength = i - labelStart;
+                if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH
+                        || host.charAt(labelStart) == '-' || host.charAt(i - 1) == '-') {
+                    return false;
+                }
+                labels++;
+                if (i < length) {
+                    numericLabel = true;
+                }
+                labelStart = i + 1;
+            } else if (c >= 'a' && c <= 'z' || c == '-' || c == '_') {
+                numericLabel = false;
+            } else if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return labels >= 2 && !numericLabel;
+    }
+
+    private static String toAscii(String host) {
+        try {
+            return toLowerCase(IDN.toASCII(host, IDN.ALLOW_UNASSIGNED));
+        } catch (IllegalArgumentException e) {
+            LOG.debug("Invalid internationalized domain name: {}", host);
+            return null;
+        }
+    }
+
+    private static boolean hasUpperCase(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Ascii only, unlike String.toLowerCase() independent of the default locale
+    private static String toLowerCase(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                chars[i] += 'a' - 'A';
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * <p>
+     * Rules of the public suffix list in an open addressing table which is probed with a range of a host name,
+     * so looking up the suffixes of a host creates no strings. Wildcard rules (*.ck) are stored under their
+     * parent (ck), exception rules (!www.ck) under the exempted suffix (www.ck).
+     * </p>
+     */
+    private static final class PublicSuffixes {
+        private static final PublicSuffixes INSTANCE = load();
+
+        private final String[] suffixes;
+        private final byte[] rules;
+        private final int mask;
+
+        private PublicSuffixes(int capacity) {
+            int size = Integer.highestOneBit(Math.max(capacity, 1) * 2) * 2;
+            suffixes = new String[size];
+            rules = new byte[size];
+            mask = size - 1;
+        }
+
+        private static PublicSuffixes load() {
+            List<String> lines = new ArrayList<>();
+            try (InputStream inputStream = DomainNormalizer.class.getResourceAsStream(PUBLIC_SUFFIX_LIST);
+                 BufferedReader reader = new BufferedReader(
+                         new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // A rule is the first word of a line
+                    int end = 0;
+                    while (end < line.length() && !Character.isWhitespace(line.charAt(end))) {
+                        end++;
+                    }
+                    if (end > 0 && !line.startsWith("//")) {
+                        lines.add(line.substring(0, end));
+                    }
+                }
+            } catch (Exception e) {
+                // Every host falls back to the default rule, its last label being the public suffix
+                LOG.error("Error reading the public suffix list {}: ", PUBLIC_SUFFIX_LIST, e);
+            }
+
+            PublicSuffixes publicSuffixes = new PublicSuffixes(lines.size());
+            for (String line : lines) {
+                byte kind = NORMAL;
+                String suffix = line;
+                if (line.startsWith("!")) {
+                    kind = EXCEPTION;
+                    suffix = line.substring(1);
+                } else if (line.startsWith("*.")) {
+                    kind = WILDCARD;
+                    suffix = line.substring(2);
+                }
+                suffix = toAscii(suffix);
+                if (suffix != null) {
+                    publicSuffixes.add(suffix, kind);
+                }
+            }
+            LOG.debug("Loaded {} public suffix rules", lines.size());
+            return publicSuffixes;
+        }
+
+        private void add(String suffix, byte kind) {
+            int slot = slot(suffix, 0, suffix.length());
+            suffixes[slot] = suffix;
+            rules[slot] |= kind;
+        }
+
+        /**
+         * @return the kinds of rules for host[start, end), 0 if there are none
+         */
+        byte get(String host, int start, int end) {
+            int slot = slot(host, start, end);
+            return suffixes[slot] == null ? 0 : rules[slot];
+        }
+
+        private int slot(String host, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + host.charAt(i);
+            }
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            int length = end - start;
+            while (suffixes[slot] != null && !(suffixes[slot].length() == length
+                    && suffixes[slot].regionMatches(0, host, start, length))) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
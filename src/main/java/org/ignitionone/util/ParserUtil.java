@@ -23,25 +23,19 @@
  */
 package org.ignitionone.util;
 
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public final class ParserUtil {
-    private static final String WWWPATTERN = "[^(www.)][a-zA-Z0-9]['.'][a-z]"; // Negate starting with www
-    private static final String HTMLTAG = "<[('/')?('!')?a-zA-Z ]*.>"; // Matches any html tag, also <!DOCTYPE html>.
-    private static final String ADSTXT = "(#Ads.txt[a-zA-Z]*)";
-    private static final Pattern wwwPattern = Pattern.compile(WWWPATTERN);
-    private static final Pattern htmlPattern = Pattern.compile(HTMLTAG);
-    private static final Pattern adstxtPattern = Pattern.compile(ADSTXT);
 
     public static Set<String> filterValidUrls(Set<String> domains) {
+        return filterValidUrls(domains, false);
+    }
+
+    public static Set<String> filterValidUrls(Set<String> domains, boolean registrableDomain) {
 
         Set<String> filtered = domains.parallelStream()
-                .map(domain -> ParserUtil.sanitizeUrl(domain))
+                .map(domain -> ParserUtil.sanitizeUrl(domain, registrableDomain))
                 .filter(domain -> domain != null)
                 .filter(domain -> !domain.isEmpty())
                 .collect(Collectors.toSet());
@@ -49,32 +43,72 @@ public final class ParserUtil {
         return filtered;
     }
 
+    /**
+     * <p> Crawl target of a domain or url of the read stores, see {@link DomainNormalizer#normalizeHost} </p>
+     *
+     * @param content
+     * @return the listed host, null if there is no valid domain name
+     */
     public static String sanitizeUrl(String content) {
-        // missing protocol is handled by parallec library
-        try {
-            URL url = new URL(content);
-            return url.toString();
-        } catch (MalformedURLException e) {
-            Matcher wwwMatcher = wwwPattern.matcher(content);
+        return sanitizeUrl(content, false);
+    }
 
-            if (wwwMatcher.find()) {
-                if (!content.startsWith("www.")) {
-                    content = "www." + content;
-                }
-                return content;
-            } else {
-                return null;
-            }
+    /**
+     * @param content
+     * @param registrableDomain collapse the host to its registrable domain, see
+     *                          {@link DomainNormalizer#canonicalize}
+     * @return the listed host or its registrable domain, null if there is no valid domain name
+     */
+    public static String sanitizeUrl(String content, boolean registrableDomain) {
+        return registrableDomain ? DomainNormalizer.canonicalize(content) : DomainNormalizer.normalizeHost(content);
+    }
+
+    /**
+     * <p> Host name of a crawl target, which is either a domain or a url (http://example.com/) </p>
+     *
+     * @param domain
+     * @return
+     */
+    public static String getHost(String domain) {
+        int start = domain.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < domain.length() && domain.charAt(end) != '/' && domain.charAt(end) != ':') {
+            end++;
         }
+        return domain.substring(start, end);
     }
 
-    public static boolean isHtml(String content) {
-        Matcher htmlMatcher = htmlPattern.matcher(content);
-        return htmlMatcher.find();
+    /**
+     * <p> Registrable domain of a host name, see {@link DomainNormalizer#getRegistrableDomain} </p>
+     *
+     * @param host
+     * @return
+     */
+    public static String getRegistrableDomain(String host) {
+        return DomainNormalizer.getRegistrableDomain(host);
     }
 
-    public static boolean isAdsTXT(String content) {
-        Matcher adsTxtMatcher = adstxtPattern.matcher(content);
-        return adsTxtMatcher.find();
+    /**
+     * <p>
+     * 64 bit FNV-1a hash over the characters of the content, with CRLF line breaks hashed as LF since both parse
+     * the same. Used to detect unchanged and identical ads.txt files.
+     * </p>
+     *
+     * @param content
+     * @return
+     */
+    public static long contentHash(CharSequence content) {
+        long hash = 0xcbf29ce484222325L;
+        int length = content.length();
+        for (int i = 0; i < length; i++) {
+            char c = content.charAt(i);
+            if (c == '\r' && i + 1 < length && content.charAt(i + 1) == '\n') {
+                continue;
+            }
+            hash ^= c;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
     }
 }
@@ -0,0 +1,83 @@
+package org.ignitionone.benchmark;
+
+import org.ignitionone.util.ContentClassifier;
+import org.ignitionone.util.ContentClassifier.ContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Compares the {@link ContentClassifier} with the html tag and "#Ads.txt" regexes it replaced, on an ads.txt
+ * file with and without the "#Ads.txt" comment and on a large html page. Run with:
+ * <br>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.ignitionone.benchmark.ContentClassifierBenchmark
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentClassifierBenchmark {
+    private static final Pattern HTML_PATTERN = Pattern.compile("<[('/')?('!')?a-zA-Z ]*.>");
+    private static final Pattern ADSTXT_PATTERN = Pattern.compile("(#Ads.txt[a-zA-Z]*)");
+
+    @Param({"ADS_TXT", "ADS_TXT_WITHOUT_COMMENT", "HTML"})
+    public String body;
+
+    private String content;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        if (body.equals("HTML")) {
+            builder.append("<!DOCTYPE html>\n<html><head><title>Not found</title></head><body>\n");
+            for (int i = 0; i < 5000; i++) {
+                builder.append("<div class=\"item\"><a href=\"/page/").append(i).append("\">Page ").append(i)
+                        .append("</a></div>\n");
+            }
+            builder.append("</body></html>");
+        } else {
+            if (body.equals("ADS_TXT")) {
+                builder.append("#Ads.txt example.com\n");
+            }
+            for (int i = 0; i < 2000; i++) {
+                builder.append("exchange").append(i % 50).append(".com, pub-").append(i)
+                        .append(i % 3 == 0 ? ", RESELLER\n" : ", DIRECT, f08c47fec0942fa0\n");
+            }
+        }
+        content = builder.toString();
+    }
+
+    @Benchmark
+    public ContentType classifier() {
+        return ContentClassifier.classify(content);
+    }
+
+    @Benchmark
+    public boolean regexes() {
+        return !HTML_PATTERN.matcher(content).find() && ADSTXT_PATTERN.matcher(content).find();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ContentClassifierBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
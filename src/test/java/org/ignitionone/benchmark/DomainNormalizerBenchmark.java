@@ -0,0 +1,102 @@
+package org.ignitionone.benchmark;
+
+import org.ignitionone.util.DomainNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Compares the {@link DomainNormalizer} with the URL parsing and www regex sanitizeUrl used before, on input
+ * rows as read from the stores: mostly bare domains, some with www, upper case or a scheme and path. Run with:
+ * <br>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.ignitionone.benchmark.DomainNormalizerBenchmark
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DomainNormalizerBenchmark {
+    private static final int ROWS = 10000;
+    private static final Pattern WWW_PATTERN = Pattern.compile("[^(www.)][a-zA-Z0-9]['.'][a-z]");
+    private static final String[] SUFFIXES = {".com", ".net", ".co.uk", ".de", ".com.au", ".org", ".blogspot.com"};
+
+    private String[] rows;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        rows = new String[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            String domain = "publisher" + random.nextInt(1000000) + SUFFIXES[random.nextInt(SUFFIXES.length)];
+            switch (random.nextInt(10)) {
+                case 0:
+                    rows[i] = "http://www." + domain + "/";
+                    break;
+                case 1:
+                case 2:
+                    rows[i] = "www." + domain;
+                    break;
+                case 3:
+                    rows[i] = domain.toUpperCase();
+                    break;
+                default:
+                    rows[i] = domain;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void domainNormalizer(Blackhole blackhole) {
+        for (String row : rows) {
+            blackhole.consume(DomainNormalizer.canonicalize(row));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void urlAndRegex(Blackhole blackhole) {
+        for (String row : rows) {
+            blackhole.consume(sanitizeUrl(row));
+        }
+    }
+
+    private static String sanitizeUrl(String content) {
+        try {
+            return new URL(content).toString();
+        } catch (MalformedURLException e) {
+            if (WWW_PATTERN.matcher(content).find()) {
+                return content.startsWith("www.") ? content : "www." + content;
+            }
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DomainNormalizerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
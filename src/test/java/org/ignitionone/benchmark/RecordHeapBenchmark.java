@@ -0,0 +1,119 @@
+package org.ignitionone.benchmark;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.parser.AdsTxtParser;
+import org.ignitionone.parser.CrawlDictionary;
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * Heap retained per record by the records of a synthetic crawl, parsed with the {@link CrawlDictionary} and
+ * with the per record copies of every value and insert date the parser made before. Retained heap is not
+ * something JMH measures, this is a plain program. Run with:
+ * <br>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.ignitionone.benchmark.RecordHeapBenchmark
+ * </p>
+ */
+public class RecordHeapBenchmark {
+    private static final int FILES = 20000;
+    private static final int LINES_PER_FILE = 100;
+    private static final int AD_SYSTEMS = 200;
+    private static final int PUBLISHER_IDS = 50000;
+
+    public static void main(String[] args) {
+        List<String> bodies = bodies();
+
+        long legacyHeap = retainedHeap("Copies per record", () -> {
+            List<Object> legacyRecords = new ArrayList<>(FILES * LINES_PER_FILE);
+            for (int i = 0; i < bodies.size(); i++) {
+                for (AdsTxtRecord adsTxtRecord : parse(new CrawlDictionary(0), i, bodies.get(i))) {
+                    legacyRecords.add(new LegacyRecord(adsTxtRecord));
+                }
+            }
+            return legacyRecords;
+        });
+
+        CrawlDictionary crawlDictionary = new CrawlDictionary();
+        long dictionaryHeap = retainedHeap("Crawl dictionary", () -> {
+            List<Object> adsTxtRecords = new ArrayList<>(FILES * LINES_PER_FILE);
+            for (int i = 0; i < bodies.size(); i++) {
+                adsTxtRecords.addAll(parse(crawlDictionary, i, bodies.get(i)));
+            }
+            return adsTxtRecords;
+        });
+        System.out.println(String.format("Heap per record reduced by %.0f%%, %d dictionary values",
+                100.0 * (legacyHeap - dictionaryHeap) / legacyHeap, crawlDictionary.size()));
+    }
+
+    private static long retainedHeap(String name, Supplier<List<Object>> records) {
+        long before = usedHeap();
+        List<Object> retained = records.get();
+        long heap = usedHeap() - before;
+        System.out.println(String.format("%-20s %,d records, %,d MB, %d bytes per record", name, retained.size(),
+                heap >> 20, heap / retained.size()));
+        return heap;
+    }
+
+    private static List<AdsTxtRecord> parse(CrawlDictionary crawlDictionary, int file, String body) {
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>(LINES_PER_FILE);
+        new AdsTxtParser(0, crawlDictionary).parse("www.publisher" + file + ".com", body, adsTxtRecords);
+        return adsTxtRecords;
+    }
+
+    private static List<String> bodies() {
+        Random random = new Random(42);
+        List<String> bodies = new ArrayList<>(FILES);
+        for (int i = 0; i < FILES; i++) {
+            StringBuilder body = new StringBuilder("#Ads.txt\n");
+            for (int line = 0; line < LINES_PER_FILE; line++) {
+                int adSystem = random.nextInt(AD_SYSTEMS);
+                body.append("adsystem").append(adSystem).append(".com, pub-").append(random.nextInt(PUBLISHER_IDS))
+                        .append(random.nextInt(3) == 0 ? ", RESELLER" : ", DIRECT");
+                if (adSystem % 2 == 0) {
+                    body.append(", ").append(Long.toHexString(adSystem * 0x9E3779B97F4A7C15L));
+                }
+                body.append('\n');
+            }
+            bodies.add(body.toString());
+        }
+        return bodies;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * <p> Record as built before, with its own copy of every value and its own insert date </p>
+     */
+    private static class LegacyRecord {
+        private final DateTime insertDate;
+        private final String sourceDomain;
+        private final String adServingDomain;
+        private final String publisherAccId;
+        private final String accType;
+        private final String certAuthId;
+
+        LegacyRecord(AdsTxtRecord adsTxtRecord) {
+            insertDate = new DateTime();
+            sourceDomain = adsTxtRecord.getSourceDomain();
+            adServingDomain = copy(adsTxtRecord.getAdServingDomain());
+            publisherAccId = copy(adsTxtRecord.getPublisherAccId());
+            accType = copy(adsTxtRecord.getAccType());
+            certAuthId = copy(adsTxtRecord.getCertAuthId());
+        }
+
+        private static String copy(String value) {
+            return value == null || value.isEmpty() ? value : new String(value.toCharArray());
+        }
+    }
+}
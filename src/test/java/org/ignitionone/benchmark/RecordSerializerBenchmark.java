@@ -0,0 +1,126 @@
+package org.ignitionone.benchmark;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtRecordSerializer;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Compares the {@link AdsTxtRecordSerializer} with the record toString() the file store wrote before, which
+ * built a date formatter per record, on the records of one crawl (one shared insert date). Both write to a
+ * writer that discards the output. Run with:
+ * <br>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.ignitionone.benchmark.RecordSerializerBenchmark
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordSerializerBenchmark {
+    private static final int RECORDS = 10000;
+
+    private final List<AdsTxtRecord> adsTxtRecords = new ArrayList<>(RECORDS);
+    private final AdsTxtRecordSerializer serializer = new AdsTxtRecordSerializer();
+    private final NullWriter writer = new NullWriter();
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        DateTime insertDate = new DateTime();
+        for (int i = 0; i < RECORDS; i++) {
+            AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+            adsTxtRecord.setInsertDate(insertDate);
+            adsTxtRecord.setSourceDomain("publisher" + random.nextInt(100000) + ".com");
+            adsTxtRecord.setAdServingDomain("adsystem" + random.nextInt(200) + ".com");
+            adsTxtRecord.setPublisherAccId("pub-" + random.nextInt(1000000));
+            adsTxtRecord.setAccType(random.nextBoolean() ? "DIRECT" : "RESELLER");
+            adsTxtRecord.setCertAuthId(random.nextBoolean() ? "f08c47fec0942fa0" : "");
+            adsTxtRecords.add(adsTxtRecord);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long serializer() throws IOException {
+        for (AdsTxtRecord adsTxtRecord : adsTxtRecords) {
+            serializer.write(writer, adsTxtRecord);
+        }
+        return writer.reset();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long formatterPerRecord() throws IOException {
+        for (AdsTxtRecord adsTxtRecord : adsTxtRecords) {
+            writer.write(DateTimeFormat.forPattern("YYYY-M-dd HH:MM:SS").print(adsTxtRecord.getInsertDate()) + "," +
+                    adsTxtRecord.getSourceDomain() + "," +
+                    adsTxtRecord.getAdServingDomain() + "," +
+                    adsTxtRecord.getPublisherAccId() + "," +
+                    adsTxtRecord.getAccType() + "," +
+                    adsTxtRecord.getCertAuthId() + "\n");
+        }
+        return writer.reset();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RecordSerializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * <p> Counts the characters written </p>
+     */
+    private static class NullWriter extends Writer {
+        private long written;
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            written += length + chars[offset];
+        }
+
+        @Override
+        public void write(String value) {
+            written += value.length() + value.charAt(0);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        long reset() {
+            long result = written;
+            written = 0;
+            return result;
+        }
+    }
+}
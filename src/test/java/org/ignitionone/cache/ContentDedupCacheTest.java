@@ -0,0 +1,132 @@
+package org.ignitionone.cache;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtVariable;
+import org.ignitionone.parser.AdsTxtParser;
+import org.ignitionone.util.ParserUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ContentDedupCacheTest {
+    private static final String CONTENT = "#Ads.txt\n" +
+            "google.com, pub-9789600135996590, DIRECT, d75815a79\n" +
+            " , ,\n" +
+            "rubiconproject.com, 11914, RESELLER";
+
+    @Test
+    public void testIdenticalBodiesAreParsedOnce() {
+        ContentDedupCache contentDedupCache = new ContentDedupCache(new AdsTxtParser(), 10);
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        contentDedupCache.parse("www.domain1.com", CONTENT, ParserUtil.contentHash(CONTENT), adsTxtRecords);
+        contentDedupCache.parse("www.domain2.com", CONTENT, ParserUtil.contentHash(CONTENT), adsTxtRecords);
+        String crlfContent = CONTENT.replace("\n", "\r\n");
+        contentDedupCache.parse("www.domain3.com", crlfContent, ParserUtil.contentHash(crlfContent), adsTxtRecords);
+        String otherContent = "indexexchange.com, 184475, DIRECT";
+        contentDedupCache.parse("www.domain4.com", otherContent, ParserUtil.contentHash(otherContent),
+                adsTxtRecords);
+
+        assertEquals(2, contentDedupCache.size());
+        assertEquals(4, contentDedupCache.getBodies());
+        assertEquals(2, contentDedupCache.getDuplicates());
+        assertEquals(0.5, contentDedupCache.getDedupRatio(), 0.0001);
+
+        assertEquals(10, adsTxtRecords.size());
+        for (int domain = 0; domain < 3; domain++) {
+            AdsTxtRecord first = adsTxtRecords.get(domain * 3);
+            assertEquals("www.domain" + (domain + 1) + ".com", first.getSourceDomain());
+            assertNotNull(first.getInsertDate());
+            assertEquals("google.com", first.getAdServingDomain());
+            assertEquals("pub-9789600135996590", first.getPublisherAccId());
+            assertEquals("DIRECT", first.getAccType());
+            assertEquals("d75815a79", first.getCertAuthId());
+            // The empty record of the separator line stays empty
+            assertNull(adsTxtRecords.get(domain * 3 + 1).getSourceDomain());
+            assertNull(adsTxtRecords.get(domain * 3 + 1).getInsertDate());
+            assertEquals("11914", adsTxtRecords.get(domain * 3 + 2).getPublisherAccId());
+        }
+        assertNotSame(adsTxtRecords.get(0), adsTxtRecords.get(3));
+        assertEquals("www.domain4.com", adsTxtRecords.get(9).getSourceDomain());
+    }
+
+    @Test
+    public void testCachedRecordsAreNotChangedByCallers() {
+        ContentDedupCache contentDedupCache = new ContentDedupCache(new AdsTxtParser(), 10);
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        contentDedupCache.parse("www.domain1.com", CONTENT, 1L, adsTxtRecords);
+        adsTxtRecords.get(0).setPublisherAccId("changed");
+
+        List<AdsTxtRecord> copies = new ArrayList<>();
+        contentDedupCache.parse("www.domain2.com", CONTENT, 1L, copies);
+        assertEquals("pub-9789600135996590", copies.get(0).getPublisherAccId());
+    }
+
+    @Test
+    public void testVariablesAreKeptWithTheRecords() {
+        ContentDedupCache contentDedupCache = new ContentDedupCache(new AdsTxtParser(), 10);
+        String content = CONTENT + "\nSUBDOMAIN=sub.domain.com\n";
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        List<AdsTxtVariable> adsTxtVariables = new ArrayList<>();
+        contentDedupCache.parse("www.domain1.com", content, 1L, adsTxtRecords, adsTxtVariables);
+
+        List<AdsTxtRecord> copies = new ArrayList<>();
+        List<AdsTxtVariable> copiedVariables = new ArrayList<>();
+        contentDedupCache.parse("www.domain2.com", content, 1L, copies, copiedVariables);
+
+        assertEquals(1, contentDedupCache.getDuplicates());
+        assertEquals(3, copies.size());
+        assertEquals(adsTxtVariables, copiedVariables);
+        assertEquals(new AdsTxtVariable(AdsTxtVariable.SUBDOMAIN, "sub.domain.com"), copiedVariables.get(0));
+    }
+
+    @Test
+    public void testFullCacheEvictsLeastRecentlyUsedBodies() {
+        ContentDedupCache fullCache = new ContentDedupCache(new AdsTxtParser(), 1);
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        fullCache.parse("www.domain1.com", CONTENT, 1L, adsTxtRecords);
+        fullCache.parse("www.domain2.com", "indexexchange.com, 184475, DIRECT", 2L, adsTxtRecords);
+        fullCache.parse("www.domain3.com", "indexexchange.com, 184475, DIRECT", 2L, adsTxtRecords);
+        fullCache.parse("www.domain4.com", CONTENT, 1L, adsTxtRecords);
+        assertEquals(1, fullCache.size());
+        assertEquals(1, fullCache.getDuplicates());
+        assertEquals(8, adsTxtRecords.size());
+    }
+
+    @Test
+    public void testCacheIsBoundedByRecords() {
+        ContentDedupCache boundedCache = new ContentDedupCache(new AdsTxtParser(), 10, 4);
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        boundedCache.parse("www.domain1.com", CONTENT, 1L, adsTxtRecords);
+        boundedCache.parse("www.domain2.com", "indexexchange.com, 184475, DIRECT", 2L, adsTxtRecords);
+        assertEquals(2, boundedCache.size());
+        assertEquals(4, boundedCache.getCachedRecords());
+
+        // Served again, the other body is evicted first
+        boundedCache.parse("www.domain3.com", CONTENT, 1L, adsTxtRecords);
+        boundedCache.parse("www.domain4.com", "appnexus.com, 1234, DIRECT", 3L, adsTxtRecords);
+        assertEquals(2, boundedCache.size());
+        assertEquals(4, boundedCache.getCachedRecords());
+        boundedCache.parse("www.domain5.com", CONTENT, 1L, adsTxtRecords);
+        assertEquals(2, boundedCache.getDuplicates());
+
+        // Bodies with more records than the bound are not cached at all
+        ContentDedupCache smallCache = new ContentDedupCache(new AdsTxtParser(), 10, 2);
+        smallCache.parse("www.domain1.com", CONTENT, 1L, adsTxtRecords);
+        assertEquals(0, smallCache.size());
+    }
+
+    @Test
+    public void testDisabledCacheParsesEveryBody() {
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        ContentDedupCache disabledCache = new ContentDedupCache(new AdsTxtParser(), 0);
+        assertFalse(disabledCache.isEnabled());
+        disabledCache.parse("www.domain1.com", CONTENT, 1L, adsTxtRecords);
+        disabledCache.parse("www.domain2.com", CONTENT, 1L, adsTxtRecords);
+        assertEquals(0, disabledCache.size());
+        assertEquals(0.0, disabledCache.getDedupRatio(), 0.0001);
+        assertEquals(6, adsTxtRecords.size());
+    }
+}
@@ -0,0 +1,70 @@
+package org.ignitionone.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class DnsCacheTest {
+    private File cacheFile;
+
+    @Before
+    public void setup() throws IOException {
+        cacheFile = File.createTempFile("dnscache", ".tsv");
+        Files.delete(cacheFile.toPath());
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Files.deleteIfExists(cacheFile.toPath());
+    }
+
+    @Test
+    public void testExpiry() {
+        DnsCache dnsCache = new DnsCache("");
+        dnsCache.putResolved("www.example.com", "93.184.216.34", 1000L);
+
+        assertEquals("93.184.216.34", dnsCache.get("www.example.com", 999L).getAddress());
+        assertNull(dnsCache.get("www.example.com", 1000L));
+        assertNull(dnsCache.get("www.unknown.com", 0L));
+    }
+
+    @Test
+    public void testSaveAndLoad() {
+        long future = System.currentTimeMillis() + 60000L;
+        DnsCache dnsCache = new DnsCache(cacheFile.getAbsolutePath());
+        dnsCache.putResolved("www.example.com", "93.184.216.34", future);
+        dnsCache.putUnresolvable("www.nxdomain.com", future);
+        dnsCache.putFailed("www.servfail.com", future);
+        dnsCache.putResolved("www.expired.com", "10.0.0.1", 1L);
+        dnsCache.save();
+
+        DnsCache loaded = new DnsCache(cacheFile.getAbsolutePath());
+        loaded.load();
+        assertEquals(2, loaded.size());
+
+        DnsCache.Entry resolved = loaded.get("www.example.com", 0L);
+        assertTrue(resolved.isResolved());
+        assertEquals("93.184.216.34", resolved.getAddress());
+        assertEquals(future, resolved.getExpiresAt());
+
+        DnsCache.Entry unresolvable = loaded.get("www.nxdomain.com", 0L);
+        assertFalse(unresolvable.isResolved());
+        assertNull(loaded.getAddress("www.nxdomain.com"));
+        // Failed lookups are retried by the next crawl
+        assertNull(loaded.get("www.servfail.com", 0L));
+    }
+
+    @Test
+    public void testInMemoryCacheIsNotSaved() {
+        DnsCache dnsCache = new DnsCache("");
+        dnsCache.putResolved("www.example.com", "93.184.216.34", Long.MAX_VALUE);
+        dnsCache.save();
+        assertFalse(dnsCache.isPersistent());
+    }
+}
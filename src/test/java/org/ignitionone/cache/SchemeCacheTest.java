@@ -0,0 +1,42 @@
+package org.ignitionone.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SchemeCacheTest {
+    private File cacheFile;
+
+    @Before
+    public void setup() throws IOException {
+        cacheFile = File.createTempFile("schemecache", ".tsv");
+        Files.delete(cacheFile.toPath());
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Files.deleteIfExists(cacheFile.toPath());
+    }
+
+    @Test
+    public void testSaveAndLoad() {
+        SchemeCache schemeCache = new SchemeCache(cacheFile.getAbsolutePath());
+        schemeCache.put("example.com", "https://www.example.com:443/ads.txt");
+        schemeCache.put("www.removed.com", "http://www.removed.com:80/ads.txt");
+        schemeCache.remove("www.removed.com");
+        schemeCache.save();
+
+        SchemeCache loaded = new SchemeCache(cacheFile.getAbsolutePath());
+        loaded.load();
+        assertEquals(1, loaded.size());
+        assertEquals("https://www.example.com:443/ads.txt", loaded.get("example.com"));
+        assertNull(loaded.get("www.removed.com"));
+    }
+}
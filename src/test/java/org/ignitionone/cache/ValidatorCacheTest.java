@@ -0,0 +1,148 @@
+package org.ignitionone.cache;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.parser.CrawlDictionary;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ValidatorCacheTest {
+    private File cacheFile;
+
+    @Before
+    public void setup() throws IOException {
+        cacheFile = File.createTempFile("validatorcache", ".tsv");
+        Files.delete(cacheFile.toPath());
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Files.deleteIfExists(cacheFile.toPath());
+    }
+
+    @Test
+    public void testSaveAndLoad() {
+        ValidatorCache validatorCache = new ValidatorCache(cacheFile.getAbsolutePath());
+        validatorCache.put("www.example.com", "\"abc\"", "Wed, 21 Oct 2015 07:28:00 GMT", 42L, records());
+        validatorCache.put("www.noheaders.com", null, null, 7L, new ArrayList<>());
+        validatorCache.put("www.subdomains.com", null, null, 8L, records(),
+                Arrays.asList("sub1.subdomains.com", "sub2.subdomains.com"));
+        validatorCache.save();
+
+        ValidatorCache loaded = new ValidatorCache(cacheFile.getAbsolutePath());
+        loaded.load();
+        assertEquals(3, loaded.size());
+
+        ValidatorCache.Entry entry = loaded.get("www.example.com");
+        assertEquals("\"abc\"", entry.getEtag());
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", entry.getLastModified());
+        assertEquals(42L, entry.getContentHash());
+        assertEquals(2, entry.getLines().size());
+        assertEquals("google.com", entry.getLines().get(0)[0]);
+        assertEquals("", entry.getLines().get(1)[3]);
+
+        ValidatorCache.Entry noHeaders = loaded.get("www.noheaders.com");
+        assertNull(noHeaders.getEtag());
+        assertNull(noHeaders.getLastModified());
+        assertEquals(0, noHeaders.getLines().size());
+        assertTrue(noHeaders.getSubdomains().isEmpty());
+
+        ValidatorCache.Entry subdomains = loaded.get("www.subdomains.com");
+        assertEquals(2, subdomains.getLines().size());
+        assertEquals(Arrays.asList("sub1.subdomains.com", "sub2.subdomains.com"), subdomains.getSubdomains());
+    }
+
+    @Test
+    public void testLoadWithoutSubdomainsColumn() throws IOException {
+        Files.write(cacheFile.toPath(), Arrays.asList("www.example.com\t\"abc\"\t\t42\t1",
+                "google.com\tpub-1\tDIRECT\t"), StandardCharsets.UTF_8);
+        ValidatorCache loaded = new ValidatorCache(cacheFile.getAbsolutePath());
+        loaded.load();
+
+        ValidatorCache.Entry entry = loaded.get("www.example.com");
+        assertEquals(1, entry.getLines().size());
+        assertTrue(entry.getSubdomains().isEmpty());
+    }
+
+    @Test
+    public void testReusedRecordsShareDictionaryValues() throws IOException {
+        Files.write(cacheFile.toPath(), Arrays.asList("www.example.com\t\"abc\"\t\t42\t1",
+                "google.com\tpub-1\tDIRECT\t"), StandardCharsets.UTF_8);
+        CrawlDictionary crawlDictionary = new CrawlDictionary();
+        String google = crawlDictionary.canonicalize(new String("google.com"));
+        ValidatorCache loaded = new ValidatorCache(cacheFile.getAbsolutePath(), crawlDictionary);
+        loaded.load();
+
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        assertTrue(loaded.reuseNotModified("www.example.com", crawlDictionary.getInsertDate(), adsTxtRecords));
+        assertSame(google, adsTxtRecords.get(0).getAdServingDomain());
+        assertSame(crawlDictionary.canonicalize("pub-1"), adsTxtRecords.get(0).getPublisherAccId());
+    }
+
+    @Test
+    public void testReuseNotModified() {
+        ValidatorCache validatorCache = new ValidatorCache("");
+        validatorCache.put("www.example.com", "\"abc\"", null, 42L, records());
+
+        DateTime insertDate = new DateTime();
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        assertTrue(validatorCache.reuseNotModified("www.example.com", insertDate, adsTxtRecords));
+        assertFalse(validatorCache.reuseNotModified("www.unknown.com", insertDate, adsTxtRecords));
+
+        assertEquals(2, adsTxtRecords.size());
+        assertEquals("www.example.com", adsTxtRecords.get(0).getSourceDomain());
+        assertEquals("pub-1", adsTxtRecords.get(0).getPublisherAccId());
+        assertEquals(insertDate, adsTxtRecords.get(1).getInsertDate());
+    }
+
+    @Test
+    public void testReuseUnchangedRequiresSameHash() {
+        ValidatorCache validatorCache = new ValidatorCache("");
+        validatorCache.put("www.example.com", "\"abc\"", null, 42L, records());
+
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        assertFalse(validatorCache.reuseUnchanged("www.example.com", "\"def\"", null, 43L,
+                new DateTime(), adsTxtRecords));
+        assertTrue(validatorCache.reuseUnchanged("www.example.com", "\"def\"", null, 42L,
+                new DateTime(), adsTxtRecords));
+
+        assertEquals(2, adsTxtRecords.size());
+        assertEquals("\"def\"", validatorCache.get("www.example.com").getEtag());
+    }
+
+    @Test
+    public void testLoadMissingFile() {
+        ValidatorCache validatorCache = new ValidatorCache(cacheFile.getAbsolutePath());
+        validatorCache.load();
+        assertEquals(0, validatorCache.size());
+    }
+
+    private List<AdsTxtRecord> records() {
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        AdsTxtRecord first = new AdsTxtRecord();
+        first.setAdServingDomain("google.com");
+        first.setPublisherAccId("pub-1");
+        first.setAccType("DIRECT");
+        first.setCertAuthId("f08c47fec0942fa0");
+        adsTxtRecords.add(first);
+
+        AdsTxtRecord second = new AdsTxtRecord();
+        second.setAdServingDomain("appnexus.com");
+        second.setPublisherAccId("1234");
+        second.setAccType("RESELLER");
+        second.setCertAuthId("");
+        adsTxtRecords.add(second);
+        return adsTxtRecords;
+    }
+}
@@ -0,0 +1,185 @@
+package org.ignitionone.datastore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConnectionPoolTest {
+    private static final String URL = "jdbc:pooltest:db";
+    private static final StubDriver DRIVER = new StubDriver();
+
+    @Before
+    public void setup() throws SQLException {
+        DRIVER.opened.clear();
+        DRIVER.stubs.clear();
+        DriverManager.registerDriver(DRIVER);
+    }
+
+    @After
+    public void teardown() throws SQLException {
+        DriverManager.deregisterDriver(DRIVER);
+    }
+
+    @Test
+    public void testClosedConnectionsAreReused() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(URL, "username", "password", 2);
+
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        assertEquals(2, DRIVER.opened.size());
+        first.close();
+        assertTrue(first.isClosed());
+        assertFalse(DRIVER.opened.get(0).isClosed());
+
+        Connection third = pool.getConnection();
+        assertNotSame(first, third);
+        assertSame(DRIVER.opened.get(0), third.unwrap(Connection.class));
+        assertEquals(2, DRIVER.opened.size());
+        second.close();
+        third.close();
+    }
+
+    @Test
+    public void testTransactionsAreRolledBackOnClose() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(URL, "username", "password", 1);
+        Connection connection = pool.getConnection();
+        connection.setAutoCommit(false);
+        connection.close();
+
+        StubConnection stub = DRIVER.stubs.get(DRIVER.opened.get(0));
+        assertTrue(stub.rolledBack.get());
+        assertTrue(pool.getConnection().getAutoCommit());
+    }
+
+    @Test
+    public void testBrokenConnectionsAreReplaced() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(URL, "username", "password", 1);
+        Connection connection = pool.getConnection();
+        DRIVER.stubs.get(DRIVER.opened.get(0)).valid.set(false);
+        connection.close();
+
+        pool.getConnection();
+        assertEquals(2, DRIVER.opened.size());
+        assertTrue(DRIVER.opened.get(0).isClosed());
+    }
+
+    @Test
+    public void testClosedConnectionCannotBeUsed() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(URL, "username", "password", 1);
+        Connection connection = pool.getConnection();
+        connection.close();
+        try {
+            connection.createStatement();
+            fail("Closed connection was used");
+        } catch (SQLException e) {
+            assertEquals("Connection is closed", e.getMessage());
+        }
+    }
+
+    private static class StubConnection {
+        private final AtomicBoolean autoCommit = new AtomicBoolean(true);
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean rolledBack = new AtomicBoolean();
+        private final AtomicBoolean valid = new AtomicBoolean(true);
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getAutoCommit":
+                                return autoCommit.get();
+                            case "setAutoCommit":
+                                autoCommit.set((Boolean) args[0]);
+                                return null;
+                            case "rollback":
+                                rolledBack.set(true);
+                                return null;
+                            case "isValid":
+                                return valid.get() && !closed.get();
+                            case "isClosed":
+                                return closed.get();
+                            case "close":
+                                closed.set(true);
+                                return null;
+                            case "unwrap":
+                                return proxy;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                throw new SQLFeatureNotSupportedException(method.getName());
+                        }
+                    });
+        }
+    }
+
+    private static class StubDriver implements Driver {
+        private final List<Connection> opened = new ArrayList<>();
+        private final Map<Connection, StubConnection> stubs = new IdentityHashMap<>();
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            StubConnection stub = new StubConnection();
+            Connection connection = stub.proxy();
+            opened.add(connection);
+            stubs.put(connection, stub);
+            return connection;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:pooltest:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.ignitionone.datastore;
 import org.ignitionone.datastore.core.DataStoreFactory;
 import org.ignitionone.datastore.core.DataStoreType;
 import org.ignitionone.datastore.core.ReadDataStore;
+import org.ignitionone.datastore.core.WriteDataStore;
 import org.junit.Test;
 
 import static org.junit.Assert.assertTrue;
@@ -12,5 +13,8 @@ public class DataStoreFactoryTest {
     public void testGetDataStore() {
         ReadDataStore postgresRead = DataStoreFactory.getReadDataStore(DataStoreType.POSTGRES);
         assertTrue(postgresRead instanceof JDBCDataStore);
+
+        WriteDataStore postgresCopyWrite = DataStoreFactory.getWriteDataStore(DataStoreType.POSTGRES_COPY);
+        assertTrue(postgresCopyWrite instanceof PostgresCopyDataStore);
     }
 }
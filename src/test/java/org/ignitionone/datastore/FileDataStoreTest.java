@@ -1,6 +1,8 @@
 package org.ignitionone.datastore;
 
 import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtRecordBatch;
+import org.ignitionone.model.CrawlTarget;
 import org.joda.time.DateTime;
 import org.junit.After;
 import org.junit.Before;
@@ -12,11 +14,14 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class FileDataStoreTest {
@@ -50,6 +55,37 @@ public class FileDataStoreTest {
         assertTrue(urls.contains("www.ignitionone.com"));
     }
 
+    @Test
+    public void testGetCrawlTargetsWithPriorities() throws IOException {
+        File weightedFile = File.createTempFile("weighted", ".csv");
+        try {
+            Files.write(weightedFile.toPath(), Arrays.asList("example.com,10", "other.org\t2", "www.third.co.uk",
+                    "fourth.com, not a priority"), StandardCharsets.UTF_8);
+            config.setProperty("filestore.inputfilename", weightedFile.getAbsolutePath());
+            FileDataStore weightedDataStore = new FileDataStore(config);
+
+            assertEquals(Arrays.asList(new CrawlTarget("example.com", 10), new CrawlTarget("other.org", 2),
+                    new CrawlTarget("www.third.co.uk"), new CrawlTarget("fourth.com, not a priority")),
+                    weightedDataStore.getCrawlTargets());
+            assertTrue(weightedDataStore.getAdsTxtUrls().contains("example.com"));
+        } finally {
+            Files.delete(weightedFile.toPath());
+        }
+    }
+
+    @Test
+    public void testStreamCrawlTargets() {
+        try (Stream<CrawlTarget> crawlTargets = fileDataStore.streamCrawlTargets()) {
+            assertEquals(2, crawlTargets.filter(crawlTarget -> crawlTarget.getDomain().contains("ignitionone"))
+                    .count());
+        }
+
+        config.setProperty("filestore.inputfilename", "missing-" + System.nanoTime() + ".csv");
+        try (Stream<CrawlTarget> crawlTargets = new FileDataStore(config).streamCrawlTargets()) {
+            assertEquals(0, crawlTargets.count());
+        }
+    }
+
     @Test
     public void testInsertAdsTxtRecords() throws IOException {
         List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
@@ -66,5 +102,85 @@ public class FileDataStoreTest {
         byte[] encoded = Files.readAllBytes(new File(outputFilePath).toPath());
         String outputFile = new String(encoded, StandardCharsets.UTF_8);
         assertTrue(outputFile.contains("SourceDomain,AdServingDomain,PublisherAccId,AccType,CertAuthId"));
+        assertFalse(fileDataStore.hasFailedWrites());
+    }
+
+    @Test
+    public void testFailedWriteIsReported() {
+        // A directory cannot be opened for writing
+        config.setProperty("filestore.outputfilename", new File(inputFilePath).getParent());
+        FileDataStore failingDataStore = new FileDataStore(config);
+        failingDataStore.insertAdsTxtRecordBatch(new AdsTxtRecordBatch());
+
+        assertTrue(failingDataStore.hasFailedWrites());
+    }
+
+    @Test
+    public void testInsertAdsTxtRecordBatchWritesSameLines() throws IOException {
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+            adsTxtRecord.setInsertDate(new DateTime());
+            adsTxtRecord.setSourceDomain("SourceDomain" + i);
+            adsTxtRecord.setAdServingDomain("AdServingDomain");
+            adsTxtRecord.setPublisherAccId("PublisherAccId" + i);
+            adsTxtRecord.setAccType("DIRECT");
+            adsTxtRecord.setCertAuthId("");
+            adsTxtRecords.add(adsTxtRecord);
+        }
+        fileDataStore.insertAdsTxtRecords(adsTxtRecords);
+        List<String> expected = Files.readAllLines(new File(outputFilePath).toPath(), StandardCharsets.UTF_8);
+
+        FileDataStore batchDataStore = new FileDataStore(config);
+        batchDataStore.insertAdsTxtRecordBatch(AdsTxtRecordBatch.of(adsTxtRecords));
+
+        assertEquals(expected, Files.readAllLines(new File(outputFilePath).toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testInsertAdsTxtRecordsAppendsSubsequentBatches() throws IOException {
+        List<AdsTxtRecord> firstBatch = new ArrayList<>();
+        AdsTxtRecord firstRecord = new AdsTxtRecord();
+        firstRecord.setInsertDate(new DateTime());
+        firstRecord.setSourceDomain("FirstDomain");
+        firstBatch.add(firstRecord);
+
+        List<AdsTxtRecord> secondBatch = new ArrayList<>();
+        AdsTxtRecord secondRecord = new AdsTxtRecord();
+        secondRecord.setInsertDate(new DateTime());
+        secondRecord.setSourceDomain("SecondDomain");
+        secondBatch.add(secondRecord);
+
+        fileDataStore.insertAdsTxtRecords(firstBatch);
+        fileDataStore.insertAdsTxtRecords(secondBatch);
+
+        List<String> lines = Files.readAllLines(new File(outputFilePath).toPath(), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("FirstDomain"));
+        assertTrue(lines.get(1).contains("SecondDomain"));
+    }
+
+    @Test
+    public void testResumeKeepsRecordsOfInterruptedCrawl() throws IOException {
+        List<AdsTxtRecord> firstBatch = new ArrayList<>();
+        AdsTxtRecord firstRecord = new AdsTxtRecord();
+        firstRecord.setInsertDate(new DateTime());
+        firstRecord.setSourceDomain("FirstDomain");
+        firstBatch.add(firstRecord);
+        fileDataStore.insertAdsTxtRecords(firstBatch);
+
+        List<AdsTxtRecord> secondBatch = new ArrayList<>();
+        AdsTxtRecord secondRecord = new AdsTxtRecord();
+        secondRecord.setInsertDate(new DateTime());
+        secondRecord.setSourceDomain("SecondDomain");
+        secondBatch.add(secondRecord);
+        FileDataStore resumedDataStore = new FileDataStore(config);
+        resumedDataStore.resume();
+        resumedDataStore.insertAdsTxtRecords(secondBatch);
+
+        List<String> lines = Files.readAllLines(new File(outputFilePath).toPath(), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("FirstDomain"));
+        assertTrue(lines.get(1).contains("SecondDomain"));
     }
 }
@@ -2,6 +2,8 @@ package org.ignitionone.datastore;
 
 import org.ignitionone.configuration.ConfigBuilder;
 import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtRecordBatch;
+import org.ignitionone.model.CrawlTarget;
 import org.joda.time.DateTime;
 import org.junit.After;
 import org.junit.Before;
@@ -12,8 +14,11 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class JDBCDataStoreTest {
     private static final String JDBC_URL = "jdbc:derby:memory:adstxt";
@@ -76,6 +81,33 @@ public class JDBCDataStoreTest {
         assertEquals(ADSTXT_URL, urls.iterator().next());
     }
 
+    @Test
+    public void testGetCrawlTargets() {
+        assertEquals(Collections.singletonList(new CrawlTarget(ADSTXT_URL)), jdbcDataStore.getCrawlTargets());
+
+        config.setProperty("jdbc.postgres.sqlquery", "SELECT url, 7 AS priority FROM adstxt_urls");
+        JDBCDataStore weightedDataStore = new JDBCDataStore(config, "postgres");
+        assertEquals(Collections.singletonList(new CrawlTarget(ADSTXT_URL, 7)), weightedDataStore.getCrawlTargets());
+    }
+
+    @Test
+    public void testNullPriorityGetsDefaultPriority() {
+        config.setProperty("jdbc.postgres.sqlquery", "SELECT url, CAST(NULL AS INT) AS priority FROM adstxt_urls");
+        JDBCDataStore weightedDataStore = new JDBCDataStore(config, "postgres");
+        assertEquals(Collections.singletonList(new CrawlTarget(ADSTXT_URL, CrawlTarget.DEFAULT_PRIORITY)),
+                weightedDataStore.getCrawlTargets());
+    }
+
+    @Test
+    public void testStreamCrawlTargets() {
+        config.setProperty("jdbc.postgres.fetchsize", "1");
+        config.setProperty("jdbc.postgres.sqlquery", "SELECT url, 3 AS priority FROM adstxt_urls");
+        try (Stream<CrawlTarget> crawlTargets = new JDBCDataStore(config, "postgres").streamCrawlTargets()) {
+            assertEquals(Collections.singletonList(new CrawlTarget(ADSTXT_URL, 3)),
+                    crawlTargets.collect(Collectors.toList()));
+        }
+    }
+
     @Test
     public void testInsertAdsTxtRecords() throws SQLException {
         List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
@@ -96,4 +128,85 @@ public class JDBCDataStoreTest {
         assertEquals(1, results.size());
         assertEquals("SourceDomain", results.get(0));
     }
+
+    @Test
+    public void testInsertAdsTxtRecordBatch() throws SQLException {
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+            adsTxtRecord.setInsertDate(new DateTime());
+            adsTxtRecord.setCertAuthId("CertAuthId");
+            adsTxtRecord.setAccType("DIRECT");
+            adsTxtRecord.setAdServingDomain("AdServingDomain");
+            adsTxtRecord.setPublisherAccId("PublisherAccId" + i);
+            adsTxtRecord.setSourceDomain("SourceDomain");
+            adsTxtRecords.add(adsTxtRecord);
+        }
+        jdbcDataStore.insertAdsTxtRecordBatch(AdsTxtRecordBatch.of(adsTxtRecords));
+
+        List<String> results;
+        try (org.sql2o.Connection con = new Sql2o(JDBC_URL, JDBC_USERNAME, JDBC_PASSWORD).open()) {
+            results = con.createQuery("SELECT publisher_acc_id FROM adstxt_results ORDER BY publisher_acc_id")
+                    .executeAndFetch(String.class);
+        }
+        assertEquals(Arrays.asList("PublisherAccId0", "PublisherAccId1", "PublisherAccId2"), results);
+    }
+
+    @Test
+    public void testFailedBatchOnlyLosesTheRejectedRows() {
+        config.setProperty("jdbc.postgres.batchsize", "2");
+        config.setProperty("jdbc.postgres.batchespercommit", "2");
+        JDBCDataStore batchedDataStore = new JDBCDataStore(config, "postgres");
+
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+            adsTxtRecord.setInsertDate(new DateTime());
+            adsTxtRecord.setAccType("DIRECT");
+            adsTxtRecord.setAdServingDomain("AdServingDomain");
+            // Longer than the column, rejected by the database
+            adsTxtRecord.setPublisherAccId(i == 4 ? String.format("%0150d", i) : "PublisherAccId" + i);
+            adsTxtRecord.setSourceDomain("SourceDomain");
+            adsTxtRecords.add(adsTxtRecord);
+        }
+        batchedDataStore.insertAdsTxtRecords(adsTxtRecords);
+
+        List<String> results;
+        try (org.sql2o.Connection con = new Sql2o(JDBC_URL, JDBC_USERNAME, JDBC_PASSWORD).open()) {
+            results = con.createQuery("SELECT publisher_acc_id FROM adstxt_results ORDER BY publisher_acc_id")
+                    .executeAndFetch(String.class);
+        }
+        assertEquals(Arrays.asList("PublisherAccId0", "PublisherAccId1", "PublisherAccId2", "PublisherAccId3",
+                "PublisherAccId5", "PublisherAccId6"), results);
+        assertTrue(batchedDataStore.hasFailedWrites());
+    }
+
+    @Test
+    public void testParallelWritersInsertEveryRow() {
+        config.setProperty("jdbc.postgres.batchsize", "2");
+        config.setProperty("jdbc.postgres.poolsize", "3");
+        JDBCDataStore parallelDataStore = new JDBCDataStore(config, "postgres");
+
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+            adsTxtRecord.setInsertDate(new DateTime());
+            adsTxtRecord.setAccType("DIRECT");
+            adsTxtRecord.setAdServingDomain("AdServingDomain");
+            adsTxtRecord.setPublisherAccId(String.format("PublisherAccId%02d", i));
+            adsTxtRecord.setSourceDomain("SourceDomain" + i % 7);
+            adsTxtRecords.add(adsTxtRecord);
+        }
+        parallelDataStore.insertAdsTxtRecordBatch(AdsTxtRecordBatch.of(adsTxtRecords));
+        parallelDataStore.close();
+
+        List<String> results;
+        try (org.sql2o.Connection con = new Sql2o(JDBC_URL, JDBC_USERNAME, JDBC_PASSWORD).open()) {
+            results = con.createQuery("SELECT publisher_acc_id FROM adstxt_results ORDER BY publisher_acc_id")
+                    .executeAndFetch(String.class);
+        }
+        assertEquals(20, results.size());
+        assertEquals("PublisherAccId00", results.get(0));
+        assertEquals("PublisherAccId19", results.get(19));
+    }
 }
@@ -0,0 +1,186 @@
+package org.ignitionone.datastore;
+
+import org.ignitionone.configuration.ConfigBuilder;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.QueryExecutor;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.ignitionone.model.AdsTxtRecordFixtures.record;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>
+ * Runs the COPY path against a stand-in driver whose connections are PostgreSQL BaseConnections handing out a
+ * CopyIn that records the stream, reached through the connection pool like with the real driver.
+ * </p>
+ */
+public class PostgresCopyDataStoreTest {
+    private static final String URL = "jdbc:copytest:db";
+
+    private final StubDriver driver = new StubDriver();
+    private Properties config;
+
+    @Before
+    public void setup() throws SQLException {
+        DriverManager.registerDriver(driver);
+        ConfigBuilder.clearConfig();
+        config = ConfigBuilder.getConfig();
+        config.setProperty("jdbc.postgres.url", URL);
+        config.setProperty("jdbc.postgres.poolsize", "1");
+        config.setProperty("jdbc.postgres.insertquery",
+                "INSERT INTO adstxt_results(source_domain) VALUES (:sourceDomain)");
+    }
+
+    @After
+    public void teardown() throws SQLException {
+        DriverManager.deregisterDriver(driver);
+    }
+
+    @Test
+    public void testRecordsAreCopied() {
+        PostgresCopyDataStore dataStore = new PostgresCopyDataStore(config, "postgres");
+        dataStore.insertAdsTxtRecords(Arrays.asList(
+                record(new DateTime(), "www.domain.com", "google.com", "pub-1", "DIRECT", ""),
+                record(new DateTime(), "www.domain.com", "appnexus.com", "1234", "DIRECT", "")));
+
+        assertEquals(Arrays.asList("COPY adstxt_results (" + PostgresCopyDataStore.DEFAULT_COLUMNS + ") FROM STDIN"),
+                driver.copies);
+        String copied = new String(driver.copyStream.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(copied.contains("\twww.domain.com\tgoogle.com\tpub-1\tDIRECT\t\n"));
+        assertTrue(copied.contains("\twww.domain.com\tappnexus.com\t1234\tDIRECT\t\n"));
+        assertTrue(driver.calls.contains("commit"));
+        // The batched insert fallback prepares the insert query
+        assertFalse(driver.calls.contains("prepareStatement"));
+    }
+
+
+    private static class StubDriver implements Driver {
+        private final List<String> calls = new ArrayList<>();
+        private final List<String> copies = new ArrayList<>();
+        private final ByteArrayOutputStream copyStream = new ByteArrayOutputStream();
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            boolean[] autoCommit = {true};
+            QueryExecutor queryExecutor = (QueryExecutor) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{QueryExecutor.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("startCopy")) {
+                            copies.add((String) args[0]);
+                            return copyIn();
+                        }
+                        throw new SQLException("Not supported: " + method.getName());
+                    });
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{BaseConnection.class}, (proxy, method, args) -> {
+                        calls.add(method.getName());
+                        switch (method.getName()) {
+                            case "getQueryExecutor":
+                                return queryExecutor;
+                            case "getAutoCommit":
+                                return autoCommit[0];
+                            case "setAutoCommit":
+                                autoCommit[0] = (Boolean) args[0];
+                                return null;
+                            case "isValid":
+                                return true;
+                            case "isClosed":
+                                return false;
+                            case "unwrap":
+                            case "isWrapperFor":
+                                throw new SQLException("Not implemented like in pre 9.4 drivers");
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            case "toString":
+                                return "StubConnection";
+                            case "getEncoding":
+                            case "commit":
+                            case "rollback":
+                            case "close":
+                            case "setTransactionIsolation":
+                                return null;
+                            default:
+                                throw new SQLException("Not supported: " + method.getName());
+                        }
+                    });
+        }
+
+        private CopyIn copyIn() {
+            boolean[] active = {true};
+            return (CopyIn) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{CopyIn.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "writeToCopy":
+                                copyStream.write((byte[]) args[0], (Integer) args[1], (Integer) args[2]);
+                                return null;
+                            case "flushCopy":
+                                return null;
+                            case "endCopy":
+                                active[0] = false;
+                                return 2L;
+                            case "cancelCopy":
+                                active[0] = false;
+                                return null;
+                            case "isActive":
+                                return active[0];
+                            default:
+                                throw new SQLException("Not supported: " + method.getName());
+                        }
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:copytest:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.ignitionone.datastore;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtRecordBatch;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.ignitionone.model.AdsTxtRecordFixtures.record;
+import static org.junit.Assert.assertEquals;
+
+public class PostgresCopySerializerTest {
+    private static final DateTime INSERT_DATE = new DateTime(2018, 3, 7, 14, 5, 9, DateTimeZone.UTC);
+
+    private DateTimeZone defaultZone;
+
+    @Before
+    public void setup() {
+        defaultZone = DateTimeZone.getDefault();
+        DateTimeZone.setDefault(DateTimeZone.forOffsetHours(2));
+    }
+
+    @After
+    public void teardown() {
+        DateTimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        StringWriter writer = new StringWriter();
+        PostgresCopySerializer serializer = new PostgresCopySerializer();
+        serializer.write(writer, record(INSERT_DATE, "www.domain.com", "google.com", "pub-1", "DIRECT",
+                "f08c47fec0942fa0"));
+        serializer.write(writer, record(INSERT_DATE, "www.domain.com", "rubiconproject.com", "11914", "RESELLER", ""));
+
+        assertEquals("2018-03-07 16:05:09.000+02:00\twww.domain.com\tgoogle.com\tpub-1\tDIRECT\tf08c47fec0942fa0\n" +
+                "2018-03-07 16:05:09.000+02:00\twww.domain.com\trubiconproject.com\t11914\tRESELLER\t\n",
+                writer.toString());
+    }
+
+    @Test
+    public void testEscaping() throws IOException {
+        StringWriter writer = new StringWriter();
+        new PostgresCopySerializer().writeLine(writer, null, null, "google.com", "pub\t1", "a\\b", "c\r\nd");
+
+        assertEquals("\\N\t\\N\tgoogle.com\tpub\\t1\ta\\\\b\tc\\r\\nd\n", writer.toString());
+    }
+
+    @Test
+    public void testBatchRowsAreWrittenLikeRecords() throws IOException {
+        AdsTxtRecord first = record(INSERT_DATE, "www.domain.com", "google.com", "pub-1", "DIRECT", "");
+        AdsTxtRecord second = record(INSERT_DATE, "www.domain.com", "appnexus.com", "1234", "RESELLER", null);
+        StringWriter recordWriter = new StringWriter();
+        PostgresCopySerializer serializer = new PostgresCopySerializer();
+        serializer.write(recordWriter, first);
+        serializer.write(recordWriter, second);
+
+        StringWriter batchWriter = new StringWriter();
+        new PostgresCopySerializer().write(batchWriter, AdsTxtRecordBatch.of(Arrays.asList(first, second)));
+
+        assertEquals(recordWriter.toString(), batchWriter.toString());
+    }
+}
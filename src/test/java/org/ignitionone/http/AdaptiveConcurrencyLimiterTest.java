@@ -0,0 +1,103 @@
+package org.ignitionone.http;
+
+import org.ignitionone.http.core.AdaptiveConcurrencyLimiter;
+import org.ignitionone.http.core.AdaptiveConcurrencyLimiter.Outcome;
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void testFixedByDefault() {
+        Properties properties = new Properties();
+        properties.setProperty("parallec.http.parallelism", "500");
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(properties);
+
+        assertFalse(concurrencyLimiter.isAdaptive());
+        concurrencyLimiter.onSample(Outcome.OVERLOAD, 0L);
+        assertEquals(500, concurrencyLimiter.getLimit());
+    }
+
+    @Test
+    public void testAdditiveIncreaseUpToCeiling() {
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(10, 5, 12, 1, 0.5, 1000);
+        assertTrue(concurrencyLimiter.isAdaptive());
+
+        // About one increase per window of limit successes
+        for (int i = 0; i < 11; i++) {
+            concurrencyLimiter.onSample(Outcome.SUCCESS, 10L);
+        }
+        assertEquals(11, concurrencyLimiter.getLimit());
+
+        for (int i = 0; i < 1000; i++) {
+            concurrencyLimiter.onSample(Outcome.SUCCESS, 10L);
+        }
+        assertEquals(12, concurrencyLimiter.getLimit());
+    }
+
+    @Test
+    public void testMultiplicativeDecreaseOncePerWindow() {
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(10, 2, 20, 1, 0.5, 1000);
+
+        // The first failures of a window do not back off until a full window has been observed
+        for (int i = 0; i < 10; i++) {
+            concurrencyLimiter.onSample(Outcome.OVERLOAD, 0L);
+        }
+        assertEquals(5, concurrencyLimiter.getLimit());
+        assertEquals(1, concurrencyLimiter.getBackoffCount());
+
+        for (int i = 0; i < 4; i++) {
+            concurrencyLimiter.onSample(Outcome.OVERLOAD, 0L);
+        }
+        assertEquals(5, concurrencyLimiter.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            concurrencyLimiter.onSample(Outcome.OVERLOAD, 0L);
+        }
+        assertEquals(2, concurrencyLimiter.getLimit());
+    }
+
+    @Test
+    public void testSlowResponsesCountAsOverloadAndIgnoredOutcomesDoNot() {
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(10, 1, 20, 1, 0.5, 1000);
+
+        for (int i = 0; i < 10; i++) {
+            concurrencyLimiter.onSample(Outcome.IGNORE, 0L);
+        }
+        assertEquals(10, concurrencyLimiter.getLimit());
+
+        concurrencyLimiter.onSample(Outcome.SUCCESS, 5000L);
+        assertEquals(5, concurrencyLimiter.getLimit());
+    }
+
+    @Test
+    public void testAcquireBlocksAtLimit() throws InterruptedException {
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(2, 1, 4, 1, 0.5, 1000);
+        concurrencyLimiter.acquire();
+        concurrencyLimiter.acquire();
+        assertEquals(2, concurrencyLimiter.getInFlight());
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                concurrencyLimiter.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+
+        assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+        concurrencyLimiter.release(Outcome.SUCCESS, 10L);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(2, concurrencyLimiter.getInFlight());
+    }
+}
@@ -0,0 +1,83 @@
+package org.ignitionone.http;
+
+import org.ignitionone.http.core.BodyReader;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BodyReaderTest {
+    private final BodyReader bodyReader = new BodyReader(1024, 64);
+
+    @Test
+    public void testReadsAdsTxt() throws IOException {
+        String content = "google.com, pub-9789600135996590, DIRECT\n" + repeat("indexexchange.com, 184475, DIRECT\n", 10);
+        BodyReader.Body body = bodyReader.read(stream(content.getBytes(StandardCharsets.UTF_8)), "text/plain");
+        assertTrue(body.isAccepted());
+        assertEquals(content, body.getContent());
+    }
+
+    @Test
+    public void testStripsBom() throws IOException {
+        byte[] utf8 = "\uFEFFgoogle.com, pub-1, DIRECT".getBytes(StandardCharsets.UTF_8);
+        assertEquals("google.com, pub-1, DIRECT", bodyReader.read(stream(utf8), null).getContent());
+
+        byte[] utf16 = "\uFEFFgoogle.com, pub-1, DIRECT".getBytes(StandardCharsets.UTF_16LE);
+        assertEquals("google.com, pub-1, DIRECT", bodyReader.read(stream(utf16), "text/plain").getContent());
+    }
+
+    @Test
+    public void testAbortsHtmlAfterSniffWindow() throws IOException {
+        AtomicInteger read = new AtomicInteger();
+        byte[] html = ("<html><body>" + repeat("soft 404 ", 1000) + "</body></html>").getBytes(StandardCharsets.UTF_8);
+        InputStream inputStream = new ByteArrayInputStream(html) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                int count = super.read(b, off, len);
+                read.addAndGet(Math.max(0, count));
+                return count;
+            }
+        };
+
+        BodyReader.Body body = bodyReader.read(inputStream, "text/html");
+        assertFalse(body.isAccepted());
+        assertNull(body.getContent());
+        assertEquals("HTML", body.getRejectReason());
+        assertEquals(64, read.get());
+    }
+
+    @Test
+    public void testRejectsBodiesOverCap() throws IOException {
+        byte[] large = repeat("google.com, pub-1, DIRECT\n", 100).getBytes(StandardCharsets.UTF_8);
+        BodyReader.Body body = bodyReader.read(stream(large), "text/plain");
+        assertEquals("TOO_LARGE", body.getRejectReason());
+
+        assertEquals("TOO_LARGE", bodyReader.check(repeat("google.com, pub-1, DIRECT\n", 100), null).getRejectReason());
+    }
+
+    @Test
+    public void testCheckCompleteBody() {
+        assertEquals("HTML", bodyReader.check("<!DOCTYPE html>", "text/html").getRejectReason());
+        assertEquals("google.com, pub-1, DIRECT", bodyReader.check("\uFEFFgoogle.com, pub-1, DIRECT", null).getContent());
+    }
+
+    private static InputStream stream(byte[] bytes) {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
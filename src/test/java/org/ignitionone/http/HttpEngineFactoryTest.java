@@ -0,0 +1,35 @@
+package org.ignitionone.http;
+
+import org.ignitionone.http.core.AdaptiveConcurrencyLimiter;
+import org.ignitionone.http.core.HttpEngine;
+import org.ignitionone.http.core.HttpEngineFactory;
+import org.ignitionone.http.core.HttpEngineType;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HttpEngineFactoryTest {
+    @Test
+    public void testGetHttpEngine() {
+        Properties properties = new Properties();
+        properties.setProperty("parallec.http.parallelism", "10");
+
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(properties);
+
+        HttpEngine parallec = HttpEngineFactory.getHttpEngine(HttpEngineType.PARALLEC, properties,
+                concurrencyLimiter);
+        assertTrue(parallec instanceof ParallecHttpEngine);
+
+        HttpEngine jdk = HttpEngineFactory.getHttpEngine(HttpEngineType.JDK, properties, concurrencyLimiter);
+        assertTrue(jdk instanceof JdkHttpEngine);
+    }
+
+    @Test
+    public void testGetValueOf() {
+        assertEquals(HttpEngineType.JDK, HttpEngineType.getValueOf("jdk"));
+        assertEquals(HttpEngineType.PARALLEC, HttpEngineType.getValueOf(" Parallec"));
+    }
+}
@@ -0,0 +1,136 @@
+package org.ignitionone.http;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.ignitionone.http.core.AdaptiveConcurrencyLimiter;
+import org.ignitionone.http.core.PolitenessScheduler;
+import org.ignitionone.model.HttpRequest;
+import org.ignitionone.model.HttpResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JdkHttpEngineTest {
+    protected static final int TEST_PORT = 8089;
+    private JdkHttpEngine jdkHttpEngine;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(TEST_PORT);
+
+    @Before
+    public void setup() {
+        Properties properties = new Properties();
+        properties.setProperty("http.concurrency.initial", "4");
+        jdkHttpEngine = new JdkHttpEngine(properties, new AdaptiveConcurrencyLimiter(properties));
+    }
+
+    @Test
+    public void testExecuteReturnsAllStatusCodes() {
+        String content = "#Ads.txt economist.com\n" +
+                "google.com, pub-9789600135996590, DIRECT";
+
+        stubFor(get(urlEqualTo("/ads.txt"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "text/plain")
+                        .withHeader("ETag", "\"v1\"")
+                        .withHeader("Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT")
+                        .withStatus(200)
+                        .withBody(content)));
+
+        List<HttpResponse> responses = execute(new HttpRequest().setDomainName("localhost").setPort(TEST_PORT));
+        assertEquals(1, responses.size());
+        assertEquals(200, responses.get(0).getResponseCode());
+        assertEquals("localhost", responses.get(0).getDomainName());
+        assertEquals(content, responses.get(0).getResponseContent());
+        assertEquals("\"v1\"", responses.get(0).getEtag());
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", responses.get(0).getLastModified());
+    }
+
+    @Test
+    public void testExecuteSendsRequestHeaders() {
+        stubFor(get(urlEqualTo("/ads.txt"))
+                .withHeader("If-None-Match", equalTo("\"v1\""))
+                .willReturn(aResponse()
+                        .withStatus(304)));
+
+        List<HttpResponse> responses = execute(new HttpRequest()
+                .setDomainName("localhost")
+                .setPort(TEST_PORT)
+                .addHeader("If-None-Match", "\"v1\""));
+        assertEquals(1, responses.size());
+        assertEquals(304, responses.get(0).getResponseCode());
+    }
+
+    @Test
+    public void testExecuteDoesNotFollowRedirects() {
+        stubFor(get(urlEqualTo("/ads.txt"))
+                .willReturn(aResponse()
+                        .withHeader("Location", "http://localhost:8089/adsredirect.txt")
+                        .withStatus(301)));
+
+        List<HttpResponse> responses = execute(new HttpRequest().setDomainName("localhost").setPort(TEST_PORT));
+        assertEquals(1, responses.size());
+        assertEquals(301, responses.get(0).getResponseCode());
+        assertEquals("http://localhost:8089/adsredirect.txt", responses.get(0).getLocation());
+    }
+
+    @Test
+    public void testExecuteReportsConnectionFailures() {
+        List<HttpResponse> responses = execute(
+                new HttpRequest().setDomainName("localhost").setPort(TEST_PORT + 1));
+        assertEquals(1, responses.size());
+        assertTrue(responses.get(0).isError());
+        assertEquals("localhost", responses.get(0).getDomainName());
+    }
+
+    @Test
+    public void testExecuteRequestsUrl() {
+        stubFor(get(urlEqualTo("/adsredirect.txt"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("google.com, pub-9789600135996590, DIRECT")));
+
+        HttpRequest httpRequest = new HttpRequest()
+                .setDomainName("example.com")
+                .setHost("localhost")
+                .setPort(TEST_PORT)
+                .setPath("/adsredirect.txt");
+        List<HttpResponse> responses = execute(httpRequest);
+        assertEquals(1, responses.size());
+        assertEquals(200, responses.get(0).getResponseCode());
+        assertEquals("example.com", responses.get(0).getDomainName());
+        assertEquals(httpRequest, responses.get(0).getHttpRequest());
+    }
+
+    @Test
+    public void testExecuteDropsHtmlBody() {
+        stubFor(get(urlEqualTo("/ads.txt"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "text/html")
+                        .withStatus(200)
+                        .withBody("<!DOCTYPE html><html><body>Page not found</body></html>")));
+
+        List<HttpResponse> responses = execute(new HttpRequest().setDomainName("localhost").setPort(TEST_PORT));
+        assertEquals(1, responses.size());
+        assertEquals(200, responses.get(0).getResponseCode());
+        assertNull(responses.get(0).getResponseContent());
+    }
+
+    private List<HttpResponse> execute(HttpRequest... httpRequests) {
+        List<HttpResponse> responses = Collections.synchronizedList(new ArrayList<>());
+        PolitenessScheduler scheduler = new PolitenessScheduler(PolitenessScheduler.GroupBy.DOMAIN, 0);
+        scheduler.addAll(Arrays.asList(httpRequests));
+        jdkHttpEngine.execute(scheduler, responses::add);
+        return responses;
+    }
+}
@@ -0,0 +1,174 @@
+package org.ignitionone.http;
+
+import org.ignitionone.http.core.PolitenessScheduler;
+import org.ignitionone.http.core.PolitenessScheduler.GroupBy;
+import org.ignitionone.model.HttpRequest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PolitenessSchedulerTest {
+
+    @Test
+    public void testInterleavesGroups() throws InterruptedException {
+        PolitenessScheduler scheduler = new PolitenessScheduler(GroupBy.DOMAIN, 0);
+        scheduler.addAll(requests("a.example.com", "b.example.com", "c.example.com", "www.other.org",
+                "www.third.co.uk"));
+
+        List<String> order = new ArrayList<>();
+        HttpRequest httpRequest;
+        while ((httpRequest = scheduler.take()) != null) {
+            order.add(httpRequest.getDomainName());
+            scheduler.complete(httpRequest);
+        }
+        assertEquals(Arrays.asList("a.example.com", "www.other.org", "www.third.co.uk", "b.example.com",
+                "c.example.com"), order);
+        assertEquals(5, scheduler.getCompletedCount());
+        assertTrue(scheduler.isDone());
+    }
+
+    @Test
+    public void testCapsInFlightRequestsPerGroup() {
+        PolitenessScheduler scheduler = new PolitenessScheduler(GroupBy.DOMAIN, 2);
+        scheduler.addAll(requests("a.example.com", "b.example.com", "c.example.com", "www.other.org"));
+
+        List<HttpRequest> wave = scheduler.drain(10);
+        assertEquals(3, wave.size());
+        assertEquals(1, scheduler.getQueuedCount());
+        assertTrue(scheduler.drain(10).isEmpty());
+
+        scheduler.complete(wave.get(0));
+        List<HttpRequest> next = scheduler.drain(10);
+        assertEquals(1, next.size());
+        assertEquals("c.example.com", next.get(0).getDomainName());
+        assertFalse(scheduler.isDone());
+    }
+
+    @Test
+    public void testTakeWaitsForFreeSlot() throws InterruptedException {
+        PolitenessScheduler scheduler = new PolitenessScheduler(GroupBy.DOMAIN, 1);
+        scheduler.addAll(requests("a.example.com", "b.example.com"));
+        HttpRequest first = scheduler.take();
+
+        AtomicReference<HttpRequest> second = new AtomicReference<>();
+        CountDownLatch taken = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                second.set(scheduler.take());
+                taken.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+
+        assertFalse(taken.await(100, TimeUnit.MILLISECONDS));
+        scheduler.complete(first);
+        assertTrue(taken.await(1, TimeUnit.SECONDS));
+        assertEquals("b.example.com", second.get().getDomainName());
+    }
+
+    @Test
+    public void testRequestsAddedBeforeCompletionAreTaken() throws InterruptedException {
+        PolitenessScheduler scheduler = new PolitenessScheduler(GroupBy.DOMAIN, 0);
+        scheduler.addAll(requests("example.com"));
+
+        HttpRequest first = scheduler.take();
+        scheduler.add(new HttpRequest().setDomainName("www.example.com"));
+        scheduler.complete(first);
+
+        assertEquals("www.example.com", scheduler.take().getDomainName());
+        assertFalse(scheduler.isDone());
+        assertTrue(scheduler.drain(10).isEmpty());
+    }
+
+    @Test
+    public void testScheduledRequestsWaitForTheirDelay() throws InterruptedException {
+        PolitenessScheduler scheduler = new PolitenessScheduler(GroupBy.DOMAIN, 0);
+        scheduler.schedule(new HttpRequest().setDomainName("www.example.com"), 200L);
+        assertFalse(scheduler.isDone());
+        assertTrue(scheduler.drain(10).isEmpty());
+
+        long start = System.currentTimeMillis();
+        HttpRequest httpRequest = scheduler.take();
+        assertTrue(System.currentTimeMillis() - start >= 150L);
+        assertEquals("www.example.com", httpRequest.getDomainName());
+        scheduler.complete(httpRequest);
+        assertFalse(scheduler.awaitReady());
+    }
+
+    @Test
+    public void testHigherPrioritiesGoFirst() throws InterruptedException {
+        PolitenessScheduler scheduler = new PolitenessScheduler(GroupBy.DOMAIN, 0);
+        List<HttpRequest> httpRequests = requests("a.example.com", "www.other.org", "b.example.com",
+                "www.third.co.uk", "c.example.com");
+        httpRequests.get(1).setPriority(1);
+        httpRequests.get(2).setPriority(5);
+        httpRequests.get(4).setPriority(1);
+        scheduler.addAll(httpRequests);
+
+        List<String> order = new ArrayList<>();
+        HttpRequest httpRequest;
+        while ((httpRequest = scheduler.take()) != null) {
+            order.add(httpRequest.getDomainName());
+            scheduler.complete(httpRequest);
+        }
+        // Groups of the same priority still take turns
+        assertEquals(Arrays.asList("b.example.com", "www.other.org", "c.example.com", "www.third.co.uk",
+                "a.example.com"), order);
+    }
+
+    @Test
+    public void testDefersRequestsBelowTheDeadlinePriority() throws InterruptedException {
+        PolitenessScheduler scheduler = new PolitenessScheduler(GroupBy.DOMAIN, 1);
+        List<HttpRequest> httpRequests = requests("a.example.com", "b.example.com", "www.other.org",
+                "www.third.co.uk");
+        httpRequests.get(1).setPriority(2);
+        scheduler.addAll(httpRequests);
+        HttpRequest first = scheduler.take();
+        assertEquals("b.example.com", first.getDomainName());
+
+        scheduler.setDeadline(System.currentTimeMillis(), 1);
+        scheduler.add(new HttpRequest().setDomainName("www.important.com").setPriority(1));
+        scheduler.schedule(new HttpRequest().setDomainName("www.retried.com"), 10000L);
+
+        assertEquals("www.important.com", scheduler.take().getDomainName());
+        assertTrue(scheduler.drain(10).isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList("a.example.com", "www.other.org", "www.third.co.uk",
+                "www.retried.com")), new HashSet<>(domains(scheduler.getDeferred())));
+        assertEquals(0, scheduler.getQueuedCount());
+        assertEquals(0, scheduler.getDelayedCount());
+    }
+
+    @Test
+    public void testTakeReturnsNullWhenEmpty() throws InterruptedException {
+        PolitenessScheduler scheduler = new PolitenessScheduler(GroupBy.IP, 1);
+        assertNull(scheduler.take());
+        assertTrue(scheduler.isDone());
+    }
+
+    private static List<String> domains(List<HttpRequest> httpRequests) {
+        List<String> domains = new ArrayList<>();
+        httpRequests.forEach(httpRequest -> domains.add(httpRequest.getDomainName()));
+        return domains;
+    }
+
+    private static List<HttpRequest> requests(String... domains) {
+        List<HttpRequest> httpRequests = new ArrayList<>();
+        for (String domain : domains) {
+            httpRequests.add(new HttpRequest().setDomainName(domain).setPort(80));
+        }
+        return httpRequests;
+    }
+}
@@ -0,0 +1,91 @@
+package org.ignitionone.http;
+
+import org.ignitionone.http.core.RetryPolicy;
+import org.ignitionone.http.core.RetryPolicy.FailureClass;
+import org.ignitionone.model.HttpResponse;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void testClassify() {
+        assertEquals(FailureClass.TIMEOUT,
+                RetryPolicy.classify(error("java.net.SocketTimeoutException: connect timed out")));
+        assertEquals(FailureClass.CONNECTION_RESET,
+                RetryPolicy.classify(error("java.net.SocketException: Connection reset")));
+        assertEquals(FailureClass.CONNECTION_REFUSED,
+                RetryPolicy.classify(error("java.net.ConnectException: Connection refused")));
+        assertEquals(FailureClass.UNKNOWN_HOST,
+                RetryPolicy.classify(error("java.net.UnknownHostException: www.nxdomain.com")));
+        assertEquals(FailureClass.SERVER_ERROR, RetryPolicy.classify(new HttpResponse().setResponseCode(503)));
+        assertEquals(FailureClass.TOO_MANY_REQUESTS, RetryPolicy.classify(new HttpResponse().setResponseCode(429)));
+        assertEquals(FailureClass.CLIENT_ERROR, RetryPolicy.classify(new HttpResponse().setResponseCode(404)));
+        assertNull(RetryPolicy.classify(new HttpResponse().setResponseCode(200)));
+        assertNull(RetryPolicy.classify(new HttpResponse().setResponseCode(301)));
+    }
+
+    @Test
+    public void testRetriesOnlyTransientFailuresUpToMax() {
+        RetryPolicy retryPolicy = new RetryPolicy(2, 100, 100, 1000);
+        assertEquals(-1L, retryPolicy.retryDelay(FailureClass.CLIENT_ERROR, 0, null));
+        assertEquals(-1L, retryPolicy.retryDelay(FailureClass.UNKNOWN_HOST, 0, null));
+        assertTrue(retryPolicy.retryDelay(FailureClass.TIMEOUT, 1, null) >= 0);
+        assertEquals(-1L, retryPolicy.retryDelay(FailureClass.TIMEOUT, 2, null));
+        assertEquals(1, retryPolicy.getRetryCount());
+    }
+
+    @Test
+    public void testRetryBudget() {
+        RetryPolicy retryPolicy = new RetryPolicy(new Properties(), 10);
+        assertTrue(retryPolicy.retryDelay(FailureClass.SERVER_ERROR, 0, null) >= 0);
+        assertTrue(retryPolicy.retryDelay(FailureClass.SERVER_ERROR, 0, null) >= 0);
+        assertEquals(-1L, retryPolicy.retryDelay(FailureClass.SERVER_ERROR, 0, null));
+        assertEquals(2, retryPolicy.getRetryCount(FailureClass.SERVER_ERROR));
+    }
+
+    @Test
+    public void testBackoffWithJitter() {
+        RetryPolicy retryPolicy = new RetryPolicy(10, 1000, 100, 1000);
+        for (int i = 0; i < 100; i++) {
+            long first = retryPolicy.retryDelay(FailureClass.TIMEOUT, 0, null);
+            assertTrue(first >= 50 && first <= 100);
+            long third = retryPolicy.retryDelay(FailureClass.TIMEOUT, 2, null);
+            assertTrue(third >= 200 && third <= 400);
+            long capped = retryPolicy.retryDelay(FailureClass.TIMEOUT, 9, null);
+            assertTrue(capped >= 500 && capped <= 1000);
+        }
+    }
+
+    @Test
+    public void testRetryAfter() {
+        RetryPolicy retryPolicy = new RetryPolicy(10, 1000, 100, 5000);
+        assertEquals(2000L, retryPolicy.retryDelay(FailureClass.TOO_MANY_REQUESTS, 0, "2"));
+        // Over the ceiling, the backoff is used
+        assertTrue(retryPolicy.retryDelay(FailureClass.TOO_MANY_REQUESTS, 0, "3600") <= 100);
+    }
+
+    @Test
+    public void testOutcomesPerClass() {
+        RetryPolicy retryPolicy = new RetryPolicy(2, 100, 100, 1000);
+        retryPolicy.onFailure("www.example.com", FailureClass.TIMEOUT);
+        retryPolicy.onSuccess("www.example.com");
+        retryPolicy.onFailure("www.example.org", FailureClass.SERVER_ERROR);
+        retryPolicy.onFailure("www.example.org", FailureClass.SERVER_ERROR);
+        retryPolicy.onGiveUp("www.example.org");
+        retryPolicy.onSuccess("www.healthy.com");
+
+        assertEquals(1, retryPolicy.getRecoveredCount(FailureClass.TIMEOUT));
+        assertEquals(1, retryPolicy.getFailedCount(FailureClass.SERVER_ERROR));
+        assertEquals(0, retryPolicy.getRecoveredCount(FailureClass.SERVER_ERROR));
+    }
+
+    private static HttpResponse error(String error) {
+        return new HttpResponse().setError(error);
+    }
+}
@@ -0,0 +1,144 @@
+package org.ignitionone.journal;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.ignitionone.model.AdsTxtRecordFixtures.record;
+import static org.junit.Assert.*;
+
+public class CrawlJournalTest {
+    private File journalFile;
+
+    @Before
+    public void setup() throws IOException {
+        journalFile = File.createTempFile("crawljournal", ".tsv");
+        Files.delete(journalFile.toPath());
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Files.deleteIfExists(journalFile.toPath());
+        Files.deleteIfExists(new File(journalFile.getAbsolutePath() + ".tmp").toPath());
+    }
+
+    @Test
+    public void testCommittedRecordsAreNotReplayed() throws IOException {
+        CrawlJournal crawlJournal = new CrawlJournal(journalFile.getAbsolutePath());
+        crawlJournal.open();
+        crawlJournal.complete("www.first.com", Arrays.asList(
+                record(new DateTime(), "www.first.com", "google.com", "pub-9789600135996590", "DIRECT", "")));
+        crawlJournal.complete("www.empty.com", Collections.<AdsTxtRecord>emptyList());
+        crawlJournal.commit();
+        crawlJournal.complete("www.second.com", Arrays.asList(
+                record(new DateTime(), "www.second.com", "appnexus.com", "pub-9789600135996590", "DIRECT", ""),
+                record(new DateTime(), "www.second.com", "rubiconproject.com", "pub-9789600135996590", "DIRECT", "")));
+        crawlJournal.close();
+
+        CrawlJournal loaded = new CrawlJournal(journalFile.getAbsolutePath());
+        loaded.load();
+        assertTrue(loaded.isResuming());
+        assertTrue(loaded.hasCommitted());
+        assertEquals(3, loaded.getCompletedDomains().size());
+        assertTrue(loaded.getCompletedDomains().contains("www.empty.com"));
+
+        List<AdsTxtRecord> uncommittedRecords = loaded.getUncommittedRecords();
+        assertEquals(2, uncommittedRecords.size());
+        assertEquals("www.second.com", uncommittedRecords.get(0).getSourceDomain());
+        assertEquals("appnexus.com", uncommittedRecords.get(0).getAdServingDomain());
+        assertEquals("rubiconproject.com", uncommittedRecords.get(1).getAdServingDomain());
+    }
+
+    @Test
+    public void testRecordFieldsRoundTrip() throws IOException {
+        AdsTxtRecord adsTxtRecord = record(new DateTime(), "www.domain.com", "google.com", "pub-1\ttab\\slash",
+                "DIRECT", null);
+
+        CrawlJournal crawlJournal = new CrawlJournal(journalFile.getAbsolutePath());
+        crawlJournal.open();
+        crawlJournal.complete("www.domain.com", Arrays.asList(adsTxtRecord));
+        crawlJournal.close();
+
+        CrawlJournal loaded = new CrawlJournal(journalFile.getAbsolutePath());
+        loaded.load();
+        assertFalse(loaded.hasCommitted());
+        AdsTxtRecord loadedRecord = loaded.getUncommittedRecords().get(0);
+        assertEquals(adsTxtRecord.getInsertDate().getMillis(), loadedRecord.getInsertDate().getMillis());
+        assertEquals("pub-1\ttab\\slash", loadedRecord.getPublisherAccId());
+        assertEquals("DIRECT", loadedRecord.getAccType());
+        assertNull(loadedRecord.getCertAuthId());
+    }
+
+    @Test
+    public void testIncompleteDomainIsDropped() throws IOException {
+        CrawlJournal crawlJournal = new CrawlJournal(journalFile.getAbsolutePath());
+        crawlJournal.open();
+        crawlJournal.complete("www.first.com", Arrays.asList(
+                record(new DateTime(), "www.first.com", "google.com", "pub-9789600135996590", "DIRECT", "")));
+        crawlJournal.close();
+        // A crash in the middle of a domain leaves its records without a D line and may cut the last line
+        Files.write(journalFile.toPath(), "R\t1\twww.second.com\tgoogle.com\tpub\tDIRECT\t\nR\t1\twww.sec"
+                .getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        CrawlJournal loaded = new CrawlJournal(journalFile.getAbsolutePath());
+        loaded.load();
+        assertEquals(Collections.singleton("www.first.com"), loaded.getCompletedDomains());
+        assertEquals(1, loaded.getUncommittedRecords().size());
+    }
+
+    @Test
+    public void testOpenCompactsResumedJournal() throws IOException {
+        CrawlJournal crawlJournal = new CrawlJournal(journalFile.getAbsolutePath());
+        crawlJournal.open();
+        crawlJournal.complete("www.first.com", Arrays.asList(
+                record(new DateTime(), "www.first.com", "google.com", "pub-9789600135996590", "DIRECT", "")));
+        crawlJournal.close();
+
+        CrawlJournal resumed = new CrawlJournal(journalFile.getAbsolutePath());
+        resumed.load();
+        resumed.open();
+        resumed.complete("www.second.com", Collections.<AdsTxtRecord>emptyList());
+        resumed.close();
+
+        List<String> lines = Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("D\twww.first.com", "C", "D\twww.second.com"), lines);
+    }
+
+    @Test
+    public void testFinishDeletesJournal() throws IOException {
+        CrawlJournal crawlJournal = new CrawlJournal(journalFile.getAbsolutePath());
+        crawlJournal.open();
+        crawlJournal.complete("www.first.com", Collections.<AdsTxtRecord>emptyList());
+        assertTrue(journalFile.exists());
+        crawlJournal.finish();
+        assertFalse(journalFile.exists());
+
+        CrawlJournal loaded = new CrawlJournal(journalFile.getAbsolutePath());
+        loaded.load();
+        assertFalse(loaded.isResuming());
+    }
+
+    @Test
+    public void testDisabledJournal() throws IOException {
+        CrawlJournal crawlJournal = new CrawlJournal("");
+        crawlJournal.load();
+        crawlJournal.open();
+        crawlJournal.complete("www.first.com", Collections.<AdsTxtRecord>emptyList());
+        crawlJournal.commit();
+        crawlJournal.finish();
+
+        assertFalse(crawlJournal.isEnabled());
+        assertFalse(crawlJournal.isResuming());
+    }
+}
@@ -0,0 +1,60 @@
+package org.ignitionone.journal;
+
+import org.ignitionone.model.CrawlTarget;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class DeferredTargetsTest {
+    private File deferredFile;
+
+    @Before
+    public void setup() throws IOException {
+        deferredFile = File.createTempFile("deferred", ".tsv");
+        Files.delete(deferredFile.toPath());
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Files.deleteIfExists(deferredFile.toPath());
+    }
+
+    @Test
+    public void testSavedTargetsAreLoadedWithRaisedPriority() {
+        DeferredTargets deferredTargets = new DeferredTargets(deferredFile.getAbsolutePath());
+        assertTrue(deferredTargets.load().isEmpty());
+
+        deferredTargets.save(Arrays.asList(new CrawlTarget("example.com"), new CrawlTarget("other.org", 3)));
+
+        assertEquals(Arrays.asList(new CrawlTarget("example.com", 1), new CrawlTarget("other.org", 4)),
+                new DeferredTargets(deferredFile.getAbsolutePath()).load());
+    }
+
+    @Test
+    public void testSavingNoTargetsRemovesTheFile() {
+        DeferredTargets deferredTargets = new DeferredTargets(deferredFile.getAbsolutePath());
+        deferredTargets.save(Collections.singletonList(new CrawlTarget("example.com")));
+        assertTrue(deferredFile.exists());
+
+        deferredTargets.save(Collections.emptyList());
+        assertFalse(deferredFile.exists());
+        assertTrue(deferredTargets.load().isEmpty());
+    }
+
+    @Test
+    public void testDisabled() {
+        DeferredTargets deferredTargets = new DeferredTargets("");
+        deferredTargets.save(Collections.singletonList(new CrawlTarget("example.com")));
+
+        assertFalse(deferredTargets.isEnabled());
+        assertTrue(deferredTargets.load().isEmpty());
+    }
+}
@@ -0,0 +1,128 @@
+package org.ignitionone.journal;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.parser.CrawlDictionary;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.ignitionone.model.AdsTxtRecordFixtures.record;
+import static org.junit.Assert.*;
+
+public class RecordFingerprintsTest {
+    private static final DateTime INSERT_DATE = new DateTime(2018, 3, 8, 0, 0);
+
+    private File fingerprintFile;
+
+    @Before
+    public void setup() throws IOException {
+        fingerprintFile = File.createTempFile("fingerprints", ".tsv");
+        Files.delete(fingerprintFile.toPath());
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Files.deleteIfExists(fingerprintFile.toPath());
+    }
+
+    @Test
+    public void testOnlyChangedLinesAreReturned() {
+        RecordFingerprints recordFingerprints = new RecordFingerprints(fingerprintFile.getAbsolutePath(), false);
+        List<AdsTxtRecord> firstCrawl = Arrays.asList(
+                record(INSERT_DATE, "example.com", "google.com", "pub-1", "DIRECT", ""),
+                record(INSERT_DATE, "example.com", "appnexus.com", "1234", "RESELLER", ""));
+        assertEquals(firstCrawl, recordFingerprints.diff("example.com", firstCrawl, INSERT_DATE));
+
+        AdsTxtRecord added = record(INSERT_DATE, "example.com", "rubiconproject.com", "11914", "RESELLER", "");
+        List<AdsTxtRecord> secondCrawl = Arrays.asList(
+                record(INSERT_DATE, "example.com", "google.com", "pub-1", "DIRECT", ""), added);
+        assertEquals(Collections.singletonList(added),
+                recordFingerprints.diff("example.com", secondCrawl, INSERT_DATE));
+        assertTrue(recordFingerprints.diff("example.com", secondCrawl, INSERT_DATE).isEmpty());
+        // Lines are not kept without tombstones
+        assertTrue(recordFingerprints.getRemovedRecords().isEmpty());
+    }
+
+    @Test
+    public void testRemovedLinesBecomeTombstones() {
+        RecordFingerprints recordFingerprints = new RecordFingerprints(fingerprintFile.getAbsolutePath(), true);
+        recordFingerprints.diff("example.com", Arrays.asList(
+                record(INSERT_DATE, "example.com", "google.com", "pub-1", "DIRECT", ""),
+                record(INSERT_DATE, "example.com", "appnexus.com", "1234", "RESELLER", "")), INSERT_DATE);
+
+        DateTime nextDate = INSERT_DATE.plusDays(1);
+        recordFingerprints.diff("example.com", Collections.singletonList(
+                record(INSERT_DATE, "example.com", "google.com", "pub-1", "DIRECT", "")),
+                nextDate);
+
+        List<AdsTxtRecord> removedRecords = recordFingerprints.getRemovedRecords();
+        assertEquals(1, removedRecords.size());
+        assertEquals("example.com", removedRecords.get(0).getSourceDomain());
+        assertEquals("appnexus.com", removedRecords.get(0).getAdServingDomain());
+        assertEquals("1234", removedRecords.get(0).getPublisherAccId());
+        assertEquals("RESELLER", removedRecords.get(0).getAccType());
+        assertEquals(nextDate, removedRecords.get(0).getInsertDate());
+    }
+
+    @Test
+    public void testDomainWithoutLinesIsForgotten() {
+        RecordFingerprints recordFingerprints = new RecordFingerprints(fingerprintFile.getAbsolutePath(), true);
+        recordFingerprints.diff("example.com", Collections.singletonList(
+                record(INSERT_DATE, "example.com", "google.com", "pub-1", "DIRECT", "")),
+                INSERT_DATE);
+        assertEquals(1, recordFingerprints.size());
+
+        assertTrue(recordFingerprints.diff("example.com", Collections.emptyList(), INSERT_DATE).isEmpty());
+        assertEquals(0, recordFingerprints.size());
+        assertEquals(1, recordFingerprints.getRemovedRecords().size());
+    }
+
+    @Test
+    public void testSavedFingerprintsAreLoaded() {
+        RecordFingerprints recordFingerprints = new RecordFingerprints(fingerprintFile.getAbsolutePath(), true);
+        recordFingerprints.diff("example.com", Arrays.asList(
+                record(INSERT_DATE, "example.com", "google.com", "pub-1", "DIRECT", ""),
+                record(INSERT_DATE, "example.com", "appnexus.com", "1234", "RESELLER", "")), INSERT_DATE);
+        recordFingerprints.diff("other.org", Collections.singletonList(
+                record(INSERT_DATE, "example.com", "google.com", "pub-2", "DIRECT", "")),
+                INSERT_DATE);
+        recordFingerprints.save();
+
+        CrawlDictionary crawlDictionary = new CrawlDictionary();
+        String appnexus = crawlDictionary.canonicalize(new String("appnexus.com"));
+        RecordFingerprints loaded = new RecordFingerprints(fingerprintFile.getAbsolutePath(), true, crawlDictionary);
+        loaded.load();
+        assertEquals(2, loaded.size());
+        AdsTxtRecord added = record(INSERT_DATE, "example.com", "google.com", "pub-3", "DIRECT", "");
+        assertEquals(Collections.singletonList(added), loaded.diff("other.org",
+                Arrays.asList(record(INSERT_DATE, "example.com", "google.com", "pub-2", "DIRECT", ""),
+                        added), INSERT_DATE));
+        loaded.diff("example.com", Collections.singletonList(
+                record(INSERT_DATE, "example.com", "google.com", "pub-1", "DIRECT", "")), INSERT_DATE);
+        // Removed records share the values of the parsed ones
+        assertSame(appnexus, loaded.getRemovedRecords().get(0).getAdServingDomain());
+    }
+
+    @Test
+    public void testFingerprintsSavedWithoutLinesGiveNoTombstones() {
+        RecordFingerprints recordFingerprints = new RecordFingerprints(fingerprintFile.getAbsolutePath(), false);
+        recordFingerprints.diff("example.com", Collections.singletonList(
+                record(INSERT_DATE, "example.com", "google.com", "pub-1", "DIRECT", "")),
+                INSERT_DATE);
+        recordFingerprints.save();
+
+        RecordFingerprints loaded = new RecordFingerprints(fingerprintFile.getAbsolutePath(), true);
+        loaded.load();
+        assertTrue(loaded.diff("example.com", Collections.emptyList(), INSERT_DATE).isEmpty());
+        assertTrue(loaded.getRemovedRecords().isEmpty());
+        assertEquals(0, loaded.size());
+    }
+}
@@ -0,0 +1,72 @@
+package org.ignitionone.model;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.ignitionone.model.AdsTxtRecordFixtures.record;
+import static org.junit.Assert.*;
+
+public class AdsTxtRecordBatchTest {
+
+    @Test
+    public void testColumnsKeepTheRecords() {
+        DateTime insertDate = new DateTime();
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            adsTxtRecords.add(record(insertDate, "www.domain" + i % 10 + ".com", "google.com", "pub-" + i,
+                    i % 2 == 0 ? "DIRECT" : "RESELLER", i % 3 == 0 ? "f08c47fec0942fa0" : ""));
+        }
+        // Empty record of a separator line
+        adsTxtRecords.add(new AdsTxtRecord());
+
+        // Starts small to grow the columns
+        AdsTxtRecordBatch batch = new AdsTxtRecordBatch(1);
+        batch.addAll(adsTxtRecords);
+
+        assertEquals(101, batch.size());
+        // 10 source domains, google.com, 100 publisher ids, 2 account types, 2 cert ids
+        assertEquals(115, batch.getValueCount());
+        for (int row = 0; row < adsTxtRecords.size(); row++) {
+            AdsTxtRecord adsTxtRecord = adsTxtRecords.get(row);
+            assertEquals(adsTxtRecord.getInsertDate(), batch.getInsertDate(row));
+            assertEquals(adsTxtRecord.getSourceDomain(), batch.getSourceDomain(row));
+            assertEquals(adsTxtRecord.getAdServingDomain(), batch.getAdServingDomain(row));
+            assertEquals(adsTxtRecord.getPublisherAccId(), batch.getPublisherAccId(row));
+            assertEquals(adsTxtRecord.getAccType(), batch.getAccType(row));
+            assertEquals(adsTxtRecord.getCertAuthId(), batch.getCertAuthId(row));
+        }
+        assertNull(batch.getInsertDate(100));
+        assertNull(batch.getSourceDomain(100));
+        // The shared insert date is not materialized per row
+        assertSame(batch.getInsertDate(0), batch.getInsertDate(99));
+    }
+
+    @Test
+    public void testListView() {
+        DateTime insertDate = new DateTime();
+        AdsTxtRecord adsTxtRecord = record(insertDate, "www.domain.com", "google.com", "pub-1", "DIRECT", "");
+        AdsTxtRecordBatch batch = AdsTxtRecordBatch.of(Collections.singletonList(adsTxtRecord));
+
+        List<AdsTxtRecord> adsTxtRecords = batch.asList();
+        assertEquals(1, adsTxtRecords.size());
+        assertEquals("pub-1", adsTxtRecords.get(0).getPublisherAccId());
+        assertEquals(AccountType.DIRECT, adsTxtRecords.get(0).getAccountType());
+        assertEquals(adsTxtRecord.toString(), adsTxtRecords.get(0).toString());
+        assertEquals(adsTxtRecord.toString(), batch.toLine(0));
+
+        // The view follows the batch
+        batch.add(adsTxtRecord);
+        assertEquals(2, adsTxtRecords.size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRowOutOfBounds() {
+        AdsTxtRecordBatch batch = new AdsTxtRecordBatch();
+        batch.add(new AdsTxtRecord());
+        batch.getSourceDomain(1);
+    }
+}
@@ -0,0 +1,24 @@
+package org.ignitionone.model;
+
+import org.joda.time.DateTime;
+
+/**
+ * <p> Builds the {@link AdsTxtRecord}s the tests write, parse and journal </p>
+ */
+public final class AdsTxtRecordFixtures {
+
+    private AdsTxtRecordFixtures() {
+    }
+
+    public static AdsTxtRecord record(DateTime insertDate, String sourceDomain, String adServingDomain,
+                                      String publisherAccId, String accType, String certAuthId) {
+        AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+        adsTxtRecord.setInsertDate(insertDate);
+        adsTxtRecord.setSourceDomain(sourceDomain);
+        adsTxtRecord.setAdServingDomain(adServingDomain);
+        adsTxtRecord.setPublisherAccId(publisherAccId);
+        adsTxtRecord.setAccType(accType);
+        adsTxtRecord.setCertAuthId(certAuthId);
+        return adsTxtRecord;
+    }
+}
@@ -0,0 +1,60 @@
+package org.ignitionone.model;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+
+import static org.ignitionone.model.AdsTxtRecordFixtures.record;
+import static org.junit.Assert.assertEquals;
+
+public class AdsTxtRecordSerializerTest {
+    private static final DateTime INSERT_DATE = new DateTime(2018, 3, 7, 14, 5, 9, DateTimeZone.UTC);
+
+    private final AdsTxtRecordSerializer serializer = new AdsTxtRecordSerializer();
+
+    @Test
+    public void testWrite() throws IOException {
+        StringWriter writer = new StringWriter();
+        serializer.write(writer, record(INSERT_DATE, "www.domain.com", "google.com", "pub-1", "DIRECT",
+                "f08c47fec0942fa0"));
+        serializer.write(writer, record(INSERT_DATE, "www.domain.com", "rubiconproject.com", "11914", "RESELLER", ""));
+
+        assertEquals("2018-03-07 14:05:09,www.domain.com,google.com,pub-1,DIRECT,f08c47fec0942fa0\n" +
+                "2018-03-07 14:05:09,www.domain.com,rubiconproject.com,11914,RESELLER,\n", writer.toString());
+    }
+
+    @Test
+    public void testEscaping() {
+        String line = serializer.toLine(INSERT_DATE, "www.domain.com", "google.com", "pub \"1\"",
+                "DIRECT", "a,b\nc");
+
+        assertEquals("2018-03-07 14:05:09,www.domain.com,google.com,\"pub \"\"1\"\"\",DIRECT,\"a,b\nc\"\n", line);
+    }
+
+    @Test
+    public void testMissingValues() {
+        assertEquals(",null,null,null,null,null\n", serializer.toLine(null, null, null, null, null, null));
+    }
+
+    @Test
+    public void testInsertDateIsFormattedAgainWhenItChanges() {
+        assertEquals("2018-03-07 14:05:09,a,b,c,d,\n", serializer.toLine(INSERT_DATE, "a", "b", "c", "d", ""));
+        assertEquals("2018-03-08 14:05:09,a,b,c,d,\n",
+                serializer.toLine(INSERT_DATE.plusDays(1), "a", "b", "c", "d", ""));
+    }
+
+    @Test
+    public void testBatchRowsAreWrittenLikeRecords() throws IOException {
+        AdsTxtRecord adsTxtRecord = record(INSERT_DATE, "www.domain.com", "google.com", "pub-1", "DIRECT", "");
+        // Batches keep the insert date in the default time zone
+        adsTxtRecord.setInsertDate(new DateTime(INSERT_DATE.getMillis()));
+        StringWriter writer = new StringWriter();
+        serializer.write(writer, AdsTxtRecordBatch.of(Collections.singletonList(adsTxtRecord)));
+
+        assertEquals(adsTxtRecord.toString(), writer.toString());
+    }
+}
@@ -0,0 +1,52 @@
+package org.ignitionone.model;
+
+import org.junit.Test;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class HttpRequestTest {
+
+    @Test
+    public void testDefaultUrl() {
+        HttpRequest httpRequest = new HttpRequest().setDomainName("www.example.com").setPort(80);
+        assertEquals("http://www.example.com:80/ads.txt", httpRequest.getUrl());
+    }
+
+    @Test
+    public void testNextFallback() {
+        HttpRequest httpRequest = new HttpRequest()
+                .setDomainName("example.com")
+                .setAddress("10.0.0.1")
+                .addHeader("If-None-Match", "\"v1\"")
+                .setFallbackUrls(Arrays.asList("https://example.com:443/ads.txt", "http://example.com:80/ads.txt"));
+
+        HttpRequest https = httpRequest.nextFallback();
+        assertEquals("https://example.com:443/ads.txt", https.getUrl());
+        assertEquals("10.0.0.1", https.getAddress());
+        assertEquals("\"v1\"", https.getHeaders().get("If-None-Match"));
+
+        HttpRequest http = https.nextFallback();
+        assertEquals("http://example.com:80/ads.txt", http.getUrl());
+        assertNull(http.nextFallback());
+    }
+
+    @Test
+    public void testRedirect() throws MalformedURLException {
+        HttpRequest httpRequest = new HttpRequest()
+                .setDomainName("example.com")
+                .setAddress("10.0.0.1")
+                .setFallbackUrls(Arrays.asList("http://example.com:80/ads.txt"));
+
+        HttpRequest redirected = httpRequest.redirect(new URL("https://www.example.com/ads.txt"));
+        assertEquals("https://www.example.com:443/ads.txt", redirected.getUrl());
+        assertEquals("example.com", redirected.getDomainName());
+        assertEquals(1, redirected.getRedirects());
+        assertNull(redirected.getAddress());
+        assertEquals(Arrays.asList("http://example.com:80/ads.txt"), redirected.getFallbackUrls());
+    }
+}
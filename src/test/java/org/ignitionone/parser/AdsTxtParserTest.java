@@ -0,0 +1,229 @@
+package org.ignitionone.parser;
+
+import org.apache.commons.lang3.StringUtils;
+import org.ignitionone.model.AccountType;
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.AdsTxtVariable;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class AdsTxtParserTest {
+    private final AdsTxtParser adsTxtParser = new AdsTxtParser();
+
+    @Test
+    public void testParse() {
+        List<AdsTxtRecord> adsTxtRecords = parse("#Ads.txt economist.com\r\n" +
+                "\r\n" +
+                "google.com, pub-9789600135996590, DIRECT, d75815a79\r\n" +
+                "  indexexchange.com ,184475,DIRECT # inline comment\n" +
+                "rubiconproject.com,\t11914 , RESELLER");
+
+        assertEquals(3, adsTxtRecords.size());
+        assertRecord(adsTxtRecords.get(0), "google.com", "pub-9789600135996590", "DIRECT", "d75815a79");
+        assertRecord(adsTxtRecords.get(1), "indexexchange.com", "184475", "DIRECT", "");
+        assertRecord(adsTxtRecords.get(2), "rubiconproject.com", "11914", "RESELLER", "");
+        assertEquals("www.domain.com", adsTxtRecords.get(0).getSourceDomain());
+    }
+
+    @Test
+    public void testPartialLines() {
+        List<AdsTxtRecord> adsTxtRecords = parse("google.com\ngoogle.com, pub-1\n , ,\n");
+
+        assertEquals(3, adsTxtRecords.size());
+        assertEquals("google.com", adsTxtRecords.get(0).getAdServingDomain());
+        assertNull(adsTxtRecords.get(0).getPublisherAccId());
+        assertEquals("pub-1", adsTxtRecords.get(1).getPublisherAccId());
+        assertNull(adsTxtRecords.get(1).getAccType());
+        // Only separators, nothing is set
+        assertNull(adsTxtRecords.get(2).getInsertDate());
+    }
+
+    @Test
+    public void testParityWithRegexParser() {
+        String[] contents = {
+                "",
+                "\n\n",
+                "google.com, pub-1, DIRECT, f08c47fec0942fa0\n",
+                "google.com , pub-1 , DIRECT , f08c47fec0942fa0 # comment\n",
+                "google.com, pub-1, DIRECT # comment, with, commas\n",
+                "google.com, pub-1, DIRECT, cert, extra\n",
+                "google.com, pub-1, DIRECT,,\n",
+                "google.com,, DIRECT\n",
+                ",google.com, pub-1, DIRECT\n",
+                "google.com, #pub-1, DIRECT\n",
+                "google.com, pub-1 #x, \u001cDIRECT#y\n",
+                "google.com, \u0001pub-1 #x, DIRECT\n",
+                "contact=adops@domain.com\nsubdomain=sub.domain.com\n",
+                "google.com=x, pub-1, DIRECT\n",
+                "google.com,\u000b\fpub-1\t,\tDIRECT\r\n",
+                "   #  indented comment\n\tgoogle.com, pub-1, RESELLER",
+                "a b , c d ,e f,g h",
+                ",",
+                " , , , "
+        };
+        for (String content : contents) {
+            assertParity(content);
+        }
+    }
+
+    @Test
+    public void testParityWithRegexParserOnRandomContent() {
+        Random random = new Random(42);
+        String alphabet = "ab.-1 ,,,##\t\r\n\n\u000b\f\u0001\u001c";
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder content = new StringBuilder();
+            int length = random.nextInt(80);
+            for (int j = 0; j < length; j++) {
+                content.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertParity(content.toString());
+        }
+    }
+
+    @Test
+    public void testParseVariables() {
+        String content = "CONTACT=adops@domain.com\n" +
+                "google.com, pub-1, DIRECT\n" +
+                "subdomain = sub.domain.com # comment\r\n" +
+                "  OWNERDOMAIN=domain.com\n" +
+                "#SUBDOMAIN=commented.domain.com\n";
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        List<AdsTxtVariable> adsTxtVariables = new ArrayList<>();
+        adsTxtParser.parse("www.domain.com", content, adsTxtRecords, adsTxtVariables);
+
+        assertEquals(1, adsTxtRecords.size());
+        assertRecord(adsTxtRecords.get(0), "google.com", "pub-1", "DIRECT", "");
+        List<AdsTxtVariable> expected = Arrays.asList(
+                new AdsTxtVariable(AdsTxtVariable.CONTACT, "adops@domain.com"),
+                new AdsTxtVariable(AdsTxtVariable.SUBDOMAIN, "sub.domain.com"),
+                new AdsTxtVariable(AdsTxtVariable.OWNERDOMAIN, "domain.com"));
+        assertEquals(expected, adsTxtVariables);
+        assertEquals(expected, AdsTxtParser.parseVariables(content));
+        // Dropped without a list for them
+        assertEquals(1, parse(content).size());
+    }
+
+    @Test
+    public void testRecordsShareFieldValues() {
+        List<AdsTxtRecord> adsTxtRecords = parse("google.com, pub-1, DIRECT, f08c47fec0942fa0\n" +
+                "google.com, pub-2, RESELLER, f08c47fec0942fa0\n" +
+                "google.com, pub-1, direct\n");
+        List<AdsTxtRecord> otherRecords = parse("google.com, pub-1, DIRECT\n");
+
+        assertSame(adsTxtRecords.get(0).getAdServingDomain(), otherRecords.get(0).getAdServingDomain());
+        assertSame(adsTxtRecords.get(0).getPublisherAccId(), adsTxtRecords.get(2).getPublisherAccId());
+        assertSame(adsTxtRecords.get(0).getCertAuthId(), adsTxtRecords.get(1).getCertAuthId());
+        assertSame(adsTxtRecords.get(0).getInsertDate(), otherRecords.get(0).getInsertDate());
+        assertEquals(AccountType.DIRECT, adsTxtRecords.get(0).getAccountType());
+        assertEquals(AccountType.RESELLER, adsTxtRecords.get(1).getAccountType());
+        // Other values are kept as written
+        assertNull(adsTxtRecords.get(2).getAccountType());
+        assertEquals("direct", adsTxtRecords.get(2).getAccType());
+    }
+
+    @Test
+    public void testSplitParseOnForkJoinPool() {
+        StringBuilder content = new StringBuilder("#Ads.txt\n");
+        for (int i = 0; i < 500; i++) {
+            content.append("adserver").append(i).append(".com, pub-").append(i)
+                    .append(i % 2 == 0 ? ", DIRECT\n" : ",RESELLER, f08c47fec0942fa0\r\n");
+        }
+        List<AdsTxtRecord> expected = parse(content.toString());
+
+        AdsTxtParser splittingParser = new AdsTxtParser(100, new CrawlDictionary());
+        List<AdsTxtRecord> actual = new ForkJoinPool(4).invoke(new RecursiveTask<List<AdsTxtRecord>>() {
+            @Override
+            protected List<AdsTxtRecord> compute() {
+                List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+                splittingParser.parse("www.domain.com", content.toString(), adsTxtRecords);
+                return adsTxtRecords;
+            }
+        });
+
+        assertEquals(500, actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertRecord(actual.get(i), expected.get(i).getAdServingDomain(), expected.get(i).getPublisherAccId(),
+                    expected.get(i).getAccType(), expected.get(i).getCertAuthId());
+        }
+    }
+
+    private List<AdsTxtRecord> parse(String content) {
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        adsTxtParser.parse("www.domain.com", content, adsTxtRecords);
+        return adsTxtRecords;
+    }
+
+    private void assertParity(String content) {
+        List<AdsTxtRecord> expected = regexParse("www.domain.com", content);
+        List<AdsTxtRecord> actual = parse(content);
+        String message = "Content: " + Arrays.toString(content.toCharArray());
+
+        assertEquals(message, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(message, expected.get(i).getInsertDate() == null, actual.get(i).getInsertDate() == null);
+            assertEquals(message, expected.get(i).getSourceDomain(), actual.get(i).getSourceDomain());
+            assertEquals(message, expected.get(i).getAdServingDomain(), actual.get(i).getAdServingDomain());
+            assertEquals(message, expected.get(i).getPublisherAccId(), actual.get(i).getPublisherAccId());
+            assertEquals(message, expected.get(i).getAccType(), actual.get(i).getAccType());
+            assertEquals(message, expected.get(i).getCertAuthId(), actual.get(i).getCertAuthId());
+        }
+    }
+
+    private void assertRecord(AdsTxtRecord adsTxtRecord, String adServingDomain, String publisherAccId,
+                              String accType, String certAuthId) {
+        assertEquals(adServingDomain, adsTxtRecord.getAdServingDomain());
+        assertEquals(publisherAccId, adsTxtRecord.getPublisherAccId());
+        assertEquals(accType, adsTxtRecord.getAccType());
+        assertEquals(certAuthId, adsTxtRecord.getCertAuthId());
+    }
+
+    /**
+     * <p> The regex based parser the scanner replaced, the reference for parity </p>
+     */
+    private static List<AdsTxtRecord> regexParse(String domain, String content) {
+        List<AdsTxtRecord> adsTxtRecords = new ArrayList<>();
+        for (String adsTxtRecordRow : content.split("\n")) {
+            adsTxtRecordRow = adsTxtRecordRow.trim();
+            // Variable lines are not records
+            if (!adsTxtRecordRow.startsWith("#") && !adsTxtRecordRow.isEmpty()
+                    && !adsTxtRecordRow.matches("(?s)\\w+[ \\t]*=.*")) {
+                List<String> columns = Arrays.asList(adsTxtRecordRow.split("\\s*,\\s*"));
+                AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+                try {
+                    if (columns.size() > 0) {
+                        adsTxtRecord.setInsertDate(new DateTime());
+                        adsTxtRecord.setSourceDomain(removeComments(domain));
+                        adsTxtRecord.setAdServingDomain(removeComments(columns.get(0)));
+                        adsTxtRecord.setPublisherAccId(removeComments(columns.get(1)));
+                        adsTxtRecord.setAccType(removeComments(columns.get(2)));
+                        adsTxtRecord.setCertAuthId(columns.size() == 4 ? columns.get(3) : "");
+                    }
+                } catch (IndexOutOfBoundsException e) {
+                    // Partial record
+                }
+                adsTxtRecords.add(adsTxtRecord);
+            }
+        }
+        return adsTxtRecords;
+    }
+
+    private static String removeComments(String column) {
+        if (StringUtils.isNotBlank(column) && !StringUtils.startsWith(column, "#")) {
+            if (column.contains("#")) {
+                return column.split("#")[0].trim();
+            }
+        }
+        return column;
+    }
+}
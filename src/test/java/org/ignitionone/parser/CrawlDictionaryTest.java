@@ -0,0 +1,43 @@
+package org.ignitionone.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CrawlDictionaryTest {
+
+    @Test
+    public void testCanonicalize() {
+        CrawlDictionary crawlDictionary = new CrawlDictionary();
+        String first = new String("google.com");
+        String second = new String("google.com");
+
+        assertSame(first, crawlDictionary.canonicalize(first));
+        assertSame(first, crawlDictionary.canonicalize(second));
+        assertNull(crawlDictionary.canonicalize(null));
+        assertEquals(1, crawlDictionary.size());
+    }
+
+    @Test
+    public void testFullDictionaryKeepsNewValues() {
+        CrawlDictionary crawlDictionary = new CrawlDictionary(1);
+        String first = new String("google.com");
+        crawlDictionary.canonicalize(first);
+        String other = new String("appnexus.com");
+
+        assertSame(other, crawlDictionary.canonicalize(other));
+        assertSame(other, crawlDictionary.canonicalize(other));
+        assertSame(first, crawlDictionary.canonicalize(new String("google.com")));
+        assertEquals(1, crawlDictionary.size());
+    }
+
+    @Test
+    public void testDisabledDictionary() {
+        CrawlDictionary crawlDictionary = new CrawlDictionary(0);
+        String value = new String("google.com");
+        crawlDictionary.canonicalize(new String("google.com"));
+
+        assertSame(value, crawlDictionary.canonicalize(value));
+        assertEquals(0, crawlDictionary.size());
+    }
+}
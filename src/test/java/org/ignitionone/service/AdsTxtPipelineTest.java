@@ -0,0 +1,184 @@
+package org.ignitionone.service;
+
+import org.ignitionone.datastore.core.WriteDataStore;
+import org.ignitionone.journal.CrawlJournal;
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.HttpResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdsTxtPipelineTest {
+    private AdsTxtService adsTxtService;
+    private List<Integer> batchSizes;
+    private List<AdsTxtRecord> writtenRecords;
+    private WriteDataStore capturingStore;
+
+    @Before
+    public void setup() {
+        Properties properties = new Properties();
+        properties.setProperty("datastores.write", "console");
+        properties.setProperty("datastores.read", "console");
+        adsTxtService = new AdsTxtService(properties);
+
+        batchSizes = new ArrayList<>();
+        writtenRecords = new ArrayList<>();
+        capturingStore = adsTxtRecords -> {
+            batchSizes.add(adsTxtRecords.size());
+            writtenRecords.addAll(adsTxtRecords);
+        };
+    }
+
+    @Test
+    public void testRecordsAreWrittenInBatches() {
+        AdsTxtPipeline pipeline = new AdsTxtPipeline(adsTxtService::processHttpResponse,
+                Collections.singletonList(capturingStore), 1, 4);
+        pipeline.start();
+        for (int i = 0; i < 3; i++) {
+            pipeline.accept(adsTxtResponse("www.domain" + i + ".com"));
+        }
+        pipeline.finish();
+
+        assertEquals(9, pipeline.getRecordCount());
+        assertEquals(9, writtenRecords.size());
+        // Batches are flushed once they reach the batch size, the remainder is flushed on finish
+        assertEquals(Integer.valueOf(6), batchSizes.get(0));
+        assertEquals(Integer.valueOf(3), batchSizes.get(1));
+        assertEquals("www.domain0.com", writtenRecords.get(0).getSourceDomain());
+        assertEquals("www.domain2.com", writtenRecords.get(8).getSourceDomain());
+    }
+
+    @Test
+    public void testNonAdsTxtResponsesAreSkipped() {
+        AdsTxtPipeline pipeline = new AdsTxtPipeline(adsTxtService::processHttpResponse,
+                Collections.singletonList(capturingStore), 10, 100);
+        pipeline.start();
+        pipeline.accept(new HttpResponse()
+                .setDomainName("www.nonadstxt.com")
+                .setResponseCode(200)
+                .setResponseContent("Not an ads.txt file")
+                .setHasAdsTxt(false));
+        pipeline.accept(adsTxtResponse("www.adstxt.com"));
+        pipeline.finish();
+
+        assertEquals(3, writtenRecords.size());
+        assertEquals(1, batchSizes.size());
+    }
+
+    @Test
+    public void testFailingWriteStoreDoesNotStopThePipeline() {
+        List<Integer> attempts = new ArrayList<>();
+        WriteDataStore failingStore = adsTxtRecords -> {
+            attempts.add(adsTxtRecords.size());
+            throw new IllegalStateException("Store is down");
+        };
+        AdsTxtPipeline pipeline = new AdsTxtPipeline(adsTxtService::processHttpResponse,
+                Arrays.asList(failingStore, capturingStore), 1, 3);
+        pipeline.start();
+        // More responses than the queue holds, a dead pipeline thread would block here
+        for (int i = 0; i < 5; i++) {
+            pipeline.accept(adsTxtResponse("www.domain" + i + ".com"));
+        }
+        pipeline.finish();
+
+        assertEquals(5, attempts.size());
+        // The other stores still get every batch
+        assertEquals(15, writtenRecords.size());
+        assertTrue(pipeline.hasFailedWrites());
+    }
+
+    @Test
+    public void testFinishWithoutResponses() {
+        AdsTxtPipeline pipeline = new AdsTxtPipeline(adsTxtService::processHttpResponse,
+                Collections.singletonList(capturingStore), 10, 100);
+        pipeline.start();
+        pipeline.finish();
+
+        assertEquals(0, pipeline.getRecordCount());
+        assertEquals(0, batchSizes.size());
+        assertFalse(pipeline.hasFailedWrites());
+    }
+
+    @Test
+    public void testParsedDomainsAreJournaled() throws IOException {
+        File journalFile = File.createTempFile("crawljournal", ".tsv");
+        try {
+            CrawlJournal crawlJournal = new CrawlJournal(journalFile.getAbsolutePath());
+            crawlJournal.open();
+            AdsTxtPipeline pipeline = new AdsTxtPipeline(
+                    new ParallelResponseParser(adsTxtService::processHttpResponse, 4, 1, true),
+                    Collections.singletonList(capturingStore), crawlJournal, 10, 4);
+            pipeline.start();
+            for (int i = 0; i < 3; i++) {
+                pipeline.accept(adsTxtResponse("www.domain" + i + ".com"));
+            }
+            pipeline.finish();
+            crawlJournal.close();
+
+            CrawlJournal loaded = new CrawlJournal(journalFile.getAbsolutePath());
+            loaded.load();
+            assertEquals(3, loaded.getCompletedDomains().size());
+            assertTrue(loaded.hasCommitted());
+            // Both batches reached the store
+            assertEquals(0, loaded.getUncommittedRecords().size());
+        } finally {
+            Files.deleteIfExists(journalFile.toPath());
+        }
+    }
+
+    @Test
+    public void testBatchesAfterAFailedWriteStayUncommitted() throws IOException {
+        File journalFile = File.createTempFile("crawljournal", ".tsv");
+        try {
+            CrawlJournal crawlJournal = new CrawlJournal(journalFile.getAbsolutePath());
+            crawlJournal.open();
+            WriteDataStore failingStore = adsTxtRecords -> {
+                if (!batchSizes.isEmpty()) {
+                    throw new IllegalStateException("Store is down");
+                }
+            };
+            AdsTxtPipeline pipeline = new AdsTxtPipeline(
+                    new ParallelResponseParser(adsTxtService::processHttpResponse, 4, 1, true),
+                    Arrays.asList(failingStore, capturingStore), crawlJournal, 10, 4);
+            pipeline.start();
+            for (int i = 0; i < 3; i++) {
+                pipeline.accept(adsTxtResponse("www.domain" + i + ".com"));
+            }
+            pipeline.finish();
+            crawlJournal.close();
+
+            CrawlJournal loaded = new CrawlJournal(journalFile.getAbsolutePath());
+            loaded.load();
+            assertTrue(loaded.hasCommitted());
+            // The second batch did not reach every store, a resumed crawl writes it again
+            assertEquals(3, loaded.getUncommittedRecords().size());
+            assertEquals("www.domain2.com", loaded.getUncommittedRecords().get(0).getSourceDomain());
+            assertTrue(pipeline.hasFailedWrites());
+        } finally {
+            Files.deleteIfExists(journalFile.toPath());
+        }
+    }
+
+    private HttpResponse adsTxtResponse(String domain) {
+        return new HttpResponse()
+                .setDomainName(domain)
+                .setHasAdsTxt(true)
+                .setResponseCode(200)
+                .setResponseContent("#Ads.txt " + domain + "\n" +
+                        "google.com, pub-9789600135996590, DIRECT, d75815a79\n" +
+                        "indexexchange.com, 184475, DIRECT\n" +
+                        "rubiconproject.com, 11914, RESELLER");
+    }
+}
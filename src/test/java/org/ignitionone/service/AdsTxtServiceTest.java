@@ -1,13 +1,16 @@
 package org.ignitionone.service;
 
 import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.CrawlTarget;
 import org.ignitionone.model.HttpResponse;
 import org.joda.time.LocalDate;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import static org.junit.Assert.assertEquals;
@@ -65,6 +68,90 @@ public class AdsTxtServiceTest {
         assertEquals(new LocalDate(), adsTxtRecords.get(2).getInsertDate().toLocalDate());
     }
 
+    @Test
+    public void testProcessNotModifiedResponseReusesCachedRecords() {
+        HttpResponse httpResponse = new HttpResponse()
+                .setDomainName("www.businessinsider.com")
+                .setHasAdsTxt(true)
+                .setResponseCode(200)
+                .setEtag("\"v1\"")
+                .setResponseContent("#Ads.txt businessinsider.com\n" +
+                        "google.com, pub-9789600135996590, DIRECT, d75815a79\n" +
+                        "rubiconproject.com, 11914, RESELLER");
+        assertEquals(2, adsTxtService.processHttpResponses(Arrays.asList(httpResponse)).size());
+
+        HttpResponse notModified = new HttpResponse()
+                .setDomainName("www.businessinsider.com")
+                .setResponseCode(304);
+        List<AdsTxtRecord> adsTxtRecords = adsTxtService.processHttpResponses(Arrays.asList(notModified));
+
+        assertEquals(2, adsTxtRecords.size());
+        assertEquals("www.businessinsider.com", adsTxtRecords.get(0).getSourceDomain());
+        assertEquals("google.com", adsTxtRecords.get(0).getAdServingDomain());
+        assertEquals("d75815a79", adsTxtRecords.get(0).getCertAuthId());
+        assertEquals("RESELLER", adsTxtRecords.get(1).getAccType());
+    }
+
+    @Test
+    public void testDeltaWritesOnlyReturnChangedLines() {
+        Properties properties = new Properties();
+        properties.setProperty("datastores.write", "console");
+        properties.setProperty("datastores.read", "console");
+        properties.setProperty("delta.file", "fingerprints-" + System.nanoTime() + ".tsv");
+        AdsTxtService deltaService = new AdsTxtService(properties);
+
+        HttpResponse httpResponse = new HttpResponse()
+                .setDomainName("www.businessinsider.com")
+                .setHasAdsTxt(true)
+                .setResponseCode(200)
+                .setResponseContent("google.com, pub-9789600135996590, DIRECT, d75815a79\n" +
+                        "rubiconproject.com, 11914, RESELLER");
+        assertEquals(2, deltaService.processHttpResponses(Arrays.asList(httpResponse)).size());
+
+        HttpResponse changed = new HttpResponse()
+                .setDomainName("www.businessinsider.com")
+                .setHasAdsTxt(true)
+                .setResponseCode(200)
+                .setResponseContent("google.com, pub-9789600135996590, DIRECT, d75815a79\n" +
+                        "indexexchange.com, 184475, DIRECT");
+        List<AdsTxtRecord> adsTxtRecords = deltaService.processHttpResponses(Arrays.asList(changed));
+
+        assertEquals(1, adsTxtRecords.size());
+        assertEquals("indexexchange.com", adsTxtRecords.get(0).getAdServingDomain());
+    }
+
+    @Test
+    public void testProcessNotModifiedResponseWithoutCache() {
+        HttpResponse notModified = new HttpResponse()
+                .setDomainName("www.businessinsider.com")
+                .setResponseCode(304);
+        assertEquals(0, adsTxtService.processHttpResponses(Arrays.asList(notModified)).size());
+    }
+
+    @Test
+    public void testFilterValidTargetsKeepsHighestPriority() {
+        Map<String, Integer> priorities = AdsTxtService.filterValidTargets(Arrays.asList(
+                new CrawlTarget("www.example.com", 1), new CrawlTarget("http://example.com/", 5),
+                new CrawlTarget("Example.com.", 3), new CrawlTarget("other.org"),
+                new CrawlTarget("not a domain", 9)), false);
+
+        assertEquals(3, priorities.size());
+        assertEquals(Integer.valueOf(1), priorities.get("www.example.com"));
+        assertEquals(Integer.valueOf(5), priorities.get("example.com"));
+        assertEquals(Integer.valueOf(0), priorities.get("other.org"));
+    }
+
+    @Test
+    public void testFilterValidTargetsCollapsesToRegistrableDomain() {
+        Map<String, Integer> priorities = AdsTxtService.filterValidTargets(Arrays.asList(
+                new CrawlTarget("www.example.com", 1), new CrawlTarget("http://example.com/", 5),
+                new CrawlTarget("other.org"), new CrawlTarget("not a domain", 9)), true);
+
+        assertEquals(2, priorities.size());
+        assertEquals(Integer.valueOf(5), priorities.get("example.com"));
+        assertEquals(Integer.valueOf(0), priorities.get("other.org"));
+    }
+
     @Test
     public void testCommentRemoval() {
         String lineWithComment = "This, is a ,line with #comment";
@@ -0,0 +1,109 @@
+package org.ignitionone.service;
+
+import org.ignitionone.cache.DnsCache;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DnsServiceTest {
+    private Properties properties;
+    private DnsCache dnsCache;
+    private AtomicInteger lookups;
+    private DnsService.HostResolver stubResolver;
+    private DnsService.NameChecker stubChecker;
+
+    @Before
+    public void setup() {
+        properties = new Properties();
+        properties.setProperty("dns.resolver.threads", "4");
+        dnsCache = new DnsCache("");
+        lookups = new AtomicInteger();
+        // Local stub resolver: hosts containing "nxdomain" do not exist, the name server of "servfail" hosts fails
+        stubResolver = host -> {
+            lookups.incrementAndGet();
+            if (host.contains("nxdomain") || host.contains("servfail")) {
+                throw new UnknownHostException(host);
+            }
+            return "10.0.0." + host.length();
+        };
+        stubChecker = host -> host.contains("nxdomain");
+    }
+
+    @Test
+    public void testDropsUnresolvableDomains() {
+        DnsService dnsService = new DnsService(properties, dnsCache, stubResolver, stubChecker);
+        List<String> resolved = dnsService.resolve(Arrays.asList("www.example.com", "www.nxdomain.com",
+                "http://www.example.org/"));
+
+        assertEquals(Arrays.asList("www.example.com", "http://www.example.org/"), resolved);
+        assertEquals("10.0.0.15", dnsCache.getAddress("www.example.com"));
+        assertEquals("10.0.0.15", dnsCache.getAddress("www.example.org"));
+        assertFalse(dnsCache.get("www.nxdomain.com", System.currentTimeMillis()).isResolved());
+    }
+
+    @Test
+    public void testUsesPositiveAndNegativeCache() {
+        DnsService dnsService = new DnsService(properties, dnsCache, stubResolver, stubChecker);
+        dnsService.resolve(Arrays.asList("www.example.com", "www.nxdomain.com"));
+        assertEquals(2, lookups.get());
+
+        List<String> resolved = dnsService.resolve(Arrays.asList("www.example.com", "www.nxdomain.com"));
+        assertEquals(Arrays.asList("www.example.com"), resolved);
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testExpiredEntriesAreLookedUpAgain() {
+        properties.setProperty("dns.cache.negative.ttl.seconds", "0");
+        DnsService dnsService = new DnsService(properties, dnsCache, stubResolver, stubChecker);
+        dnsService.resolve(Arrays.asList("www.nxdomain.com"));
+        dnsService.resolve(Arrays.asList("www.nxdomain.com"));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testFailedLookupsGetTheFailureTtl() {
+        properties.setProperty("dns.cache.failure.ttl.seconds", "60");
+        DnsService dnsService = new DnsService(properties, dnsCache, stubResolver, stubChecker);
+        long start = System.currentTimeMillis();
+        List<String> resolved = dnsService.resolve(Arrays.asList("www.servfail.com", "www.nxdomain.com"));
+
+        // Only NXDOMAIN hosts are dropped, failed lookups are left to the http engine
+        assertEquals(Arrays.asList("www.servfail.com"), resolved);
+        DnsCache.Entry failed = dnsCache.get("www.servfail.com", start);
+        assertFalse(failed.isResolved());
+        assertTrue(failed.isFailed());
+        assertTrue(failed.getExpiresAt() <= System.currentTimeMillis() + 60000L);
+        // Only a NXDOMAIN answer gets the negative ttl
+        assertTrue(dnsCache.get("www.nxdomain.com", start).getExpiresAt() > start + 60000L);
+    }
+
+    @Test
+    public void testCachedFailedLookupsStayInTheCrawl() {
+        DnsService dnsService = new DnsService(properties, dnsCache, stubResolver, stubChecker);
+        dnsService.resolve(Arrays.asList("www.servfail.com"));
+        List<String> resolved = dnsService.resolve(Arrays.asList("www.servfail.com"));
+
+        assertEquals(Arrays.asList("www.servfail.com"), resolved);
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    public void testKeepsDomainsThatCouldNotBeLookedUp() {
+        DnsService dnsService = new DnsService(properties, dnsCache, host -> {
+            throw new IllegalArgumentException(host);
+        }, stubChecker);
+        List<String> resolved = dnsService.resolve(Arrays.asList("www.example.com"));
+        assertEquals(Arrays.asList("www.example.com"), resolved);
+        assertTrue(dnsCache.size() == 0);
+    }
+}
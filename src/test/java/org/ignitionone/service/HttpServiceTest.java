@@ -1,11 +1,16 @@
 package org.ignitionone.service;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import org.ignitionone.cache.DnsCache;
+import org.ignitionone.cache.SchemeCache;
+import org.ignitionone.cache.ValidatorCache;
 import org.ignitionone.model.HttpResponse;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
@@ -18,15 +23,18 @@ import static org.junit.Assert.assertTrue;
 public class HttpServiceTest {
     protected static final int TEST_PORT = 8089;
     private HttpService httpService;
+    private Properties properties;
 
     @Rule
     public WireMockRule wireMockRule = new WireMockRule(TEST_PORT);
 
     @Before
     public void setup() {
-        Properties properties = new Properties();
+        properties = new Properties();
         properties.setProperty("parallec.http.parallelism", "500");
         properties.setProperty("parallec.http.port", String.valueOf(TEST_PORT));
+        // Nothing listens for https, every request falls back to http
+        properties.setProperty("http.https.port", String.valueOf(TEST_PORT + 1));
         httpService = new HttpService(properties);
     }
 
@@ -46,6 +54,26 @@ public class HttpServiceTest {
 
     @Test
     public void testExecuteHttpRequestsInvalidMalformedAdsTxt() {
+        String content = "Sorry, the file you requested\n" +
+                "could not be found";
+
+        stubFor(get(urlEqualTo("/ads.txt"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "text/plain")
+                        .withStatus(200)
+                        .withBody(content)));
+
+        List<String> targets = Arrays.asList("localhost");
+        List<HttpResponse> responses = httpService.executeHttpRequests(targets);
+        assertEquals(1, responses.size());
+        assertFalse(responses.get(0).hasAdsTxtData());
+        assertEquals(200, responses.get(0).getResponseCode());
+        assertEquals("localhost", responses.get(0).getDomainName());
+        assertEquals(content, responses.get(0).getResponseContent());
+    }
+
+    @Test
+    public void testExecuteHttpRequestsValidWithoutAdsTxtComment() {
         String content =  "\n" +
                 "google.com, pub-9789600135996590, DIRECT\n" +
                 "indexexchange.com, 184475, DIRECT\n" +
@@ -60,9 +88,7 @@ public class HttpServiceTest {
         List<String> targets = Arrays.asList("localhost");
         List<HttpResponse> responses = httpService.executeHttpRequests(targets);
         assertEquals(1, responses.size());
-        assertFalse(responses.get(0).hasAdsTxtData());
-        assertEquals(200, responses.get(0).getResponseCode());
-        assertEquals("localhost", responses.get(0).getDomainName());
+        assertTrue(responses.get(0).hasAdsTxtData());
         assertEquals(content, responses.get(0).getResponseContent());
     }
 
@@ -119,4 +145,147 @@ public class HttpServiceTest {
 
         assertEquals(0, responses.size());
     }
+
+    @Test
+    public void testExecuteHttpRequestsFollowsRedirectWithinRootDomain() {
+        stubFor(get(urlEqualTo("/adsredirect.txt"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("#Ads.txt economist.com\n" +
+                                "google.com, pub-9789600135996590, DIRECT")));
+
+        stubFor(get(urlEqualTo("/ads.txt"))
+                .willReturn(aResponse()
+                        .withHeader("Location", "/adsredirect.txt")
+                        .withStatus(301)));
+
+        SchemeCache schemeCache = new SchemeCache("");
+        HttpService redirectingHttpService = new HttpService(properties, new ValidatorCache(""), new DnsCache(""),
+                schemeCache);
+
+        List<HttpResponse> responses = redirectingHttpService.executeHttpRequests(Arrays.asList("localhost"));
+        assertEquals(1, responses.size());
+        assertTrue(responses.get(0).hasAdsTxtData());
+        assertEquals("localhost", responses.get(0).getDomainName());
+        assertEquals("http://localhost:8089/adsredirect.txt", schemeCache.get("localhost"));
+    }
+
+    @Test
+    public void testExecuteHttpRequestsIgnoresRedirectOutsideRootDomain() {
+        stubFor(get(urlEqualTo("/adsredirect.txt"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("#Ads.txt economist.com\n" +
+                                "google.com, pub-9789600135996590, DIRECT")));
+
+        stubFor(get(urlEqualTo("/ads.txt"))
+                .willReturn(aResponse()
+                        .withHeader("Location", "http://127.0.0.1:8089/adsredirect.txt")
+                        .withStatus(302)));
+
+        List<HttpResponse> responses = httpService.executeHttpRequests(Arrays.asList("localhost"));
+        assertEquals(0, responses.size());
+    }
+
+    @Test
+    public void testExecuteHttpRequestsStartsAtCachedUrl() {
+        stubFor(get(urlEqualTo("/adsredirect.txt"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("#Ads.txt economist.com\n" +
+                                "google.com, pub-9789600135996590, DIRECT")));
+
+        SchemeCache schemeCache = new SchemeCache("");
+        schemeCache.put("localhost", "http://localhost:8089/adsredirect.txt");
+        HttpService cachedHttpService = new HttpService(properties, new ValidatorCache(""), new DnsCache(""),
+                schemeCache);
+
+        List<HttpResponse> responses = cachedHttpService.executeHttpRequests(Arrays.asList("localhost"));
+        assertEquals(1, responses.size());
+        assertEquals("http://localhost:8089/adsredirect.txt", responses.get(0).getHttpRequest().getUrl());
+    }
+
+    @Test
+    public void testExecuteHttpRequestsFallsBackToHttp() {
+        stubFor(get(urlEqualTo("/ads.txt"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("#Ads.txt economist.com\n" +
+                                "google.com, pub-9789600135996590, DIRECT")));
+
+        SchemeCache schemeCache = new SchemeCache("");
+        HttpService fallbackHttpService = new HttpService(properties, new ValidatorCache(""), new DnsCache(""),
+                schemeCache);
+
+        List<HttpResponse> responses = fallbackHttpService.executeHttpRequests(Arrays.asList("localhost"));
+        assertEquals(1, responses.size());
+        assertEquals("http://localhost:8089/ads.txt", schemeCache.get("localhost"));
+    }
+
+    @Test
+    public void testExecuteHttpRequestsRetriesServerErrors() {
+        properties.setProperty("http.retry.backoff.ms", "10");
+        properties.setProperty("http.retry.budget", "1");
+        HttpService retryingHttpService = new HttpService(properties);
+
+        stubFor(get(urlEqualTo("/ads.txt")).inScenario("retry")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                        .withStatus(503))
+                .willSetStateTo("recovered"));
+
+        stubFor(get(urlEqualTo("/ads.txt")).inScenario("retry")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("#Ads.txt economist.com\n" +
+                                "google.com, pub-9789600135996590, DIRECT")));
+
+        List<HttpResponse> responses = retryingHttpService.executeHttpRequests(Arrays.asList("localhost"));
+        assertEquals(1, responses.size());
+        assertTrue(responses.get(0).hasAdsTxtData());
+    }
+
+    @Test
+    public void testExecuteHttpRequestsDoesNotRetryNotFound() {
+        properties.setProperty("http.retry.backoff.ms", "10");
+        properties.setProperty("http.retry.budget", "1");
+        HttpService retryingHttpService = new HttpService(properties);
+
+        stubFor(get(urlEqualTo("/ads.txt")).inScenario("retry")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                        .withStatus(404))
+                .willSetStateTo("found"));
+
+        stubFor(get(urlEqualTo("/ads.txt")).inScenario("retry")
+                .whenScenarioStateIs("found")
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("#Ads.txt economist.com\n" +
+                                "google.com, pub-9789600135996590, DIRECT")));
+
+        List<HttpResponse> responses = retryingHttpService.executeHttpRequests(Arrays.asList("localhost"));
+        assertEquals(0, responses.size());
+    }
+
+    @Test
+    public void testExecuteHttpRequestsNotModified() {
+        stubFor(get(urlEqualTo("/ads.txt"))
+                .withHeader("If-None-Match", equalTo("\"v1\""))
+                .willReturn(aResponse()
+                        .withHeader("ETag", "\"v1\"")
+                        .withStatus(304)));
+
+        ValidatorCache validatorCache = new ValidatorCache("");
+        validatorCache.put("localhost", "\"v1\"", null, 0L, new ArrayList<>());
+        HttpService conditionalHttpService = new HttpService(properties, validatorCache);
+
+        List<String> targets = Arrays.asList("localhost");
+        List<HttpResponse> responses = conditionalHttpService.executeHttpRequests(targets);
+        assertEquals(1, responses.size());
+        assertTrue(responses.get(0).isNotModified());
+        assertEquals("\"v1\"", responses.get(0).getEtag());
+        assertEquals("localhost", responses.get(0).getDomainName());
+    }
 }
\ No newline at end of file
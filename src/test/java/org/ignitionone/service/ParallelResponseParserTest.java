@@ -0,0 +1,102 @@
+package org.ignitionone.service;
+
+import org.ignitionone.model.AdsTxtRecord;
+import org.ignitionone.model.HttpResponse;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ParallelResponseParserTest {
+    private static final int RESPONSES = 1000;
+
+    // Record i of domain n has the publisher account id n-i, domain13 fails after its first record
+    private final BiConsumer<HttpResponse, List<AdsTxtRecord>> responseParser = (httpResponse, adsTxtRecords) -> {
+        String domain = httpResponse.getDomainName();
+        int count = Integer.parseInt(httpResponse.getResponseContent());
+        for (int i = 0; i < count; i++) {
+            if (i == 1 && domain.equals("domain13")) {
+                throw new IllegalStateException("Unparseable");
+            }
+            AdsTxtRecord adsTxtRecord = new AdsTxtRecord();
+            adsTxtRecord.setSourceDomain(domain);
+            adsTxtRecord.setPublisherAccId(domain.substring(6) + "-" + i);
+            adsTxtRecords.add(adsTxtRecord);
+        }
+    };
+
+    @Test
+    public void testOrderedParseKeepsResponseOrder() {
+        List<HttpResponse> httpResponses = httpResponses();
+        List<AdsTxtRecord> expected = new ParallelResponseParser(responseParser).parse(httpResponses);
+        List<AdsTxtRecord> actual = new ParallelResponseParser(responseParser, 4, 8, true).parse(httpResponses);
+
+        assertEquals(expectedRecordCount(), expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getPublisherAccId(), actual.get(i).getPublisherAccId());
+        }
+    }
+
+    @Test
+    public void testUnorderedParseKeepsResponseRecordsTogether() {
+        List<AdsTxtRecord> adsTxtRecords = new ParallelResponseParser(responseParser, 4, 8, false)
+                .parse(httpResponses());
+
+        assertEquals(expectedRecordCount(), adsTxtRecords.size());
+        // Every record once, the records of a response in order and next to each other
+        Map<String, Integer> nextRecords = new HashMap<>();
+        String previousDomain = null;
+        for (AdsTxtRecord adsTxtRecord : adsTxtRecords) {
+            String domain = adsTxtRecord.getSourceDomain();
+            int next = nextRecords.getOrDefault(domain, 0);
+            if (next > 0) {
+                assertEquals(previousDomain, domain);
+            }
+            assertEquals(domain.substring(6) + "-" + next, adsTxtRecord.getPublisherAccId());
+            nextRecords.put(domain, next + 1);
+            previousDomain = domain;
+        }
+    }
+
+    @Test
+    public void testParseEachDropsFailedResponses() {
+        List<HttpResponse> httpResponses = httpResponses();
+        List<List<AdsTxtRecord>> parsedResponses = new ParallelResponseParser(responseParser, 4, 8, true)
+                .parseEach(httpResponses);
+
+        assertEquals(RESPONSES, parsedResponses.size());
+        assertNull(parsedResponses.get(13));
+        for (int i = 0; i < RESPONSES; i++) {
+            if (i != 13) {
+                assertNotNull(parsedResponses.get(i));
+                assertEquals(i % 5, parsedResponses.get(i).size());
+            }
+        }
+    }
+
+    private List<HttpResponse> httpResponses() {
+        List<HttpResponse> httpResponses = new ArrayList<>();
+        for (int i = 0; i < RESPONSES; i++) {
+            httpResponses.add(new HttpResponse()
+                    .setDomainName("domain" + i)
+                    .setResponseContent(String.valueOf(i % 5)));
+        }
+        return httpResponses;
+    }
+
+    private int expectedRecordCount() {
+        int count = 0;
+        for (int i = 0; i < RESPONSES; i++) {
+            count += i == 13 ? 0 : i % 5;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,56 @@
+package org.ignitionone.service;
+
+import org.ignitionone.model.AdsTxtVariable;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SubdomainExpanderTest {
+
+    @Test
+    public void testExpandFollowsSubdomainsOfTheRootDomainOnce() {
+        SubdomainExpander subdomainExpander = new SubdomainExpander(true, 0,
+                Arrays.asList("example.com", "news.example.com"));
+
+        List<String> targets = subdomainExpander.expand("example.com", Arrays.asList(
+                "Sports.Example.com.", "news.example.com", "example.org", "sub.notexample.com", "not a domain",
+                "sports.example.com"));
+
+        assertEquals(Collections.singletonList("sports.example.com"), targets);
+        // Listed again by another file
+        assertTrue(subdomainExpander.expand("www.example.com", Arrays.asList("sports.example.com")).isEmpty());
+        assertEquals(1, subdomainExpander.getAdded());
+    }
+
+    @Test
+    public void testExpandFollowsAtMostMaxPerFile() {
+        SubdomainExpander subdomainExpander = new SubdomainExpander(true, 2, Collections.emptyList());
+
+        List<String> targets = subdomainExpander.expand("example.co.uk", Arrays.asList(
+                "a.example.co.uk", "b.example.co.uk", "c.example.co.uk"));
+
+        assertEquals(Arrays.asList("a.example.co.uk", "b.example.co.uk"), targets);
+    }
+
+    @Test
+    public void testDisabledExpandsNothing() {
+        SubdomainExpander subdomainExpander = new SubdomainExpander(false, 0, Collections.emptyList());
+
+        assertTrue(subdomainExpander.expand("example.com", Arrays.asList("sub.example.com")).isEmpty());
+    }
+
+    @Test
+    public void testGetSubdomains() {
+        List<String> subdomains = SubdomainExpander.getSubdomains(Arrays.asList(
+                new AdsTxtVariable(AdsTxtVariable.CONTACT, "adops@example.com"),
+                new AdsTxtVariable(AdsTxtVariable.SUBDOMAIN, "sub.example.com"),
+                new AdsTxtVariable(AdsTxtVariable.SUBDOMAIN, "")));
+
+        assertEquals(Collections.singletonList("sub.example.com"), subdomains);
+    }
+}
@@ -0,0 +1,55 @@
+package org.ignitionone.util;
+
+import org.ignitionone.util.ContentClassifier.ContentType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ContentClassifierTest {
+
+    @Test
+    public void testHtml() {
+        assertEquals(ContentType.HTML, ContentClassifier.classify(
+                "<!DOCTYPE html> <html><head>This is test html tag<head></html>"));
+        assertEquals(ContentType.HTML, ContentClassifier.classify("\n\n   <html>\n<body>Not found</body>\n</html>"));
+        assertEquals(ContentType.HTML, ContentClassifier.classify(
+                "Page not found\n<p>The page you requested, could not be found, sorry</p>"));
+    }
+
+    @Test
+    public void testAdsTxt() {
+        assertEquals(ContentType.ADS_TXT, ContentClassifier.classify("#Ads.txt economist.com\n" +
+                "\n" +
+                "google.com, pub-9789600135996590, DIRECT\n" +
+                "indexexchange.com, 184475, DIRECT\n" +
+                "rubiconproject.com, 11914, DIRECT"));
+        // No #Ads.txt marker, CRLF line breaks, lower case relationship
+        assertEquals(ContentType.ADS_TXT, ContentClassifier.classify(
+                "\uFEFFappnexus.com,1234,reseller,f5ab79cb980f11d1\r\nopenx.com, 5678, DIRECT\r\n"));
+        // Only variables
+        assertEquals(ContentType.ADS_TXT, ContentClassifier.classify("# Sold elsewhere\nOWNERDOMAIN=example.com\n"));
+        assertEquals(ContentType.ADS_TXT, ContentClassifier.classify("contact = adops@example.com"));
+    }
+
+    @Test
+    public void testTagInCommentIsNotHtml() {
+        assertEquals(ContentType.ADS_TXT, ContentClassifier.classify("# Questions? <adops@example.com>\n" +
+                "google.com, pub-9789600135996590, DIRECT, f08c47fec0942fa0 # <b>main</b>"));
+    }
+
+    @Test
+    public void testRecordsWithoutRelationship() {
+        assertEquals(ContentType.ADS_TXT, ContentClassifier.classify(
+                "google.com, pub-1, DIRCET\nappnexus.com, 1234, RESSELER\nSome junk"));
+        assertEquals(ContentType.UNKNOWN, ContentClassifier.classify("a, b, c\nSome junk\nMore junk"));
+    }
+
+    @Test
+    public void testEmptyAndUnknown() {
+        assertEquals(ContentType.EMPTY, ContentClassifier.classify(null));
+        assertEquals(ContentType.EMPTY, ContentClassifier.classify(""));
+        assertEquals(ContentType.EMPTY, ContentClassifier.classify("\r\n  \n# No sellers yet\n"));
+        assertEquals(ContentType.UNKNOWN, ContentClassifier.classify("This is normal text. Non-Adtxt!!"));
+        assertEquals(ContentType.UNKNOWN, ContentClassifier.classify("error=not found"));
+    }
+}
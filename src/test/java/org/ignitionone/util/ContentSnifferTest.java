@@ -0,0 +1,42 @@
+package org.ignitionone.util;
+
+import org.ignitionone.util.ContentSniffer.Verdict;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ContentSnifferTest {
+
+    @Test
+    public void testAcceptsAdsTxt() {
+        assertEquals(Verdict.ACCEPT, ContentSniffer.sniff("text/plain",
+                "google.com, pub-9789600135996590, DIRECT\nindexexchange.com, 184", false));
+        assertEquals(Verdict.ACCEPT, ContentSniffer.sniff(null, "\uFEFF# ads.txt for example.com\n", false));
+        assertEquals(Verdict.ACCEPT, ContentSniffer.sniff("text/html", "CONTACT=ads@example.com\n", false));
+    }
+
+    @Test
+    public void testRejectsHtml() {
+        assertEquals(Verdict.HTML, ContentSniffer.sniff("text/html", "\n  <!DOCTYPE html><html>", false));
+        assertEquals(Verdict.HTML, ContentSniffer.sniff("text/plain", "<html></html>", true));
+    }
+
+    @Test
+    public void testRejectsBinary() {
+        assertEquals(Verdict.BINARY, ContentSniffer.sniff("image/png", "google.com, pub-1, DIRECT\n", true));
+        assertEquals(Verdict.BINARY, ContentSniffer.sniff(null, "PK\0\0\3\4\n", true));
+    }
+
+    @Test
+    public void testRejectsFullWindowWithoutAdsTxtLines() {
+        assertEquals(Verdict.NOT_ADS_TXT, ContentSniffer.sniff("text/plain", "Not found\nNothing here\n", false));
+        // A cut off last line does not count
+        assertEquals(Verdict.NOT_ADS_TXT, ContentSniffer.sniff("text/plain", "Not found\ngoogle.com, pub", false));
+    }
+
+    @Test
+    public void testLeavesCompleteBodiesToRegularChecks() {
+        assertEquals(Verdict.ACCEPT, ContentSniffer.sniff("text/plain", "Not found", true));
+        assertEquals(Verdict.ACCEPT, ContentSniffer.sniff("text/plain", "", true));
+    }
+}
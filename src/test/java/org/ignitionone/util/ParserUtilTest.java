@@ -6,14 +6,15 @@ import java.util.HashSet;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 
 public class ParserUtilTest {
 
     @Test
     public void testSanitizeUrl() {
-        // sanitizeUrl method is supposed to return a valid url given a
-        // url- Should append www, check if url is in proper format etc.
+        // sanitizeUrl method is supposed to return the lowercased host of a domain or url,
+        // null if there is no valid domain name
 
         String url1 = "www.example.co.uk";
         String url2 = "www.example.com";
@@ -25,38 +26,38 @@ public class ParserUtilTest {
 
         assertEquals("www.example.co.uk", ParserUtil.sanitizeUrl(url1));
         assertEquals("www.example.com", ParserUtil.sanitizeUrl(url2));
-        assertEquals("http://example.co.uk", ParserUtil.sanitizeUrl(url3));
-        assertEquals("www.e232xample.co.in", ParserUtil.sanitizeUrl(url4));
-        assertEquals("www.e232xample.co.uk.in", ParserUtil.sanitizeUrl(url5));
-        assertEquals("www.e232xample.com", ParserUtil.sanitizeUrl(url6));
+        assertEquals("example.co.uk", ParserUtil.sanitizeUrl(url3));
+        assertEquals("e232xample.co.in", ParserUtil.sanitizeUrl(url4));
+        assertEquals("e232xample.co.uk.in", ParserUtil.sanitizeUrl(url5));
+        assertEquals("e232xample.com", ParserUtil.sanitizeUrl(url6));
         assertEquals(null, ParserUtil.sanitizeUrl(url7));
+        assertEquals("www.example.com", ParserUtil.sanitizeUrl("WWW.Example.com."));
     }
 
     @Test
-    public void testIsHtml() {
-        String htmlString = "<!DOCTYPE html> <html><head>This is test html tag<head></html>";
-        String plainText = "This is normal text. Non-html!!";
-
-        assertEquals(true, ParserUtil.isHtml(htmlString));
-        assertEquals(false, ParserUtil.isHtml(plainText));
+    public void testSanitizeUrlToRegistrableDomain() {
+        assertEquals("example.co.uk", ParserUtil.sanitizeUrl("www.example.co.uk", true));
+        assertEquals("example.com", ParserUtil.sanitizeUrl("www.example.com", true));
+        assertEquals("example.co.uk", ParserUtil.sanitizeUrl("http://example.co.uk", true));
+        assertEquals("co.uk.in", ParserUtil.sanitizeUrl("e232xample.co.uk.in", true));
+        assertEquals(null, ParserUtil.sanitizeUrl("example", true));
     }
 
     @Test
-    public void testIsAdtxt() {
-        String adsTxtString = "\"#Ads.txt economist.com\\n\" +\n" +
-                "\"\\n\" +\n" +
-                "\"google.com, pub-9789600135996590, DIRECT\\n\" +\n" +
-                "\"indexexchange.com, 184475, DIRECT\\n\" +\n" +
-                "\"rubiconproject.com, 11914, DIRECT\"";
-        String plainText = "This is normal text. Non-Adtxt!!";
-
-        String comment = "#This is a comment";
-
-
-        System.out.println(ParserUtil.isAdsTXT(comment));
+    public void testGetHost() {
+        assertEquals("www.example.com", ParserUtil.getHost("www.example.com"));
+        assertEquals("example.co.uk", ParserUtil.getHost("http://example.co.uk"));
+        assertEquals("example.com", ParserUtil.getHost("https://example.com:8443/ads.txt"));
+    }
 
-        assertEquals(true, ParserUtil.isAdsTXT(adsTxtString));
-        assertEquals(false, ParserUtil.isAdsTXT(plainText));
+    @Test
+    public void testGetRegistrableDomain() {
+        assertEquals("example.com", ParserUtil.getRegistrableDomain("www.example.com"));
+        assertEquals("example.com", ParserUtil.getRegistrableDomain("a.b.Example.com."));
+        assertEquals("example.co.uk", ParserUtil.getRegistrableDomain("www.news.example.co.uk"));
+        assertEquals("example.de", ParserUtil.getRegistrableDomain("www.example.de"));
+        assertEquals("example.com", ParserUtil.getRegistrableDomain("example.com"));
+        assertEquals("localhost", ParserUtil.getRegistrableDomain("localhost"));
     }
 
     @Test
@@ -74,5 +75,9 @@ public class ParserUtilTest {
 
         Set<String> sanitizedUrls = ParserUtil.filterValidUrls(testUrls);
         assertEquals(4, sanitizedUrls.size());
+        assertTrue(sanitizedUrls.contains("www.example.com"));
+
+        // www.example.com and http://example.com share their registrable domain
+        assertEquals(3, ParserUtil.filterValidUrls(testUrls, true).size());
     }
 }